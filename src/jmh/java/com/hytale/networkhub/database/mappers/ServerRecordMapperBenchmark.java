@@ -0,0 +1,145 @@
+package com.hytale.networkhub.database.mappers;
+
+import com.hytale.networkhub.database.models.ServerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ServerRecordMapper against the by-name getters it replaced, over the same in-memory H2 query
+ * Run with ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ServerRecordMapperBenchmark {
+    private static final String SELECT =
+        "SELECT s.*, h.status, h.current_players, h.tps FROM servers s LEFT JOIN server_health h ON s.server_id = h.server_id";
+
+    @Param({"1", "50", "500"})
+    public int rows;
+
+    private Connection conn;
+    private PreparedStatement select;
+    private final ServerRecordMapper mapper = new ServerRecordMapper();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:mapper_bench;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS server_health");
+            stmt.execute("DROP TABLE IF EXISTS servers");
+            stmt.execute("CREATE TABLE servers (server_id VARCHAR(64) PRIMARY KEY, server_name VARCHAR(64), " +
+                "host VARCHAR(255), port INT, server_type VARCHAR(32), is_hub BOOLEAN, hub_priority INT, " +
+                "max_players INT, motd VARCHAR(255), registered_at TIMESTAMP, last_updated TIMESTAMP)");
+            stmt.execute("CREATE TABLE server_health (server_id VARCHAR(64) PRIMARY KEY, status VARCHAR(16), " +
+                "current_players INT, tps DOUBLE)");
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement server = conn.prepareStatement("INSERT INTO servers VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement health = conn.prepareStatement("INSERT INTO server_health VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                String id = "server-" + i;
+                server.setString(1, id);
+                server.setString(2, "Server " + i);
+                server.setString(3, "10.0.0." + (i % 250));
+                server.setInt(4, 5520 + i);
+                server.setString(5, i % 10 == 0 ? "HUB" : "GAME");
+                server.setBoolean(6, i % 10 == 0);
+                server.setInt(7, i % 10);
+                server.setInt(8, 100);
+                server.setString(9, "Welcome to server " + i);
+                server.setTimestamp(10, now);
+                server.setTimestamp(11, now);
+                server.addBatch();
+
+                health.setString(1, id);
+                health.setString(2, "ONLINE");
+                health.setInt(3, i % 100);
+                health.setDouble(4, 20.0);
+                health.addBatch();
+            }
+            server.executeBatch();
+            health.executeBatch();
+        }
+
+        select = conn.prepareStatement(SELECT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        select.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public void columnMapper(Blackhole bh) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(mapper.map(rs));
+            }
+        }
+    }
+
+    @Benchmark
+    public void byName(Blackhole bh) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(mapByName(rs));
+            }
+        }
+    }
+
+    /**
+     * The lookup ServerRegistryManager did before ServerRecordMapper
+     */
+    private static ServerRecord mapByName(ResultSet rs) throws SQLException {
+        ServerRecord server = new ServerRecord();
+        server.setServerId(rs.getString("server_id"));
+        server.setServerName(rs.getString("server_name"));
+        server.setHost(rs.getString("host"));
+        server.setPort(rs.getInt("port"));
+        server.setServerType(rs.getString("server_type"));
+        server.setHub(rs.getBoolean("is_hub"));
+        server.setHubPriority(rs.getInt("hub_priority"));
+        server.setMaxPlayers(rs.getInt("max_players"));
+        server.setMotd(rs.getString("motd"));
+        server.setRegisteredAt(rs.getTimestamp("registered_at"));
+        server.setLastUpdated(rs.getTimestamp("last_updated"));
+
+        String statusStr = rs.getString("status");
+        if (statusStr != null) {
+            server.setStatus(ServerRecord.ServerStatus.valueOf(statusStr));
+            server.setCurrentPlayers(rs.getInt("current_players"));
+            server.setTps(rs.getDouble("tps"));
+        } else {
+            server.setStatus(ServerRecord.ServerStatus.OFFLINE);
+            server.setCurrentPlayers(0);
+        }
+        return server;
+    }
+}
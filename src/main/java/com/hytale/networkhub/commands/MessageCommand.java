@@ -6,12 +6,15 @@ import com.hytale.networkhub.managers.PlayerTrackingManager;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.Message;
 
+import java.util.List;
 import com.hypixel.hytale.logger.HytaleLogger;
 
 /**
  * Command to send direct messages to players across the network
  */
 public class MessageCommand {
+    private static final int MAX_COMPLETIONS = 20;
+
     private final HytaleLogger logger;
     private final MessagingManager messagingManager;
     private final PlayerTrackingManager trackingManager;
@@ -58,4 +61,14 @@ public class MessageCommand {
 
         return true;
     }
+
+    /**
+     * Complete the recipient from everyone online on the network
+     * Not called yet: MessageCommand is not registered, and the registered CommandBase commands
+     * do not receive arguments or offer a completion hook so far
+     */
+    public List<String> complete(String[] args) {
+        if (args.length != 1) return List.of();
+        return trackingManager.completePlayerNames(args[0], MAX_COMPLETIONS);
+    }
 }
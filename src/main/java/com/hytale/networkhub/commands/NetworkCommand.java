@@ -14,22 +14,29 @@ import com.hypixel.hytale.logger.HytaleLogger;
  * Routes to various subcommands for network management
  */
 public class NetworkCommand {
+    private static final int HISTORY_POINTS = 30;
+
     private final HytaleLogger logger;
     private final NetworkConfig config;
     private final ServerRegistryManager registryManager;
     private final HubManager hubManager;
     private final TransferManager transferManager;
     private final PlayerTrackingManager trackingManager;
+    private final LeaderElection leaderElection;
+    private final HealthHistory healthHistory;
 
     public NetworkCommand(HytaleLogger logger, NetworkConfig config, ServerRegistryManager registryManager,
                          HubManager hubManager, TransferManager transferManager,
-                         PlayerTrackingManager trackingManager) {
+                         PlayerTrackingManager trackingManager, LeaderElection leaderElection,
+                         HealthHistory healthHistory) {
         this.logger = logger;
         this.config = config;
         this.registryManager = registryManager;
         this.hubManager = hubManager;
         this.transferManager = transferManager;
         this.trackingManager = trackingManager;
+        this.leaderElection = leaderElection;
+        this.healthHistory = healthHistory;
     }
 
     /**
@@ -80,6 +87,12 @@ public class NetworkCommand {
             case "reload":
                 return reloadConfig(player);
 
+            case "leader":
+                return showLeader(player);
+
+            case "history":
+                return showHistory(player, args);
+
             default:
                 player.sendMessage(Message.raw("§cUnknown subcommand: " + subcommand));
                 sendHelp(player);
@@ -103,6 +116,8 @@ public class NetworkCommand {
         player.sendMessage(Message.raw("§e/network register <id> <host> <port> <name> §7- Register server"));
         player.sendMessage(Message.raw("§e/network unregister <server> §7- Unregister server"));
         player.sendMessage(Message.raw("§e/network reload §7- Reload config"));
+        player.sendMessage(Message.raw("§e/network leader §7- Show the maintenance leader"));
+        player.sendMessage(Message.raw("§e/network history <server> [10s|1m|1h] §7- Graph server health"));
         player.sendMessage(Message.raw("§8§m-------------------------"));
     }
 
@@ -324,6 +339,84 @@ public class NetworkCommand {
         return true;
     }
 
+    /**
+     * Show which server holds the maintenance lease
+     */
+    private boolean showLeader(Player player) {
+        LeaderElection.Lease lease = leaderElection.getLease();
+
+        if (lease == null) {
+            player.sendMessage(Message.raw(config.getConfig().leader.enabled
+                ? "§7Nobody holds the maintenance lease right now"
+                : "§7Leader election is disabled, every server runs maintenance"));
+            return true;
+        }
+
+        String expires = lease.getExpiresInMillis() >= 0
+            ? String.format(" §7(expires in %.1fs)", lease.getExpiresInMillis() / 1000.0) : "";
+        player.sendMessage(Message.raw(String.format("§aMaintenance leader: §e%s §7- fencing token §f%d%s",
+            lease.getHolder(), lease.getFencingToken(), expires)));
+        return true;
+    }
+
+    /**
+     * Graph a server's recent players, TPS, memory and CPU at the chosen resolution
+     */
+    private boolean showHistory(Player player, String[] args) {
+        if (args.length < 2) {
+            player.sendMessage(Message.raw("§cUsage: /network history <server> [10s|1m|1h]"));
+            return true;
+        }
+
+        String serverId = args[1];
+        HealthHistory.Resolution resolution = args.length > 2
+            ? HealthHistory.Resolution.parse(args[2]) : HealthHistory.Resolution.ONE_MINUTE;
+        if (resolution == null) {
+            player.sendMessage(Message.raw("§cResolution must be 10s, 1m or 1h"));
+            return true;
+        }
+
+        List<HealthHistory.Point> points = healthHistory.getSeries(serverId, resolution, HISTORY_POINTS);
+        if (points.isEmpty()) {
+            player.sendMessage(Message.raw("§7No history for " + serverId));
+            return true;
+        }
+
+        int peakPlayers = 0;
+        double lowestTps = Double.MAX_VALUE;
+        long peakMemory = 0;
+        double peakCpu = 0;
+        double peakTickP99 = 0;
+        double gcPause = 0;
+        int gcCount = 0;
+        for (HealthHistory.Point point : points) {
+            peakPlayers = Math.max(peakPlayers, point.getPlayersMax());
+            lowestTps = Math.min(lowestTps, point.getTpsMin());
+            peakMemory = Math.max(peakMemory, point.getMemoryUsedMax());
+            peakCpu = Math.max(peakCpu, point.getCpuMax());
+            peakTickP99 = Math.max(peakTickP99, point.getTickP99Max());
+            gcPause += point.getGcPauseTotal();
+            gcCount += point.getGcCount();
+        }
+
+        player.sendMessage(Message.raw("§8§m-------------------------"));
+        player.sendMessage(Message.raw(String.format("§6§l%s §7(last %d × %ds)", serverId, points.size(), resolution.getSeconds())));
+        player.sendMessage(Message.raw(String.format("§7Players §a%s §7peak §f%d",
+            HealthHistory.sparkline(points, HealthHistory.Point::getPlayersAvg), peakPlayers)));
+        player.sendMessage(Message.raw(String.format("§7TPS     §a%s §7low §f%.1f",
+            HealthHistory.sparkline(points, HealthHistory.Point::getTpsAvg), lowestTps)));
+        player.sendMessage(Message.raw(String.format("§7Memory  §a%s §7peak §f%dMB",
+            HealthHistory.sparkline(points, HealthHistory.Point::getMemoryUsedAvg), peakMemory)));
+        player.sendMessage(Message.raw(String.format("§7CPU     §a%s §7peak §f%.0f%%",
+            HealthHistory.sparkline(points, HealthHistory.Point::getCpuAvg), peakCpu)));
+        player.sendMessage(Message.raw(String.format("§7Tick p99 §a%s §7peak §f%.1fms",
+            HealthHistory.sparkline(points, HealthHistory.Point::getTickP99Max), peakTickP99)));
+        player.sendMessage(Message.raw(String.format("§7GC      §a%s §7total §f%.0fms §7in §f%d",
+            HealthHistory.sparkline(points, HealthHistory.Point::getGcPauseTotal), gcPause, gcCount)));
+        player.sendMessage(Message.raw("§8§m-------------------------"));
+        return true;
+    }
+
     /**
      * Reload configuration
      */
@@ -7,6 +7,7 @@ import com.hytale.networkhub.managers.ServerRegistryManager;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.Message;
 
+import java.util.Map;
 import com.hypixel.hytale.logger.HytaleLogger;
 
 /**
@@ -169,8 +170,18 @@ public class QueueCommand {
      * List all queues the player is in
      */
     private boolean listQueues(Player player) {
-        // TODO: Implement when QueueManager has getAllPlayerQueues method
-        player.sendMessage(Message.raw("§7Queue list coming soon..."));
+        Map<String, Integer> queues = queueManager.getPlayerQueues(player.getPlayerRef().getUuid());
+        if (queues.isEmpty()) {
+            player.sendMessage(Message.raw("§7You are not in any queue"));
+            return true;
+        }
+
+        player.sendMessage(Message.raw("§8§m-------------------------"));
+        player.sendMessage(Message.raw("§6§lYour Queues"));
+        player.sendMessage(Message.raw("§8§m-------------------------"));
+        queues.forEach((serverId, position) -> player.sendMessage(Message.raw(String.format("§e%s §7- position §f#%d §7of %d",
+            serverId, position, queueManager.getQueueSize(serverId)))));
+        player.sendMessage(Message.raw("§8§m-------------------------"));
         return true;
     }
 }
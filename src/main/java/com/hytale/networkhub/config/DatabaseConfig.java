@@ -63,31 +63,85 @@ public class DatabaseConfig {
     }
 
     public String getJdbcUrl() {
+        if (isEmbedded()) {
+            return getEmbeddedJdbcUrl();
+        }
+        return buildJdbcUrl(config.host, config.port, config.database);
+    }
+
+    /**
+     * Whether the database runs in-process instead of on an external server
+     */
+    public boolean isEmbedded() {
+        return "h2".equalsIgnoreCase(config.type);
+    }
+
+    /**
+     * JDBC URL for the read replica, using the primary database name when none is set
+     */
+    public String getReplicaJdbcUrl() {
+        ReadReplicaConfig replica = config.readReplica;
+        String database = replica.database == null || replica.database.isEmpty() ? config.database : replica.database;
+        return buildJdbcUrl(replica.host, replica.port, database);
+    }
+
+    /**
+     * Location of the local write journal, next to this config file
+     */
+    public Path getJournalFile() {
+        return configFile.resolveSibling(config.journal.fileName);
+    }
+
+    /**
+     * H2 in MySQL mode, so the MySQL schema and statements run unchanged
+     * File databases live next to this config file; the plugin closes the pool itself on shutdown
+     */
+    private String getEmbeddedJdbcUrl() {
+        String options = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        if (config.embedded.inMemory) {
+            return "jdbc:h2:mem:networkhub;DB_CLOSE_DELAY=-1" + options;
+        }
+        Path file = configFile.resolveSibling(config.embedded.fileName).toAbsolutePath();
+        return "jdbc:h2:file:" + file + ";DB_CLOSE_ON_EXIT=FALSE" + options;
+    }
+
+    private String buildJdbcUrl(String host, int port, String database) {
         String type = config.type.toLowerCase();
         switch (type) {
             case "postgresql":
             case "postgres":
                 return String.format("jdbc:postgresql://%s:%d/%s",
-                    config.host, config.port, config.database);
+                    host, port, database);
             case "mysql":
                 return String.format("jdbc:mysql://%s:%d/%s?useSSL=false&allowPublicKeyRetrieval=true",
-                    config.host, config.port, config.database);
+                    host, port, database);
             case "mariadb":
                 return String.format("jdbc:mariadb://%s:%d/%s",
-                    config.host, config.port, config.database);
+                    host, port, database);
             default:
                 throw new IllegalArgumentException("Unsupported database type: " + config.type);
         }
     }
 
     public static class Config {
-        public String type = "POSTGRESQL";  // POSTGRESQL, MYSQL, MARIADB
+        public String type = "POSTGRESQL";  // POSTGRESQL, MYSQL, MARIADB, H2 (embedded)
         public String host = "localhost";
         public int port = 5432;
         public String database = "hytale_network";
         public String username = "hytale_user";
         public String password = "CHANGE_ME";
         public ConnectionPoolConfig connectionPool = new ConnectionPoolConfig();
+        public WriteBehindConfig writeBehind = new WriteBehindConfig();
+        public ExecutorConfig executor = new ExecutorConfig();
+        public ReadReplicaConfig readReplica = new ReadReplicaConfig();
+        public CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+        public JournalConfig journal = new JournalConfig();
+        public EmbeddedConfig embedded = new EmbeddedConfig();
+        public PartitioningConfig partitioning = new PartitioningConfig();
+        public RetentionConfig retention = new RetentionConfig();
+        public boolean metricsEnabled = true;
+        public int metricsExportIntervalSeconds = 60;  // 0 disables the db-metrics.prom export
+        public int streamFetchSize = 500;  // Rows per round trip for streamed queries
     }
 
     public static class ConnectionPoolConfig {
@@ -97,4 +151,64 @@ public class DatabaseConfig {
         public int idleTimeout = 600000;
         public int maxLifetime = 1800000;
     }
+
+    public static class WriteBehindConfig {
+        public boolean enabled = true;
+        public int maxBatchSize = 200;
+        public int flushIntervalMs = 50;
+        public int bufferCapacity = 10000;
+        public int enqueueTimeoutMs = 100;
+    }
+
+    public static class ExecutorConfig {
+        public String mode = "FIXED";  // FIXED, VIRTUAL (Java 21+)
+        public int fixedThreads = 4;
+    }
+
+    public static class ReadReplicaConfig {
+        public boolean enabled = false;
+        public String host = "localhost";
+        public int port = 5432;
+        public String database = "";  // Empty uses the primary database name
+        public String username = "";  // Empty uses the primary credentials
+        public String password = "";
+        public int maxLagSeconds = 5;
+        public int lagCheckIntervalSeconds = 10;
+        public ConnectionPoolConfig connectionPool = new ConnectionPoolConfig();
+    }
+
+    public static class CircuitBreakerConfig {
+        public boolean enabled = true;
+        public int failureThreshold = 5;
+        public int slowCallThresholdMs = 2000;  // 0 disables tripping on slow statements
+        public int slowCallCount = 10;
+        public int openDurationMs = 10000;
+    }
+
+    public static class JournalConfig {
+        public boolean enabled = true;
+        public String fileName = "write-journal.dat";
+        public int initialSizeMb = 16;
+        public int maxSizeMb = 512;
+        public int replayBatchSize = 500;
+        public int replayIntervalMs = 1000;
+    }
+
+    public static class EmbeddedConfig {
+        public boolean inMemory = false;        // Nothing survives a restart, for tests and benchmarks
+        public String fileName = "networkhub";  // H2 adds .mv.db, stored next to this config
+    }
+
+    public static class PartitioningConfig {
+        public boolean enabled = true;   // Only applies to chat_messages and transfer_history created from now on
+        public int precreateDays = 7;
+        public boolean defaultPartition = true;  // PostgreSQL catch-all; without it expired partitions detach CONCURRENTLY (PG14+)
+    }
+
+    public static class RetentionConfig {
+        public int chunkSize = 1000;             // Rows per DELETE
+        public int timeBudgetMs = 2000;          // Per cleanup run, across all tables
+        public int chunkPauseMs = 25;            // Pause between chunks so live writes get the locks
+        public int backlogCountLimit = 100000;   // Cap on the remaining-rows count
+    }
 }
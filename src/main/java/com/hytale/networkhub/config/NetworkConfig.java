@@ -66,7 +66,10 @@ public class NetworkConfig {
     public static class Config {
         public ServerConfig server = new ServerConfig();
         public HeartbeatConfig heartbeat = new HeartbeatConfig();
+        public LeaderConfig leader = new LeaderConfig();
+        public HistoryConfig history = new HistoryConfig();
         public FallbackConfig fallback = new FallbackConfig();
+        public LocationConfig location = new LocationConfig();
         public TeleporterConfig teleporter = new TeleporterConfig();
         public QueueConfig queue = new QueueConfig();
         public MessagingConfig messaging = new MessagingConfig();
@@ -89,7 +92,30 @@ public class NetworkConfig {
     public static class HeartbeatConfig {
         public int intervalSeconds = 10;
         public int timeoutSeconds = 30;
-        public int failureThreshold = 3;
+        public int persistIntervalSeconds = 60;
+        public int detectionIntervalSeconds = 2;
+        public double phiDegradedThreshold = 3.0;
+        public double phiOfflineThreshold = 8.0;
+        public int arrivalWindowSize = 100;
+        public long minStdDeviationMillis = 1000;
+        public long acceptablePauseMillis = 2000;
+    }
+
+    public static class LeaderConfig {
+        public boolean enabled = true;
+        public int leaseSeconds = 15;
+    }
+
+    public static class HistoryConfig {
+        public boolean enabled = true;
+        public boolean persist = true;
+        public int minuteRetentionDays = 7;
+        public int hourRetentionDays = 365;
+    }
+
+    public static class LocationConfig {
+        public int flushIntervalSeconds = 30;
+        public double minMoveDistance = 8.0;
     }
 
     public static class FallbackConfig {
@@ -106,6 +132,7 @@ public class NetworkConfig {
     public static class QueueConfig {
         public boolean enabled = true;
         public int maxQueueSize = 100;
+        public boolean distributed = true;
         public int processIntervalSeconds = 2;
         public boolean autoJoinOnFull = true;
         public boolean notifyPosition = true;
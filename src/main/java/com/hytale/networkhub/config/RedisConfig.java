@@ -77,6 +77,7 @@ public class RedisConfig {
             "staffChat", "hytale:chat:staff",
             "directMessage", "hytale:chat:dm",
             "serverStatus", "hytale:server:status",
+            "heartbeat", "hytale:server:heartbeat",
             "transferRequest", "hytale:transfer:request",
             "announcement", "hytale:announcement",
             "moderation", "hytale:moderation"
@@ -0,0 +1,35 @@
+package com.hytale.networkhub.database;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executor wrapper that caps how many tasks run at once
+ * Used with virtual threads so blocking JDBC work never exceeds the connection pool size
+ */
+public class BoundedExecutor implements Executor {
+    private final Executor delegate;
+    private final Semaphore permits;
+
+    public BoundedExecutor(Executor delegate, int maxConcurrent) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        delegate.execute(() -> {
+            // Uninterruptible so a submitted task always runs and its future always completes
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+}
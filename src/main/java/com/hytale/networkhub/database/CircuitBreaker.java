@@ -0,0 +1,101 @@
+package com.hytale.networkhub.database;
+
+import com.hytale.networkhub.config.DatabaseConfig;
+
+import java.util.concurrent.TimeUnit;
+import com.hypixel.hytale.logger.HytaleLogger;
+import java.util.logging.Level;
+
+/**
+ * Circuit breaker for the primary database
+ * Opens after consecutive connection failures or consecutive slow statements, then lets a single
+ * probe through every openDurationMs until one succeeds
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final HytaleLogger logger;
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final int slowCallThreshold;
+    private final long openDurationNanos;
+
+    private boolean open = false;
+    private long lastProbeNanos;
+    private int consecutiveFailures = 0;
+    private int consecutiveSlowCalls = 0;
+    private long tripCount = 0;
+
+    public CircuitBreaker(HytaleLogger logger, DatabaseConfig.CircuitBreakerConfig config) {
+        this.logger = logger;
+        this.failureThreshold = Math.max(1, config.failureThreshold);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.slowCallThresholdMs);
+        this.slowCallThreshold = Math.max(1, config.slowCallCount);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(config.openDurationMs);
+    }
+
+    /**
+     * Whether a statement may run now
+     * While open, returns true once per openDurationMs so the caller can probe the database
+     */
+    public synchronized boolean allowRequest() {
+        if (!open) return true;
+
+        long now = System.nanoTime();
+        if (now - lastProbeNanos >= openDurationNanos) {
+            lastProbeNanos = now;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void recordSuccess(long elapsedNanos) {
+        consecutiveFailures = 0;
+
+        if (slowCallNanos > 0 && elapsedNanos > slowCallNanos) {
+            if (++consecutiveSlowCalls >= slowCallThreshold) {
+                trip(consecutiveSlowCalls + " consecutive statements slower than " +
+                    TimeUnit.NANOSECONDS.toMillis(slowCallNanos) + "ms");
+            }
+            return;
+        }
+
+        consecutiveSlowCalls = 0;
+        if (open) {
+            open = false;
+            logger.at(Level.INFO).log("Database circuit breaker closed, database is healthy again");
+        }
+    }
+
+    public synchronized void recordFailure() {
+        if (++consecutiveFailures >= failureThreshold) {
+            trip(consecutiveFailures + " consecutive failures");
+        }
+    }
+
+    public synchronized State getState() {
+        if (!open) return State.CLOSED;
+        return System.nanoTime() - lastProbeNanos >= openDurationNanos ? State.HALF_OPEN : State.OPEN;
+    }
+
+    public synchronized boolean isClosed() {
+        return !open;
+    }
+
+    public synchronized long getTripCount() {
+        return tripCount;
+    }
+
+    private void trip(String reason) {
+        lastProbeNanos = System.nanoTime();
+        if (!open) {
+            open = true;
+            tripCount++;
+            logger.at(Level.WARNING).log("Database circuit breaker opened (" + reason + "), failing fast until it recovers");
+        }
+    }
+}
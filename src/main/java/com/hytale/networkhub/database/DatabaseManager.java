@@ -4,23 +4,57 @@ import com.hytale.networkhub.config.DatabaseConfig;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
+import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.lang.reflect.Method;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import com.hypixel.hytale.logger.HytaleLogger;
 import java.util.logging.Level;
 
 public class DatabaseManager {
+    /** Rows per multi-row statement, well below every driver's placeholder limit */
+    private static final int MULTI_ROW_CHUNK = 1000;
+
     private final HytaleLogger logger;
     private final DatabaseConfig config;
     private HikariDataSource dataSource;
     private final Executor asyncExecutor;
+    private final boolean virtualThreads;
+    private final QueryMetrics queryMetrics;
+    private final StatementRegistry statements;
+    private WriteBehindBuffer writeBehind;
+    private ReadReplicaRouter replicaRouter;
+    private CircuitBreaker circuitBreaker;
+    private WriteJournal journal;
 
     public DatabaseManager(HytaleLogger logger, DatabaseConfig config) {
         this.logger = logger;
         this.config = config;
-        this.asyncExecutor = Executors.newFixedThreadPool(4);
+        this.queryMetrics = new QueryMetrics(config.getConfig().metricsEnabled);
+        this.statements = new StatementRegistry(SqlDialect.fromType(config.getConfig().type));
+
+        DatabaseConfig.ExecutorConfig executorConfig = config.getConfig().executor;
+        ExecutorService virtualExecutor = "VIRTUAL".equalsIgnoreCase(executorConfig.mode)
+            ? createVirtualThreadExecutor()
+            : null;
+
+        if (virtualExecutor != null) {
+            // One virtual thread per task, but never more in flight than the pool has connections
+            this.asyncExecutor = new BoundedExecutor(virtualExecutor, config.getConfig().connectionPool.maximumPoolSize);
+            this.virtualThreads = true;
+            logger.at(Level.INFO).log("Database executor: virtual threads (max concurrency " +
+                config.getConfig().connectionPool.maximumPoolSize + ")");
+        } else {
+            this.asyncExecutor = Executors.newFixedThreadPool(executorConfig.fixedThreads);
+            this.virtualThreads = false;
+        }
     }
 
     public void initialize() throws SQLException {
@@ -35,31 +69,112 @@ public class DatabaseManager {
             throw new SQLException("Failed to load JDBC driver: " + driverClass, e);
         }
 
+        HikariConfig hikariConfig = buildHikariConfig(driverClass, config.getJdbcUrl(),
+            config.getConfig().username, config.getConfig().password, config.getConfig().connectionPool);
+        dataSource = new HikariDataSource(hikariConfig);
+
+        // Test connection
+        try (Connection conn = dataSource.getConnection()) {
+            logger.at(Level.INFO).log("Database connection successful: " + config.getConfig().type);
+        }
+
+        DatabaseConfig.CircuitBreakerConfig breakerConfig = config.getConfig().circuitBreaker;
+        if (breakerConfig != null && breakerConfig.enabled) {
+            circuitBreaker = new CircuitBreaker(logger, breakerConfig);
+        }
+
+        DatabaseConfig.JournalConfig journalConfig = config.getConfig().journal;
+        if (journalConfig != null && journalConfig.enabled) {
+            initializeJournal(journalConfig);
+        }
+
+        DatabaseConfig.ReadReplicaConfig replicaConfig = config.getConfig().readReplica;
+        if (replicaConfig != null && replicaConfig.enabled) {
+            if (isEmbedded()) {
+                logger.at(Level.WARNING).log("Read replicas are not supported with the embedded database, ignoring readReplica");
+            } else {
+                initializeReplica(driverClass, replicaConfig);
+            }
+        }
+
+        DatabaseConfig.WriteBehindConfig writeBehindConfig = config.getConfig().writeBehind;
+        if (writeBehindConfig != null && writeBehindConfig.enabled) {
+            writeBehind = new WriteBehindBuffer(logger, this, writeBehindConfig);
+            writeBehind.start();
+        }
+    }
+
+    private void initializeJournal(DatabaseConfig.JournalConfig journalConfig) {
+        WriteJournal opened = new WriteJournal(logger, config.getJournalFile(),
+            journalConfig.initialSizeMb * 1024L * 1024L, journalConfig.maxSizeMb * 1024L * 1024L);
+        try {
+            opened.open();
+            journal = opened;
+            logger.at(Level.INFO).log("Write journal ready: " + config.getJournalFile());
+        } catch (IOException e) {
+            // Writes during an outage are dropped, as without a journal
+            logger.at(Level.SEVERE).log("Failed to open write journal: " + e.getMessage());
+        }
+    }
+
+    private void initializeReplica(String driverClass, DatabaseConfig.ReadReplicaConfig replicaConfig) {
+        boolean sharedCredentials = replicaConfig.username == null || replicaConfig.username.isEmpty();
+        HikariConfig hikariConfig = buildHikariConfig(driverClass, config.getReplicaJdbcUrl(),
+            sharedCredentials ? config.getConfig().username : replicaConfig.username,
+            sharedCredentials ? config.getConfig().password : replicaConfig.password,
+            replicaConfig.connectionPool);
+        hikariConfig.setReadOnly(true);
+
+        try {
+            replicaRouter = new ReadReplicaRouter(logger, new HikariDataSource(hikariConfig), getDialect(),
+                replicaConfig.maxLagSeconds);
+            replicaRouter.checkLag();
+            logger.at(Level.INFO).log("Read replica configured: " + replicaConfig.host + ":" + replicaConfig.port +
+                (replicaRouter.isAvailable() ? "" : " (currently unavailable, reads use primary)"));
+        } catch (Exception e) {
+            // Reads stay on the primary
+            logger.at(Level.WARNING).log("Failed to initialize read replica: " + e.getMessage());
+            replicaRouter = null;
+        }
+    }
+
+    private HikariConfig buildHikariConfig(String driverClass, String jdbcUrl, String username, String password,
+                                           DatabaseConfig.ConnectionPoolConfig poolConfig) {
         HikariConfig hikariConfig = new HikariConfig();
-        hikariConfig.setJdbcUrl(config.getJdbcUrl());
-        hikariConfig.setUsername(config.getConfig().username);
-        hikariConfig.setPassword(config.getConfig().password);
+        hikariConfig.setJdbcUrl(jdbcUrl);
+        hikariConfig.setUsername(username);
+        hikariConfig.setPassword(password);
         hikariConfig.setDriverClassName(driverClass);
 
-        DatabaseConfig.ConnectionPoolConfig poolConfig = config.getConfig().connectionPool;
         hikariConfig.setMinimumIdle(poolConfig.minimumIdle);
         hikariConfig.setMaximumPoolSize(poolConfig.maximumPoolSize);
         hikariConfig.setConnectionTimeout(poolConfig.connectionTimeout);
         hikariConfig.setIdleTimeout(poolConfig.idleTimeout);
         hikariConfig.setMaxLifetime(poolConfig.maxLifetime);
 
+        // H2 rejects connection settings it does not know, and runs in-process anyway
+        if (isEmbedded()) {
+            return hikariConfig;
+        }
+
         // Performance optimizations
         hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
         hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
         hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
         hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
 
-        dataSource = new HikariDataSource(hikariConfig);
-
-        // Test connection
-        try (Connection conn = dataSource.getConnection()) {
-            logger.at(Level.INFO).log("Database connection successful: " + config.getConfig().type);
+        // Let the driver collapse JDBC batches into multi-row statements
+        if (isMySQL()) {
+            hikariConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+            // Honour setFetchSize with a server-side cursor instead of reading the whole result
+            hikariConfig.addDataSourceProperty("useCursorFetch", "true");
+        } else {
+            hikariConfig.addDataSourceProperty("reWriteBatchedInserts", "true");
+            // Switch named statements to server-side prepared statements on first use
+            hikariConfig.addDataSourceProperty("prepareThreshold", "1");
         }
+
+        return hikariConfig;
     }
 
     public Connection getConnection() throws SQLException {
@@ -70,18 +185,57 @@ public class DatabaseManager {
     }
 
     public int executeUpdate(String sql, Object... params) {
+        return executeUpdate(queryMetrics.resolveCaller(), sql, null, params);
+    }
+
+    /**
+     * Execute a named statement with its declared parameter types
+     */
+    public int executeUpdate(SqlStatement statement, Object... params) {
+        return executeUpdate(queryMetrics.resolveCaller(), statements.sql(statement), statement.getParamTypes(), params);
+    }
+
+    /**
+     * Execute a named statement now or not at all: it is never journaled, so it cannot be replayed later
+     * For writes that are only valid when they run, such as taking a lease; returns 0 if the database is unavailable
+     */
+    public int executeUpdateUnjournaled(SqlStatement statement, Object... params) {
+        return executeUpdate(queryMetrics.resolveCaller(), statements.sql(statement), statement.getParamTypes(), params, false);
+    }
+
+    int executeUpdate(String caller, String sql, SqlType[] types, Object[] params) {
+        return executeUpdate(caller, sql, types, params, true);
+    }
+
+    int executeUpdate(String caller, String sql, SqlType[] types, Object[] params, boolean journaled) {
+        if (!journaled) {
+            // Nothing to keep in order behind the journal, only the breaker decides
+            if (circuitBreaker != null && !circuitBreaker.allowRequest()) return 0;
+        } else if (!acquireWritePermit()) {
+            divertWrite(caller, sql, types, params);
+            return 0;
+        }
+
         int maxRetries = 3;
         int retryDelay = 100; // milliseconds
 
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+            long startNanos = System.nanoTime();
+            try (Connection conn = getConnection()) {
+                long acquiredNanos = System.nanoTime();
 
-                setParameters(stmt, params);
-                return stmt.executeUpdate();
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    setParameters(stmt, types, params);
+                    int rows = stmt.executeUpdate();
+                    long finishedNanos = System.nanoTime();
+                    queryMetrics.recordSuccess(caller, sql, acquiredNanos - startNanos, finishedNanos - acquiredNanos, rows);
+                    recordBreakerSuccess(finishedNanos - startNanos);
+                    return rows;
+                }
             } catch (SQLException e) {
                 // Check for deadlock error (MySQL/MariaDB error code 1213)
                 if (e.getErrorCode() == 1213 && attempt < maxRetries) {
+                    queryMetrics.recordDeadlockRetry(caller, sql);
                     logger.at(Level.WARNING).log("Deadlock detected, retrying (attempt " + attempt + "/" + maxRetries + ")");
                     try {
                         Thread.sleep(retryDelay * attempt); // Exponential backoff
@@ -92,6 +246,20 @@ public class DatabaseManager {
                     continue;
                 }
 
+                queryMetrics.recordError(caller, sql);
+
+                // Database unreachable, keep the write for replay instead of losing it
+                if (isOutage(e)) {
+                    recordBreakerFailure();
+                    if (!journaled) {
+                        logger.at(Level.WARNING).log("Database unavailable, dropped unjournaled write: " + e.getMessage());
+                        return 0;
+                    }
+                    logger.at(Level.WARNING).log("Database unavailable, journaling write: " + e.getMessage());
+                    divertWrite(caller, sql, types, params);
+                    return 0;
+                }
+
                 logger.at(Level.SEVERE).log("Failed to execute update: " + e.getMessage());
                 return 0;
             }
@@ -102,20 +270,66 @@ public class DatabaseManager {
     }
 
     public <T> T executeQuery(String sql, ResultSetHandler<T> handler, Object... params) {
+        return executeQuery(queryMetrics.resolveCaller(), sql, null, handler, true, params);
+    }
+
+    /**
+     * Run a named query with its declared parameter types
+     * Served by the read replica when one is configured and within its lag limit
+     */
+    public <T> T executeQuery(SqlStatement statement, ResultSetHandler<T> handler, Object... params) {
+        return executeQuery(queryMetrics.resolveCaller(), statements.sql(statement), statement.getParamTypes(), handler, true, params);
+    }
+
+    /**
+     * Run a named query on the primary, for reads that must see the caller's own recent writes
+     */
+    public <T> T executeQueryOnPrimary(SqlStatement statement, ResultSetHandler<T> handler, Object... params) {
+        return executeQuery(queryMetrics.resolveCaller(), statements.sql(statement), statement.getParamTypes(), handler, false, params);
+    }
+
+    <T> T executeQuery(String caller, String sql, SqlType[] types, ResultSetHandler<T> handler,
+                       boolean allowReplica, Object[] params) {
         int maxRetries = 3;
         int retryDelay = 100; // milliseconds
 
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+            long startNanos = System.nanoTime();
+            Connection replicaConn = allowReplica && replicaRouter != null ? replicaRouter.getConnection() : null;
 
-                setParameters(stmt, params);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    return handler.handle(rs);
+            // Fail fast instead of waiting on a primary that is known to be down
+            if (replicaConn == null && circuitBreaker != null && !circuitBreaker.allowRequest()) {
+                queryMetrics.recordError(caller, sql);
+                return null;
+            }
+
+            try (Connection conn = replicaConn != null ? replicaConn : getConnection()) {
+                long acquiredNanos = System.nanoTime();
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    setParameters(stmt, types, params);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        T result = handler.handle(rs);
+                        long finishedNanos = System.nanoTime();
+                        // Rows affected only applies to updates
+                        queryMetrics.recordSuccess(caller, sql, acquiredNanos - startNanos,
+                            finishedNanos - acquiredNanos, 0);
+                        if (replicaConn == null) {
+                            recordBreakerSuccess(finishedNanos - startNanos);
+                        }
+                        return result;
+                    }
                 }
             } catch (SQLException e) {
+                // Lost the replica mid-query, retry on the primary
+                if (replicaConn != null && isConnectionError(e) && attempt < maxRetries) {
+                    replicaRouter.markUnavailable("query failed: " + e.getMessage());
+                    continue;
+                }
+
                 // Check for deadlock error (MySQL/MariaDB error code 1213)
                 if (e.getErrorCode() == 1213 && attempt < maxRetries) {
+                    queryMetrics.recordDeadlockRetry(caller, sql);
                     logger.at(Level.WARNING).log("Deadlock detected in query, retrying (attempt " + attempt + "/" + maxRetries + ")");
                     try {
                         Thread.sleep(retryDelay * attempt); // Exponential backoff
@@ -126,6 +340,10 @@ public class DatabaseManager {
                     continue;
                 }
 
+                queryMetrics.recordError(caller, sql);
+                if (replicaConn == null && isOutage(e)) {
+                    recordBreakerFailure();
+                }
                 logger.at(Level.SEVERE).log("Failed to execute query: " + e.getMessage());
                 return null;
             }
@@ -135,23 +353,543 @@ public class DatabaseManager {
         return null;
     }
 
+    /**
+     * Stream rows to a callback using the configured fetch size
+     */
+    public long streamQuery(SqlStatement statement, RowCallback callback, Object... params) {
+        return streamQuery(statement, config.getConfig().streamFetchSize, callback, params);
+    }
+
+    /**
+     * Stream rows to a callback without materializing the result set
+     * Rows are fetched fetchSize at a time; return false from the callback to stop early
+     * Returns the number of rows handed to the callback, or -1 if the query failed
+     */
+    public long streamQuery(SqlStatement statement, int fetchSize, RowCallback callback, Object... params) {
+        String caller = queryMetrics.resolveCaller();
+        String sql = statements.sql(statement);
+
+        long startNanos = System.nanoTime();
+        Connection replicaConn = replicaRouter != null ? replicaRouter.getConnection() : null;
+        if (replicaConn == null && circuitBreaker != null && !circuitBreaker.allowRequest()) {
+            queryMetrics.recordError(caller, sql);
+            return -1;
+        }
+
+        try (Connection conn = replicaConn != null ? replicaConn : getConnection()) {
+            long acquiredNanos = System.nanoTime();
+            boolean autoCommit = conn.getAutoCommit();
+            // PostgreSQL only uses a cursor for the fetch size inside a transaction
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(fetchSize);
+                setParameters(stmt, statement.getParamTypes(), params);
+
+                long rows = 0;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    // Callback time is not database time, so only the first fetch counts as a slow call
+                    if (replicaConn == null) {
+                        recordBreakerSuccess(System.nanoTime() - startNanos);
+                    }
+                    while (rs.next()) {
+                        rows++;
+                        if (!callback.onRow(rs)) break;
+                    }
+                }
+                conn.commit();
+
+                queryMetrics.recordSuccess(caller, sql, acquiredNanos - startNanos, System.nanoTime() - acquiredNanos, 0);
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            queryMetrics.recordError(caller, sql);
+            if (replicaConn != null && isConnectionError(e)) {
+                replicaRouter.markUnavailable("query failed: " + e.getMessage());
+            } else if (replicaConn == null && isOutage(e)) {
+                recordBreakerFailure();
+            }
+            logger.at(Level.SEVERE).log("Failed to stream query: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Fetch one keyset page of at most pageSize rows
+     * The statement's last parameter is the row limit; keyParams fill the ones before it,
+     * normally the sort key of the last row on the previous page
+     */
+    public <T> KeysetPage<T> queryPage(SqlStatement statement, int pageSize, RowMapper<T> mapper, Object... keyParams) {
+        Object[] params = Arrays.copyOf(keyParams, keyParams.length + 1);
+        // One extra row tells us whether another page follows
+        params[keyParams.length] = pageSize + 1;
+
+        List<T> rows = executeQuery(statement, rs -> {
+            List<T> list = new ArrayList<>(pageSize + 1);
+            while (rs.next()) {
+                list.add(mapper.map(rs));
+            }
+            return list;
+        }, params);
+
+        if (rows == null) {
+            return KeysetPage.empty();
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        return new KeysetPage<>(hasMore ? rows.subList(0, pageSize) : rows, hasMore);
+    }
+
+    /**
+     * Execute the same statement once per parameter set as a single JDBC batch
+     * Falls back to executing each statement on its own if the batch fails
+     */
+    public int[] executeBatch(String sql, List<Object[]> paramSets) {
+        return executeBatch(queryMetrics.resolveCaller(), sql, null, paramSets);
+    }
+
+    public int[] executeBatch(SqlStatement statement, List<Object[]> paramSets) {
+        return executeBatch(queryMetrics.resolveCaller(), statements.sql(statement), statement.getParamTypes(), paramSets);
+    }
+
+    int[] executeBatch(String caller, String sql, SqlType[] types, List<Object[]> paramSets) {
+        int[] results = new int[paramSets.size()];
+        if (paramSets.isEmpty()) {
+            return results;
+        }
+
+        if (!acquireWritePermit()) {
+            paramSets.forEach(params -> divertWrite(caller, sql, types, params));
+            return results;
+        }
+
+        try {
+            return runBatch(caller, sql, types, paramSets);
+        } catch (SQLException e) {
+            queryMetrics.recordError(caller, sql);
+
+            if (isOutage(e)) {
+                recordBreakerFailure();
+                logger.at(Level.WARNING).log("Database unavailable, journaling batch of " + paramSets.size() + ": " + e.getMessage());
+                paramSets.forEach(params -> divertWrite(caller, sql, types, params));
+                return results;
+            }
+
+            logger.at(Level.WARNING).log("Batch of " + paramSets.size() + " failed, retrying individually: " + e.getMessage());
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            results[i] = executeUpdate(caller, sql, types, paramSets.get(i));
+        }
+        return results;
+    }
+
+    /**
+     * Run a JDBC batch in one transaction, rolling back and rethrowing on failure
+     */
+    private int[] runBatch(String caller, String sql, SqlType[] types, List<Object[]> paramSets) throws SQLException {
+        int[] results = new int[paramSets.size()];
+
+        long startNanos = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            long acquiredNanos = System.nanoTime();
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Object[] params : paramSets) {
+                    setParameters(stmt, types, params);
+                    stmt.addBatch();
+                }
+
+                int[] counts = stmt.executeBatch();
+                conn.commit();
+
+                int totalRows = 0;
+                for (int i = 0; i < results.length && i < counts.length; i++) {
+                    // Rewritten batches report SUCCESS_NO_INFO instead of a row count
+                    results[i] = counts[i] == Statement.SUCCESS_NO_INFO ? 1 : Math.max(counts[i], 0);
+                    totalRows += results[i];
+                }
+
+                long finishedNanos = System.nanoTime();
+                queryMetrics.recordSuccess(caller, sql, acquiredNanos - startNanos,
+                    finishedNanos - acquiredNanos, totalRows, paramSets.size());
+                recordBreakerSuccess((finishedNanos - acquiredNanos) / paramSets.size() + (acquiredNanos - startNanos));
+                return results;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Write many rows with one statement per chunk; the named statement and its parameter types describe one row
+     * On PostgreSQL each column is bound as one array for an UNNEST, so the statement text never changes;
+     * elsewhere its VALUES tuple is repeated once per row
+     * Not journaled while the database is down, callers are expected to send fresher rows on their next cycle
+     * Returns the number of rows sent successfully
+     */
+    public int executeMultiRow(SqlStatement statement, List<Object[]> rows) {
+        if (rows.isEmpty()) return 0;
+
+        String caller = queryMetrics.resolveCaller();
+        String sql = statements.sql(statement);
+        if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+            logger.at(Level.FINE).log("Database unavailable, skipped multi-row write of " + rows.size() + " from " + caller);
+            return 0;
+        }
+
+        boolean unnest = statements.getDialect() == SqlDialect.POSTGRESQL;
+        SqlType[] types = statement.getParamTypes();
+        int sent = 0;
+        for (int from = 0; from < rows.size(); from += MULTI_ROW_CHUNK) {
+            List<Object[]> chunk = rows.subList(from, Math.min(rows.size(), from + MULTI_ROW_CHUNK));
+
+            long startNanos = System.nanoTime();
+            try (Connection conn = getConnection()) {
+                long acquiredNanos = System.nanoTime();
+
+                try (PreparedStatement stmt = conn.prepareStatement(unnest ? sql : repeatValues(sql, chunk.size()))) {
+                    if (unnest) {
+                        bindColumns(stmt, types, chunk);
+                    } else {
+                        bindRows(stmt, types, chunk);
+                    }
+                    int rowsWritten = stmt.executeUpdate();
+                    long finishedNanos = System.nanoTime();
+                    // Metrics are kept against the one-row text, not each expanded length
+                    queryMetrics.recordSuccess(caller, sql, acquiredNanos - startNanos, finishedNanos - acquiredNanos, rowsWritten);
+                    recordBreakerSuccess(finishedNanos - startNanos);
+                    sent += chunk.size();
+                }
+            } catch (SQLException e) {
+                queryMetrics.recordError(caller, sql);
+                if (isOutage(e)) {
+                    recordBreakerFailure();
+                }
+                logger.at(Level.WARNING).log("Multi-row write of " + chunk.size() + " from " + caller + " failed: " + e.getMessage());
+                return sent;
+            }
+        }
+        return sent;
+    }
+
+    private void bindColumns(PreparedStatement stmt, SqlType[] types, List<Object[]> rows) throws SQLException {
+        for (int column = 0; column < types.length; column++) {
+            Object[] values = new Object[rows.size()];
+            for (int row = 0; row < values.length; row++) {
+                values[row] = rows.get(row)[column];
+            }
+            types[column].bindArray(stmt, column + 1, values);
+        }
+    }
+
+    private void bindRows(PreparedStatement stmt, SqlType[] types, List<Object[]> rows) throws SQLException {
+        int index = 1;
+        for (Object[] params : rows) {
+            if (params.length != types.length) {
+                throw new SQLException("Expected " + types.length + " parameters per row but got " + params.length);
+            }
+            for (int i = 0; i < params.length; i++) {
+                types[i].bind(stmt, index++, params[i]);
+            }
+        }
+    }
+
+    /**
+     * Repeat the VALUES tuple of a one-row INSERT so it inserts the given number of rows
+     */
+    private static String repeatValues(String sql, int rows) {
+        int open = sql.indexOf('(', sql.indexOf("VALUES"));
+        int close = open;
+        for (int depth = 0; close < sql.length(); close++) {
+            char c = sql.charAt(close);
+            if (c == '(') depth++;
+            if (c == ')' && --depth == 0) break;
+        }
+
+        String tuple = sql.substring(open, close + 1);
+        StringBuilder expanded = new StringBuilder(sql.length() + (tuple.length() + 2) * (rows - 1));
+        expanded.append(sql, 0, close + 1);
+        for (int i = 1; i < rows; i++) {
+            expanded.append(", ").append(tuple);
+        }
+        expanded.append(sql, close + 1, sql.length());
+        return expanded.toString();
+    }
+
+    /**
+     * Replay one batch of journaled writes in their original order
+     * Returns the number of writes replayed, 0 while the journal is empty or the database is still down
+     */
+    public int replayJournal() {
+        if (journal == null || !journal.hasPending()) return 0;
+        if (circuitBreaker != null && !circuitBreaker.allowRequest()) return 0;
+
+        List<WriteJournal.Entry> entries = journal.read(config.getConfig().journal.replayBatchSize);
+        int replayed = 0;
+        int start = 0;
+
+        while (start < entries.size()) {
+            // Consecutive writes of the same statement go out as one JDBC batch
+            WriteJournal.Entry first = entries.get(start);
+            int end = start + 1;
+            while (end < entries.size() && entries.get(end).getSql().equals(first.getSql())
+                && Arrays.equals(entries.get(end).getTypes(), first.getTypes())) {
+                end++;
+            }
+
+            List<WriteJournal.Entry> group = entries.subList(start, end);
+            int done = replayGroup(group);
+            if (done > 0) {
+                journal.commit(group.get(done - 1).getEndOffset());
+                replayed += done;
+            }
+            if (done < group.size()) break;
+            start = end;
+        }
+
+        return replayed;
+    }
+
+    /**
+     * Replay writes of one statement, returning how many leading entries are done
+     * Writes the database rejects outright are dropped so they cannot block the journal
+     */
+    private int replayGroup(List<WriteJournal.Entry> group) {
+        WriteJournal.Entry first = group.get(0);
+        List<Object[]> paramSets = new ArrayList<>(group.size());
+        group.forEach(entry -> paramSets.add(entry.getParams()));
+
+        try {
+            runBatch(first.getCaller(), first.getSql(), first.getTypes(), paramSets);
+            return group.size();
+        } catch (SQLException e) {
+            if (!handleReplayFailure(e)) return 0;
+            logger.at(Level.WARNING).log("Journal batch of " + group.size() + " failed, replaying individually: " + e.getMessage());
+        }
+
+        for (int i = 0; i < group.size(); i++) {
+            WriteJournal.Entry entry = group.get(i);
+            try {
+                runBatch(entry.getCaller(), entry.getSql(), entry.getTypes(), List.<Object[]>of(entry.getParams()));
+            } catch (SQLException e) {
+                if (!handleReplayFailure(e)) return i;
+                queryMetrics.recordError(entry.getCaller(), entry.getSql());
+                logger.at(Level.SEVERE).log("Dropping journaled write rejected by the database (" + entry.getCaller() + "): " + e.getMessage());
+            }
+        }
+        return group.size();
+    }
+
+    /**
+     * Returns false if replay should stop and try again later
+     */
+    private boolean handleReplayFailure(SQLException e) {
+        if (isOutage(e)) {
+            recordBreakerFailure();
+            return false;
+        }
+        // Deadlocks and serialization failures succeed on a later attempt
+        return !isTransient(e);
+    }
+
+    /**
+     * Flush journaled writes to disk
+     */
+    public void syncJournal() {
+        if (journal != null) {
+            journal.force();
+        }
+    }
+
+    public int getJournalPendingCount() {
+        return journal != null ? journal.getPendingCount() : 0;
+    }
+
+    /**
+     * Circuit breaker for the primary, or null when disabled
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
     public CompletableFuture<Integer> executeUpdateAsync(String sql, Object... params) {
-        return CompletableFuture.supplyAsync(() -> executeUpdate(sql, params), asyncExecutor);
+        return executeUpdateAsync(queryMetrics.resolveCaller(), sql, null, params);
+    }
+
+    public CompletableFuture<Integer> executeUpdateAsync(SqlStatement statement, Object... params) {
+        return executeUpdateAsync(queryMetrics.resolveCaller(), statements.sql(statement), statement.getParamTypes(), params);
+    }
+
+    private CompletableFuture<Integer> executeUpdateAsync(String caller, String sql, SqlType[] types, Object[] params) {
+        // The caller is resolved by the public overloads, before the statement leaves the calling thread
+
+        // Go straight to the journal rather than queueing behind a database that is down
+        if (isJournalingWrites()) {
+            divertWrite(caller, sql, types, params);
+            return CompletableFuture.completedFuture(0);
+        }
+
+        if (writeBehind != null) {
+            return writeBehind.submit(caller, sql, types, params);
+        }
+        return CompletableFuture.supplyAsync(() -> executeUpdate(caller, sql, types, params), asyncExecutor);
     }
 
     public <T> CompletableFuture<T> executeQueryAsync(String sql, ResultSetHandler<T> handler, Object... params) {
-        return CompletableFuture.supplyAsync(() -> executeQuery(sql, handler, params), asyncExecutor);
+        String caller = queryMetrics.resolveCaller();
+        return CompletableFuture.supplyAsync(() -> executeQuery(caller, sql, null, handler, true, params), asyncExecutor);
+    }
+
+    public <T> CompletableFuture<T> executeQueryAsync(SqlStatement statement, ResultSetHandler<T> handler, Object... params) {
+        String caller = queryMetrics.resolveCaller();
+        String sql = statements.sql(statement);
+        return CompletableFuture.supplyAsync(() -> executeQuery(caller, sql, statement.getParamTypes(), handler, true, params), asyncExecutor);
+    }
+
+    /**
+     * Per-statement latency, throughput and error metrics
+     */
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Executor for blocking work that is not a single statement, such as player transfers
+     * Uses the bounded virtual-thread executor when enabled, otherwise the common pool
+     */
+    public Executor getBlockingExecutor() {
+        return virtualThreads ? asyncExecutor : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Read replica router, or null when no replica is configured
+     */
+    public ReadReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
     }
 
-    private void setParameters(PreparedStatement stmt, Object... params) throws SQLException {
+    private ExecutorService createVirtualThreadExecutor() {
+        // Looked up reflectively so the plugin still builds and runs on Java 17
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.at(Level.WARNING).log("Virtual threads require Java 21+, falling back to fixed thread pool");
+            return null;
+        }
+    }
+
+    /**
+     * Bind parameters with their declared types, or setObject for raw SQL without types
+     */
+    private void setParameters(PreparedStatement stmt, SqlType[] types, Object[] params) throws SQLException {
+        if (types == null) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            return;
+        }
+
+        if (params.length != types.length) {
+            throw new SQLException("Expected " + types.length + " parameters but got " + params.length);
+        }
         for (int i = 0; i < params.length; i++) {
-            stmt.setObject(i + 1, params[i]);
+            types[i].bind(stmt, i + 1, params[i]);
+        }
+    }
+
+    /**
+     * Writes wait behind older journaled writes so everything reaches the database in order
+     */
+    private boolean acquireWritePermit() {
+        if (journal != null && journal.hasPending()) return false;
+        return circuitBreaker == null || circuitBreaker.allowRequest();
+    }
+
+    /**
+     * Whether new writes currently go to the journal instead of the database
+     */
+    boolean isJournalingWrites() {
+        return journal != null && (journal.hasPending() || (circuitBreaker != null && !circuitBreaker.isClosed()));
+    }
+
+    /**
+     * Keep a write that cannot reach the database in the journal for later replay
+     * Older writes still in the write-behind buffer reach the journal through its flush thread,
+     * so while there are any this one is queued behind them instead of overtaking them
+     */
+    private void divertWrite(String caller, String sql, SqlType[] types, Object[] params) {
+        if (writeBehind != null && writeBehind.hasPending() && !writeBehind.isFlushThread() &&
+            writeBehind.offer(caller, sql, types, params) != null) return;
+        if (journal != null && journal.append(caller, sql, types, params)) return;
+
+        queryMetrics.recordError(caller, sql);
+        logger.at(Level.WARNING).log("Database unavailable, dropped write from " + caller);
+    }
+
+    private void recordBreakerSuccess(long elapsedNanos) {
+        if (circuitBreaker != null) {
+            circuitBreaker.recordSuccess(elapsedNanos);
+        }
+    }
+
+    private void recordBreakerFailure() {
+        if (circuitBreaker != null) {
+            circuitBreaker.recordFailure();
         }
     }
 
+    /**
+     * Failures that mean the database is unreachable rather than rejecting the statement
+     */
+    private static boolean isOutage(SQLException e) {
+        if (e instanceof SQLTransientConnectionException || e instanceof SQLRecoverableException
+            || e instanceof SQLNonTransientConnectionException || e instanceof SQLTimeoutException) {
+            return true;
+        }
+        // 57P covers PostgreSQL shutdown and crash states
+        return isConnectionError(e) || (e.getSQLState() != null && e.getSQLState().startsWith("57P"));
+    }
+
+    private static boolean isTransient(SQLException e) {
+        // SQLState class 40 covers deadlocks and serialization failures
+        return e instanceof SQLTransientException || e.getErrorCode() == 1213
+            || (e.getSQLState() != null && e.getSQLState().startsWith("40"));
+    }
+
+    private static boolean isConnectionError(SQLException e) {
+        // SQLState class 08 covers connection failures
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
+    public SqlDialect getDialect() {
+        return statements.getDialect();
+    }
+
     public boolean isMySQL() {
-        String dbType = config.getConfig().type.toLowerCase();
-        return dbType.equals("mysql") || dbType.equals("mariadb");
+        return getDialect() == SqlDialect.MYSQL;
+    }
+
+    /**
+     * Whether the database runs in-process (H2) rather than on an external server
+     */
+    public boolean isEmbedded() {
+        return getDialect() == SqlDialect.H2;
     }
 
     private String getDriverClass(String dbType) {
@@ -164,12 +902,32 @@ public class DatabaseManager {
                 return "com.mysql.cj.jdbc.Driver";
             case "mariadb":
                 return "org.mariadb.jdbc.Driver";
+            case "h2":
+                return "org.h2.Driver";
             default:
                 throw new IllegalArgumentException("Unsupported database type: " + dbType);
         }
     }
 
     public void close() {
+        if (writeBehind != null) {
+            writeBehind.close();
+            writeBehind = null;
+        }
+
+        if (replicaRouter != null) {
+            replicaRouter.close();
+            replicaRouter = null;
+        }
+
+        if (journal != null) {
+            if (journal.hasPending()) {
+                logger.at(Level.INFO).log(journal.getPendingCount() + " journaled writes will be replayed on next start");
+            }
+            journal.close();
+            journal = null;
+        }
+
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             logger.at(Level.INFO).log("Database connection pool closed");
@@ -180,4 +938,17 @@ public class DatabaseManager {
     public interface ResultSetHandler<T> {
         T handle(ResultSet rs) throws SQLException;
     }
+
+    @FunctionalInterface
+    public interface RowCallback {
+        /**
+         * Handle the current row; return false to stop reading
+         */
+        boolean onRow(ResultSet rs) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
 }
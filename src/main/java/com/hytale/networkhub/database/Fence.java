@@ -0,0 +1,55 @@
+package com.hytale.networkhub.database;
+
+import java.util.Arrays;
+
+/**
+ * The maintenance leader's fencing token, as leader-only writes carry it to the database
+ * A fenced statement ends in CONDITION, which only holds while network_leases still has this token,
+ * so a leader that stalled past its lease writes nothing once the next one has taken over
+ */
+public final class Fence {
+    /** Appended to a fenced statement's WHERE clause and bound by append(); a token of 0 fences nothing */
+    public static final String CONDITION =
+        "(? = 0 OR EXISTS (SELECT 1 FROM network_leases WHERE lease_name = ? AND token = ?))";
+
+    /** For servers that run maintenance without an election */
+    public static final Fence NONE = new Fence(null, 0);
+
+    private final String leaseName;
+    private final long token;
+
+    public Fence(String leaseName, long token) {
+        this.leaseName = leaseName;
+        this.token = token;
+    }
+
+    public String getLeaseName() { return leaseName; }
+    public long getToken() { return token; }
+
+    /**
+     * A statement's own parameters followed by the ones CONDITION takes
+     */
+    public Object[] append(Object... params) {
+        Object[] all = Arrays.copyOf(params, params.length + 3);
+        all[params.length] = token;
+        all[params.length + 1] = leaseName;
+        all[params.length + 2] = token;
+        return all;
+    }
+
+    /**
+     * Whether the token is still current, for statements such as DDL that cannot carry the condition
+     * Only a check right before the statement, not part of it
+     */
+    public boolean isCurrent(DatabaseManager dbManager) {
+        if (token == 0) return true;
+
+        Boolean current = dbManager.executeQueryOnPrimary(SqlStatement.FENCE_SELECT, rs -> rs.next(), leaseName, token);
+        return Boolean.TRUE.equals(current);
+    }
+
+    @Override
+    public String toString() {
+        return token == 0 ? "Fence{none}" : "Fence{" + leaseName + "=" + token + "}";
+    }
+}
@@ -0,0 +1,38 @@
+package com.hytale.networkhub.database;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query
+ * The next page starts after the sort key of getLast()
+ */
+public class KeysetPage<T> {
+    private final List<T> items;
+    private final boolean hasMore;
+
+    public KeysetPage(List<T> items, boolean hasMore) {
+        this.items = items;
+        this.hasMore = hasMore;
+    }
+
+    public static <T> KeysetPage<T> empty() {
+        return new KeysetPage<>(Collections.emptyList(), false);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+}
@@ -0,0 +1,314 @@
+package com.hytale.networkhub.database;
+
+import com.hytale.networkhub.config.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import com.hypixel.hytale.logger.HytaleLogger;
+import java.util.logging.Level;
+
+/**
+ * Maintains daily range partitions for the append-only history tables
+ * Partitions are created precreateDays ahead, and retention drops whole partitions instead of deleting rows
+ * PostgreSQL uses declarative partitions named table_pYYYYMMDD plus an optional table_default catch-all,
+ * MySQL/MariaDB use RANGE partitions named pYYYYMMDD in front of a pmax catch-all
+ * On PostgreSQL a partition is detached before it is dropped, so the drop never locks the parent;
+ * the detach runs CONCURRENTLY on PG14+ when there is no default partition, which PostgreSQL requires
+ */
+public class PartitionManager {
+    public static final String CHAT_MESSAGES = "chat_messages";
+    public static final String TRANSFER_HISTORY = "transfer_history";
+
+    private static final String[] TABLES = {CHAT_MESSAGES, TRANSFER_HISTORY};
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String MYSQL_CATCH_ALL = "pmax";
+    /** A detach that needs the parent's ACCESS EXCLUSIVE lock gives up after this rather than queue live writes behind it */
+    private static final int DETACH_LOCK_TIMEOUT_MS = 2000;
+
+    private static final String POSTGRES_PARTITIONED_SQL =
+        "SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid " +
+        "WHERE c.relname = ? AND pg_table_is_visible(c.oid)";
+    private static final String POSTGRES_DEFAULT_PARTITION_SQL =
+        "SELECT d.relname FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid " +
+        "JOIN pg_class d ON d.oid = pt.partdefid WHERE c.relname = ? AND pg_table_is_visible(c.oid)";
+    private static final String POSTGRES_PARTITIONS_SQL =
+        "SELECT c.relname FROM pg_inherits i " +
+        "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent " +
+        "WHERE p.relname = ? AND pg_table_is_visible(p.oid)";
+    private static final String MYSQL_PARTITIONS_SQL =
+        "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL";
+
+    private final HytaleLogger logger;
+    private final DatabaseManager dbManager;
+    private final DatabaseConfig.PartitioningConfig config;
+    private final Map<String, Boolean> partitioned = new ConcurrentHashMap<>();
+    private final Map<String, String> defaultPartitions = new ConcurrentHashMap<>();
+    private volatile boolean concurrentDetach = false;
+
+    public PartitionManager(HytaleLogger logger, DatabaseManager dbManager, DatabaseConfig.PartitioningConfig config) {
+        this.logger = logger;
+        this.dbManager = dbManager;
+        this.config = config;
+    }
+
+    /**
+     * Detect which history tables are partitioned and create their upcoming partitions
+     */
+    public void initialize() {
+        if (!isSupported()) return;
+
+        try (Connection conn = dbManager.getConnection()) {
+            concurrentDetach = !dbManager.isMySQL() && conn.getMetaData().getDatabaseMajorVersion() >= 14;
+            for (String table : TABLES) {
+                boolean isPartitioned = detectPartitioned(conn, table);
+                partitioned.put(table, isPartitioned);
+                if (!isPartitioned) {
+                    logger.at(Level.INFO).log(table + " is not partitioned, retention falls back to row deletes");
+                } else if (!dbManager.isMySQL()) {
+                    String defaultPartition = detectDefaultPartition(conn, table);
+                    if (defaultPartition != null) {
+                        defaultPartitions.put(table, defaultPartition);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.at(Level.WARNING).log("Failed to inspect table partitioning: " + e.getMessage());
+            return;
+        }
+
+        createUpcomingPartitions();
+    }
+
+    /**
+     * Whether new history tables should be created partitioned
+     * H2 has no range partitioning, so embedded mode always uses plain tables
+     */
+    public static boolean isEnabled(DatabaseConfig config) {
+        return config.getConfig().partitioning.enabled && !config.isEmbedded();
+    }
+
+    public boolean isPartitioned(String table) {
+        return partitioned.getOrDefault(table, false);
+    }
+
+    /**
+     * The PostgreSQL catch-all partition of a table, or null if it has none
+     * Its rows have no daily partition to drop, so retention deletes them in chunks like an unpartitioned table
+     */
+    public String getDefaultPartition(String table) {
+        return defaultPartitions.get(table);
+    }
+
+    /**
+     * Make sure every partitioned table has a partition for today through precreateDays ahead
+     * Returns the number of partitions created
+     */
+    public int createUpcomingPartitions() {
+        LocalDate today = LocalDate.now();
+        LocalDate last = today.plusDays(Math.max(1, config.precreateDays));
+        int created = 0;
+
+        for (String table : TABLES) {
+            if (!isPartitioned(table)) continue;
+
+            try (Connection conn = dbManager.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                created += dbManager.isMySQL()
+                    ? createMySQLPartitions(conn, stmt, table, today, last)
+                    : createPostgresPartitions(conn, stmt, table, today, last);
+            } catch (SQLException e) {
+                // Another server may be adding the same partitions
+                logger.at(Level.WARNING).log("Failed to create partitions for " + table + ": " + e.getMessage());
+            }
+        }
+
+        if (created > 0) {
+            logger.at(Level.INFO).log("Created " + created + " table partitions");
+        }
+        return created;
+    }
+
+    /**
+     * Drop every partition whose rows are all older than retentionDays
+     * DDL cannot carry the fence condition, so the fence is checked right before each statement instead
+     * Rows in a PostgreSQL default partition are left to the retention engine, see getDefaultPartition
+     * Returns the number of partitions dropped
+     */
+    public int dropExpiredPartitions(String table, int retentionDays, Fence fence) {
+        if (!isPartitioned(table)) return 0;
+
+        // A partition for day D holds rows before D + 1
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            Map<LocalDate, String> partitions = listPartitions(conn, table);
+            List<String> expired = new ArrayList<>();
+            partitions.forEach((day, name) -> {
+                if (!day.plusDays(1).isAfter(cutoff)) {
+                    expired.add(name);
+                }
+            });
+
+            int dropped = 0;
+            if (dbManager.isMySQL()) {
+                if (!expired.isEmpty() && fence.isCurrent(dbManager)) {
+                    stmt.execute("ALTER TABLE " + table + " DROP PARTITION " + String.join(", ", expired));
+                    dropped = expired.size();
+                }
+            } else {
+                for (String name : expired) {
+                    if (!fence.isCurrent(dbManager)) break;
+                    if (!detachPostgresPartition(conn, stmt, table, name)) break;
+                    stmt.execute("DROP TABLE IF EXISTS " + name);
+                    dropped++;
+                }
+            }
+
+            if (dropped > 0) {
+                logger.at(Level.INFO).log("Dropped " + dropped + " expired partitions from " + table);
+            }
+            return dropped;
+        } catch (SQLException e) {
+            logger.at(Level.WARNING).log("Failed to drop expired partitions from " + table + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Detach a partition so dropping it only locks the partition itself
+     * CONCURRENTLY must run outside a transaction; a detach it left pending, for example after a crash, is finalized
+     * Otherwise the detach takes the parent's ACCESS EXCLUSIVE lock in a transaction bounded by DETACH_LOCK_TIMEOUT_MS
+     * Returns false if the partition is still attached, so the remaining drops wait for the next run
+     */
+    private boolean detachPostgresPartition(Connection conn, Statement stmt, String table, String name) {
+        if (concurrentDetach && !defaultPartitions.containsKey(table)) {
+            try {
+                stmt.execute("ALTER TABLE " + table + " DETACH PARTITION " + name + " CONCURRENTLY");
+                return true;
+            } catch (SQLException e) {
+                try {
+                    stmt.execute("ALTER TABLE " + table + " DETACH PARTITION " + name + " FINALIZE");
+                    return true;
+                } catch (SQLException finalizeFailed) {
+                    logger.at(Level.WARNING).log("Failed to detach partition " + name + ": " + e.getMessage());
+                    return false;
+                }
+            }
+        }
+
+        try {
+            conn.setAutoCommit(false);
+            try {
+                stmt.execute("SET LOCAL lock_timeout = " + DETACH_LOCK_TIMEOUT_MS);
+                stmt.execute("ALTER TABLE " + table + " DETACH PARTITION " + name);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                logger.at(Level.WARNING).log("Failed to detach partition " + name + ", retrying next run: " + e.getMessage());
+                return false;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.at(Level.WARNING).log("Failed to detach partition " + name + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isSupported() {
+        return dbManager.getDialect() != SqlDialect.H2;
+    }
+
+    private boolean detectPartitioned(Connection conn, String table) throws SQLException {
+        String sql = dbManager.isMySQL() ? MYSQL_PARTITIONS_SQL : POSTGRES_PARTITIONED_SQL;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private String detectDefaultPartition(Connection conn, String table) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(POSTGRES_DEFAULT_PARTITION_SQL)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private int createPostgresPartitions(Connection conn, Statement stmt, String table, LocalDate from, LocalDate to)
+            throws SQLException {
+        Map<LocalDate, String> existing = listPartitions(conn, table);
+        int created = 0;
+
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (existing.containsKey(day)) continue;
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + table + "_p" + day.format(SUFFIX) +
+                " PARTITION OF " + table + " FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+            created++;
+        }
+        return created;
+    }
+
+    private int createMySQLPartitions(Connection conn, Statement stmt, String table, LocalDate from, LocalDate to)
+            throws SQLException {
+        TreeMap<LocalDate, String> existing = listPartitions(conn, table);
+        // Range partitions can only be split off the catch-all, so start after the newest one
+        LocalDate start = existing.isEmpty() ? from : existing.lastKey().plusDays(1);
+        if (start.isAfter(to)) return 0;
+
+        StringBuilder sql = new StringBuilder("ALTER TABLE ").append(table)
+            .append(" REORGANIZE PARTITION ").append(MYSQL_CATCH_ALL).append(" INTO (");
+        int created = 0;
+        for (LocalDate day = start; !day.isAfter(to); day = day.plusDays(1)) {
+            sql.append("PARTITION p").append(day.format(SUFFIX))
+                .append(" VALUES LESS THAN (UNIX_TIMESTAMP('").append(day.plusDays(1)).append(" 00:00:00')), ");
+            created++;
+        }
+        sql.append("PARTITION ").append(MYSQL_CATCH_ALL).append(" VALUES LESS THAN MAXVALUE)");
+
+        stmt.execute(sql.toString());
+        return created;
+    }
+
+    /**
+     * Dated partitions of a table keyed by day, skipping the catch-all partitions
+     */
+    private TreeMap<LocalDate, String> listPartitions(Connection conn, String table) throws SQLException {
+        boolean mysql = dbManager.isMySQL();
+        String prefix = mysql ? "p" : table + "_p";
+        TreeMap<LocalDate, String> partitions = new TreeMap<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(mysql ? MYSQL_PARTITIONS_SQL : POSTGRES_PARTITIONS_SQL)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    if (!name.startsWith(prefix)) continue;
+                    try {
+                        partitions.put(LocalDate.parse(name.substring(prefix.length()), SUFFIX), name);
+                    } catch (DateTimeParseException e) {
+                        // Not one of ours
+                    }
+                }
+            }
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,288 @@
+package com.hytale.networkhub.database;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per-statement latency and throughput metrics
+ * Statements are keyed by calling class and a normalized SQL fingerprint,
+ * so every manager's query shapes can be compared side by side
+ */
+public class QueryMetrics {
+    private static final String DATABASE_PACKAGE = "com.hytale.networkhub.database.";
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    private static final int MAX_CACHED_FINGERPRINTS = 2048;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final boolean enabled;
+    private final Map<String, StatementStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, String> fingerprintCache = new ConcurrentHashMap<>();
+
+    public QueryMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Find the first class on the stack outside the database package
+     * Must be called on the thread that issued the statement
+     */
+    public String resolveCaller() {
+        if (!enabled) return "unknown";
+
+        return STACK_WALKER.walk(frames -> frames
+            .map(StackWalker.StackFrame::getClassName)
+            .filter(name -> !name.startsWith(DATABASE_PACKAGE))
+            .findFirst()
+            .map(QueryMetrics::simpleName)
+            .orElse("unknown"));
+    }
+
+    public void recordSuccess(String caller, String sql, long acquireNanos, long executeNanos, int rows) {
+        recordSuccess(caller, sql, acquireNanos, executeNanos, rows, 1);
+    }
+
+    /**
+     * Record a successful execution covering one or more statements (a batch)
+     * Execution time is spread evenly over the statements in the histogram
+     */
+    public void recordSuccess(String caller, String sql, long acquireNanos, long executeNanos, int rows, int statements) {
+        if (!enabled) return;
+
+        StatementStats s = statsFor(caller, sql);
+        s.calls.add(statements);
+        s.rows.add(rows);
+        s.acquireNanos.add(acquireNanos);
+        s.executeNanos.add(executeNanos);
+        long perStatement = executeNanos / Math.max(1, statements);
+        s.histogram.record(perStatement, statements);
+        s.maxNanos.accumulateAndGet(perStatement, Math::max);
+    }
+
+    public void recordError(String caller, String sql) {
+        if (!enabled) return;
+        statsFor(caller, sql).errors.increment();
+    }
+
+    public void recordDeadlockRetry(String caller, String sql) {
+        if (!enabled) return;
+        statsFor(caller, sql).deadlockRetries.increment();
+    }
+
+    /**
+     * Snapshot of all statements, slowest total execution time first
+     */
+    public List<StatementSnapshot> getSnapshots() {
+        List<StatementSnapshot> snapshots = new ArrayList<>(stats.size());
+        stats.values().forEach(s -> snapshots.add(s.snapshot()));
+        snapshots.sort(Comparator.comparingLong(StatementSnapshot::getTotalExecuteNanos).reversed());
+        return snapshots;
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * Export all statement metrics in Prometheus text exposition format
+     */
+    public String exportPrometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# TYPE networkhub_db_calls_total counter\n");
+        out.append("# TYPE networkhub_db_errors_total counter\n");
+        out.append("# TYPE networkhub_db_deadlock_retries_total counter\n");
+        out.append("# TYPE networkhub_db_rows_total counter\n");
+        out.append("# TYPE networkhub_db_acquire_seconds_total counter\n");
+        out.append("# TYPE networkhub_db_execute_seconds summary\n");
+
+        for (StatementSnapshot s : getSnapshots()) {
+            String labels = "caller=\"" + escape(s.getCaller()) + "\",statement=\"" + escape(s.getFingerprint()) + "\"";
+            appendMetric(out, "networkhub_db_calls_total", labels, s.getCalls());
+            appendMetric(out, "networkhub_db_errors_total", labels, s.getErrors());
+            appendMetric(out, "networkhub_db_deadlock_retries_total", labels, s.getDeadlockRetries());
+            appendMetric(out, "networkhub_db_rows_total", labels, s.getRows());
+            appendMetric(out, "networkhub_db_acquire_seconds_total", labels, s.getTotalAcquireNanos() / 1e9);
+            // Every successful statement records one execute sample, so the summary's count is the call count
+            appendMetric(out, "networkhub_db_execute_seconds", labels + ",quantile=\"0.5\"", s.getP50Nanos() / 1e9);
+            appendMetric(out, "networkhub_db_execute_seconds", labels + ",quantile=\"0.99\"", s.getP99Nanos() / 1e9);
+            appendMetric(out, "networkhub_db_execute_seconds", labels + ",quantile=\"1\"", s.getMaxNanos() / 1e9);
+            appendMetric(out, "networkhub_db_execute_seconds_sum", labels, s.getTotalExecuteNanos() / 1e9);
+            appendMetric(out, "networkhub_db_execute_seconds_count", labels, s.getCalls());
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Normalize SQL so statements differing only in literals or whitespace share one entry
+     */
+    public String fingerprint(String sql) {
+        String cached = fingerprintCache.get(sql);
+        if (cached != null) return cached;
+
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+
+        if (fingerprintCache.size() < MAX_CACHED_FINGERPRINTS) {
+            fingerprintCache.put(sql, normalized);
+        }
+        return normalized;
+    }
+
+    private StatementStats statsFor(String caller, String sql) {
+        String fingerprint = fingerprint(sql);
+        return stats.computeIfAbsent(caller + "|" + fingerprint, k -> new StatementStats(caller, fingerprint));
+    }
+
+    private static void appendMetric(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String simpleName(String className) {
+        String name = className.substring(className.lastIndexOf('.') + 1);
+        int inner = name.indexOf('$');
+        return inner > 0 ? name.substring(0, inner) : name;
+    }
+
+    private static class StatementStats {
+        private final String caller;
+        private final String fingerprint;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder deadlockRetries = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAdder executeNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private StatementStats(String caller, String fingerprint) {
+            this.caller = caller;
+            this.fingerprint = fingerprint;
+        }
+
+        private StatementSnapshot snapshot() {
+            return new StatementSnapshot(caller, fingerprint, calls.sum(), errors.sum(), deadlockRetries.sum(),
+                rows.sum(), acquireNanos.sum(), executeNanos.sum(),
+                histogram.percentile(0.50), histogram.percentile(0.99), maxNanos.get());
+        }
+    }
+
+    /**
+     * Lock-free log-linear histogram of durations in nanoseconds
+     * Each power of two is split into four sub-buckets, giving roughly 19% resolution
+     */
+    private static class LatencyHistogram {
+        private static final int SUB_BUCKETS = 4;
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+        private void record(long nanos, int count) {
+            counts.addAndGet(bucketOf(Math.max(1, nanos)), count);
+        }
+
+        private long percentile(double quantile) {
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                total += counts.get(i);
+            }
+            if (total == 0) return 0;
+
+            long target = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return upperBoundOf(i);
+                }
+            }
+            return upperBoundOf(counts.length() - 1);
+        }
+
+        private static int bucketOf(long value) {
+            int msb = 63 - Long.numberOfLeadingZeros(value);
+            int sub = msb >= 2 ? (int) ((value >>> (msb - 2)) & (SUB_BUCKETS - 1)) : 0;
+            return msb * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBoundOf(int bucket) {
+            int msb = bucket / SUB_BUCKETS;
+            int sub = bucket % SUB_BUCKETS;
+            if (msb < 2) return 1L << (msb + 1);
+            return (1L << msb) + ((long) (sub + 1) << (msb - 2));
+        }
+    }
+
+    /**
+     * Point-in-time view of one statement's metrics
+     */
+    public static class StatementSnapshot {
+        private final String caller;
+        private final String fingerprint;
+        private final long calls;
+        private final long errors;
+        private final long deadlockRetries;
+        private final long rows;
+        private final long totalAcquireNanos;
+        private final long totalExecuteNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        public StatementSnapshot(String caller, String fingerprint, long calls, long errors, long deadlockRetries,
+                                 long rows, long totalAcquireNanos, long totalExecuteNanos,
+                                 long p50Nanos, long p99Nanos, long maxNanos) {
+            this.caller = caller;
+            this.fingerprint = fingerprint;
+            this.calls = calls;
+            this.errors = errors;
+            this.deadlockRetries = deadlockRetries;
+            this.rows = rows;
+            this.totalAcquireNanos = totalAcquireNanos;
+            this.totalExecuteNanos = totalExecuteNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getCaller() { return caller; }
+        public String getFingerprint() { return fingerprint; }
+        public long getCalls() { return calls; }
+        public long getErrors() { return errors; }
+        public long getDeadlockRetries() { return deadlockRetries; }
+        public long getRows() { return rows; }
+        public long getTotalAcquireNanos() { return totalAcquireNanos; }
+        public long getTotalExecuteNanos() { return totalExecuteNanos; }
+        public long getP50Nanos() { return p50Nanos; }
+        public long getP99Nanos() { return p99Nanos; }
+        public long getMaxNanos() { return maxNanos; }
+
+        public long getAverageAcquireNanos() {
+            return calls > 0 ? totalAcquireNanos / calls : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s [%s] calls=%d errors=%d retries=%d rows=%d p50=%.2fms p99=%.2fms max=%.2fms acquire=%.2fms",
+                caller, fingerprint, calls, errors, deadlockRetries, rows,
+                p50Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6, getAverageAcquireNanos() / 1e6);
+        }
+    }
+}
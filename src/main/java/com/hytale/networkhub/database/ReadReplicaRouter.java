@@ -0,0 +1,155 @@
+package com.hytale.networkhub.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+import com.hypixel.hytale.logger.HytaleLogger;
+import java.util.logging.Level;
+
+/**
+ * Routes reads to a read replica while it is reachable and within the allowed lag
+ * Callers fall back to the primary whenever no replica connection is handed out
+ */
+public class ReadReplicaRouter {
+    private static final String POSTGRES_LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())), 0)
+            END AS lag_seconds
+        """;
+
+    private final HytaleLogger logger;
+    private final HikariDataSource dataSource;
+    private final SqlDialect dialect;
+    private final long maxLagMillis;
+
+    private volatile boolean available = false;
+    private volatile long lagMillis = -1;
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryFallbacks = new LongAdder();
+
+    public ReadReplicaRouter(HytaleLogger logger, HikariDataSource dataSource, SqlDialect dialect, int maxLagSeconds) {
+        this.logger = logger;
+        this.dataSource = dataSource;
+        this.dialect = dialect;
+        this.maxLagMillis = maxLagSeconds * 1000L;
+    }
+
+    /**
+     * Connection to the replica, or null if reads should go to the primary
+     */
+    public Connection getConnection() {
+        if (!available) {
+            primaryFallbacks.increment();
+            return null;
+        }
+
+        try {
+            Connection conn = dataSource.getConnection();
+            replicaReads.increment();
+            return conn;
+        } catch (SQLException e) {
+            markUnavailable("connection failed: " + e.getMessage());
+            primaryFallbacks.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Measure replication lag and enable or disable routing accordingly
+     */
+    public void checkLag() {
+        long lag;
+        try (Connection conn = dataSource.getConnection()) {
+            lag = dialect == SqlDialect.MYSQL ? queryMySQLLag(conn) : queryPostgresLag(conn);
+        } catch (SQLException e) {
+            markUnavailable("lag check failed: " + e.getMessage());
+            return;
+        }
+
+        lagMillis = lag;
+        if (lag < 0) {
+            markUnavailable("replication is not running");
+        } else if (lag > maxLagMillis) {
+            markUnavailable("lag " + lag + "ms exceeds " + maxLagMillis + "ms");
+        } else if (!available) {
+            available = true;
+            logger.at(Level.INFO).log("Read replica available (lag " + lag + "ms), routing reads to replica");
+        }
+    }
+
+    public void markUnavailable(String reason) {
+        if (available) {
+            logger.at(Level.WARNING).log("Read replica unavailable (" + reason + "), routing reads to primary");
+        }
+        available = false;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    public long getPrimaryFallbacks() {
+        return primaryFallbacks.sum();
+    }
+
+    public void close() {
+        available = false;
+        if (!dataSource.isClosed()) {
+            dataSource.close();
+        }
+    }
+
+    private long queryPostgresLag(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(POSTGRES_LAG_SQL)) {
+            return rs.next() ? (long) (rs.getDouble("lag_seconds") * 1000) : 0;
+        }
+    }
+
+    private long queryMySQLLag(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = showReplicaStatus(stmt)) {
+            // Not configured as a replica, so it is always current
+            if (!rs.next()) return 0;
+
+            String column = hasColumn(rs, "Seconds_Behind_Source") ? "Seconds_Behind_Source" : "Seconds_Behind_Master";
+            long seconds = rs.getLong(column);
+            // NULL means the replication threads are stopped
+            return rs.wasNull() ? -1 : seconds * 1000;
+        }
+    }
+
+    private static ResultSet showReplicaStatus(Statement stmt) throws SQLException {
+        try {
+            return stmt.executeQuery("SHOW REPLICA STATUS");
+        } catch (SQLException e) {
+            // MariaDB and MySQL before 8.0.22
+            return stmt.executeQuery("SHOW SLAVE STATUS");
+        }
+    }
+
+    private static boolean hasColumn(ResultSet rs, String name) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            if (name.equalsIgnoreCase(meta.getColumnLabel(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
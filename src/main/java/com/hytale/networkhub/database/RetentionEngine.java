@@ -0,0 +1,236 @@
+package com.hytale.networkhub.database;
+
+import com.hytale.networkhub.config.DatabaseConfig;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import com.hypixel.hytale.logger.HytaleLogger;
+import java.util.logging.Level;
+
+/**
+ * Deletes expired rows in small primary-key chunks within a time budget per run
+ * Each chunk is its own short statement, with a pause in between so live writes are never held up
+ * A table's key cursor survives between runs, so a large backlog is worked off over several runs
+ * Deletes carry the maintenance leader's fence and are never journaled, a deposed leader's chunks delete nothing
+ */
+public class RetentionEngine {
+    private final HytaleLogger logger;
+    private final DatabaseManager dbManager;
+    private final DatabaseConfig.RetentionConfig config;
+    private final Map<String, Object> cursors = new ConcurrentHashMap<>();
+    private final Map<String, PolicySql> sqlByPolicy = new ConcurrentHashMap<>();
+    private int runCount = 0;
+
+    public RetentionEngine(HytaleLogger logger, DatabaseManager dbManager, DatabaseConfig.RetentionConfig config) {
+        this.logger = logger;
+        this.dbManager = dbManager;
+        this.config = config;
+    }
+
+    /**
+     * Purge the given policies until they are all caught up or the time budget runs out
+     * The starting policy rotates between runs so one large backlog cannot starve the others
+     */
+    public synchronized List<Result> run(List<Policy> policies, Fence fence) {
+        List<Result> results = new ArrayList<>();
+        if (policies.isEmpty()) return results;
+
+        // Deletes would only be journaled for later, and add load to a database that is struggling
+        CircuitBreaker breaker = dbManager.getCircuitBreaker();
+        if (breaker != null && !breaker.isClosed()) {
+            logger.at(Level.FINE).log("Skipping retention run, database circuit breaker is open");
+            return results;
+        }
+
+        String caller = dbManager.getQueryMetrics().resolveCaller();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.timeBudgetMs);
+        int start = runCount++ % policies.size();
+
+        for (int i = 0; i < policies.size(); i++) {
+            Policy policy = policies.get((start + i) % policies.size());
+            results.add(purge(caller, policy, fence, deadline));
+        }
+        return results;
+    }
+
+    private Result purge(String caller, Policy policy, Fence fence, long deadline) {
+        PolicySql sql = sqlByPolicy.computeIfAbsent(policy.getName(), name -> new PolicySql(policy, dbManager.getDialect()));
+        // Compared against the database clock, like the rows' own CURRENT_TIMESTAMP defaults
+        long maxAgeSeconds = policy.maxAge.getSeconds();
+        int chunkSize = Math.max(1, config.chunkSize);
+
+        long startNanos = System.nanoTime();
+        long deleted = 0;
+        int chunks = 0;
+        boolean caughtUp = false;
+
+        while (System.nanoTime() < deadline) {
+            Object cursor = cursors.get(policy.getName());
+            List<Object> keys = cursor == null
+                ? dbManager.executeQuery(caller, sql.firstChunk, null, RetentionEngine::readKeys, false,
+                    new Object[]{maxAgeSeconds, chunkSize})
+                : dbManager.executeQuery(caller, sql.nextChunk, null, RetentionEngine::readKeys, false,
+                    new Object[]{cursor, maxAgeSeconds, chunkSize});
+            if (keys == null) break;
+
+            if (!keys.isEmpty()) {
+                Object last = keys.get(keys.size() - 1);
+                deleted += dbManager.executeUpdate(caller, sql.deleteRange, null,
+                    fence.append(keys.get(0), last, maxAgeSeconds), false);
+                cursors.put(policy.getName(), last);
+                chunks++;
+            }
+
+            // A short chunk means the end of the key range, the next pass starts from the beginning
+            if (keys.size() < chunkSize) {
+                cursors.remove(policy.getName());
+                caughtUp = true;
+                break;
+            }
+
+            if (!pause()) break;
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long backlog = caughtUp ? 0 : countBacklog(caller, sql, maxAgeSeconds);
+        Result result = new Result(policy.getName(), deleted, chunks, elapsedNanos, backlog);
+
+        if (deleted > 0 || backlog != 0) {
+            logger.at(caughtUp ? Level.FINE : Level.INFO).log(result.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Expired rows still waiting, capped at backlogCountLimit so the count itself stays cheap
+     * Returns -1 if the count failed
+     */
+    private long countBacklog(String caller, PolicySql sql, long maxAgeSeconds) {
+        Long count = dbManager.executeQuery(caller, sql.backlog, null,
+            rs -> rs.next() ? rs.getLong("count") : 0L, true, new Object[]{maxAgeSeconds, config.backlogCountLimit});
+        return count != null ? count : -1;
+    }
+
+    private static List<Object> readKeys(ResultSet rs) throws SQLException {
+        List<Object> keys = new ArrayList<>();
+        while (rs.next()) {
+            keys.add(rs.getObject(1));
+        }
+        return keys;
+    }
+
+    private boolean pause() {
+        if (config.chunkPauseMs <= 0) return true;
+        try {
+            Thread.sleep(config.chunkPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Rows in a table older than maxAge by timeColumn, deleted in keyColumn order
+     * An optional filter narrows the policy to some of the table's rows, so one table can have several
+     */
+    public static class Policy {
+        private final String table;
+        private final String keyColumn;
+        private final String timeColumn;
+        private final Duration maxAge;
+        private final String filter;
+
+        public Policy(String table, String keyColumn, String timeColumn, Duration maxAge) {
+            this(table, keyColumn, timeColumn, maxAge, null);
+        }
+
+        /**
+         * The filter is a trusted SQL condition on the table's columns, not user input
+         */
+        public Policy(String table, String keyColumn, String timeColumn, Duration maxAge, String filter) {
+            this.table = table;
+            this.keyColumn = keyColumn;
+            this.timeColumn = timeColumn;
+            this.maxAge = maxAge;
+            this.filter = filter;
+        }
+
+        /** Identifies the policy in cursors and results */
+        String getName() {
+            return filter == null ? table : table + " (" + filter + ")";
+        }
+    }
+
+    /**
+     * Outcome of one table's purge within a run
+     */
+    public static class Result {
+        private final String table;
+        private final long rowsDeleted;
+        private final int chunks;
+        private final long elapsedNanos;
+        private final long backlog;
+
+        private Result(String table, long rowsDeleted, int chunks, long elapsedNanos, long backlog) {
+            this.table = table;
+            this.rowsDeleted = rowsDeleted;
+            this.chunks = chunks;
+            this.elapsedNanos = elapsedNanos;
+            this.backlog = backlog;
+        }
+
+        public String getTable() { return table; }
+        public long getRowsDeleted() { return rowsDeleted; }
+        public int getChunks() { return chunks; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        public long getBacklog() { return backlog; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos > 0 ? rowsDeleted * 1_000_000_000.0 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            String remaining = backlog < 0 ? "unknown" : backlog == 0 ? "none" : String.valueOf(backlog);
+            return String.format("Retention %s: deleted %d rows in %d chunks (%.0f rows/s), backlog %s",
+                table, rowsDeleted, chunks, getRowsPerSecond(), remaining);
+        }
+    }
+
+    /**
+     * Generated statements for one policy; LIMIT works on every supported dialect
+     * Each takes the maximum age in seconds where the cutoff is compared
+     */
+    private static class PolicySql {
+        private final String firstChunk;
+        private final String nextChunk;
+        private final String deleteRange;
+        private final String backlog;
+
+        private PolicySql(Policy policy, SqlDialect dialect) {
+            String key = policy.keyColumn;
+            String table = policy.table;
+            String expired = policy.timeColumn + (dialect == SqlDialect.POSTGRESQL
+                ? " < NOW() - (? * INTERVAL '1 second')"
+                : " < TIMESTAMPADD(SECOND, -?, NOW())");
+            if (policy.filter != null) {
+                expired = "(" + policy.filter + ") AND " + expired;
+            }
+
+            this.firstChunk = "SELECT " + key + " FROM " + table + " WHERE " + expired + " ORDER BY " + key + " LIMIT ?";
+            this.nextChunk = "SELECT " + key + " FROM " + table + " WHERE " + key + " > ? AND " + expired + " ORDER BY " +
+                key + " LIMIT ?";
+            // Re-checks the cutoff, so rows touched since the select are left alone
+            this.deleteRange = "DELETE FROM " + table + " WHERE " + key + " >= ? AND " + key + " <= ? AND " + expired +
+                " AND " + Fence.CONDITION;
+            this.backlog = "SELECT COUNT(*) AS count FROM (SELECT 1 FROM " + table + " WHERE " + expired + " LIMIT ?) expired";
+        }
+    }
+}
@@ -11,11 +11,15 @@ public class SchemaInitializer {
     private final HytaleLogger logger;
     private final DatabaseManager dbManager;
     private final String dbType;
+    private final boolean partitioned;
+    private final boolean defaultPartition;
 
     public SchemaInitializer(HytaleLogger logger, DatabaseManager dbManager, DatabaseConfig config) {
         this.logger = logger;
         this.dbManager = dbManager;
         this.dbType = config.getConfig().type.toUpperCase();
+        this.partitioned = PartitionManager.isEnabled(config);
+        this.defaultPartition = config.getConfig().partitioning.defaultPartition;
     }
 
     public void initialize() {
@@ -60,6 +64,22 @@ public class SchemaInitializer {
             stmt.execute(getModerationActionsTableSQL());
             logger.at(Level.INFO).log("Created/verified moderation_actions table");
 
+            // Create server_health_history table
+            stmt.execute(getServerHealthHistoryTableSQL());
+            logger.at(Level.INFO).log("Created/verified server_health_history table");
+
+            // Create network_leases table
+            stmt.execute(getNetworkLeasesTableSQL());
+            logger.at(Level.INFO).log("Created/verified network_leases table");
+
+            // Catch-all partitions for rows outside the pre-created daily ranges
+            if (partitioned && defaultPartition && dbType.contains("POSTGRES")) {
+                createDefaultPartitions(stmt);
+            }
+
+            // Columns added to tables that may predate them
+            addMissingColumns(stmt);
+
             // Create indexes
             createIndexes(stmt);
 
@@ -134,6 +154,7 @@ public class SchemaInitializer {
             CREATE TABLE IF NOT EXISTS player_locations (
                 player_uuid VARCHAR(36) PRIMARY KEY,
                 player_name VARCHAR(64) NOT NULL,
+                player_name_lower VARCHAR(64),
                 server_id VARCHAR(64),
                 joined_at TIMESTAMP NOT NULL,
                 last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -196,6 +217,9 @@ public class SchemaInitializer {
     }
 
     private String getTransferHistoryTableSQL() {
+        if (partitioned) {
+            return getPartitionedTransferHistoryTableSQL();
+        }
         if (dbType.contains("POSTGRES")) {
             return """
                 CREATE TABLE IF NOT EXISTS transfer_history (
@@ -229,6 +253,48 @@ public class SchemaInitializer {
         }
     }
 
+    /**
+     * Partitioned by day on transferred_at, which therefore has to be part of the primary key
+     * Only takes effect when the table is first created
+     */
+    private String getPartitionedTransferHistoryTableSQL() {
+        if (dbType.contains("POSTGRES")) {
+            return """
+                CREATE TABLE IF NOT EXISTS transfer_history (
+                    transfer_id BIGSERIAL,
+                    player_uuid VARCHAR(36) NOT NULL,
+                    player_name VARCHAR(64) NOT NULL,
+                    from_server_id VARCHAR(64),
+                    to_server_id VARCHAR(64),
+                    transfer_type VARCHAR(32) NOT NULL,
+                    initiated_by VARCHAR(36),
+                    reason TEXT,
+                    success BOOLEAN DEFAULT TRUE,
+                    transferred_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    PRIMARY KEY (transfer_id, transferred_at)
+                ) PARTITION BY RANGE (transferred_at)
+            """;
+        } else {
+            return """
+                CREATE TABLE IF NOT EXISTS transfer_history (
+                    transfer_id BIGINT NOT NULL AUTO_INCREMENT,
+                    player_uuid VARCHAR(36) NOT NULL,
+                    player_name VARCHAR(64) NOT NULL,
+                    from_server_id VARCHAR(64),
+                    to_server_id VARCHAR(64),
+                    transfer_type VARCHAR(32) NOT NULL,
+                    initiated_by VARCHAR(36),
+                    reason TEXT,
+                    success BOOLEAN DEFAULT TRUE,
+                    transferred_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    PRIMARY KEY (transfer_id, transferred_at)
+                ) PARTITION BY RANGE (UNIX_TIMESTAMP(transferred_at)) (
+                    PARTITION pmax VALUES LESS THAN MAXVALUE
+                )
+            """;
+        }
+    }
+
     private String getServerQueuesTableSQL() {
         if (dbType.contains("POSTGRES")) {
             return """
@@ -262,6 +328,9 @@ public class SchemaInitializer {
     }
 
     private String getChatMessagesTableSQL() {
+        if (partitioned) {
+            return getPartitionedChatMessagesTableSQL();
+        }
         if (dbType.contains("POSTGRES")) {
             return """
                 CREATE TABLE IF NOT EXISTS chat_messages (
@@ -291,6 +360,44 @@ public class SchemaInitializer {
         }
     }
 
+    /**
+     * Partitioned by day on sent_at, which therefore has to be part of the primary key
+     * Only takes effect when the table is first created
+     */
+    private String getPartitionedChatMessagesTableSQL() {
+        if (dbType.contains("POSTGRES")) {
+            return """
+                CREATE TABLE IF NOT EXISTS chat_messages (
+                    message_id BIGSERIAL,
+                    player_uuid VARCHAR(36) NOT NULL,
+                    player_name VARCHAR(64) NOT NULL,
+                    server_id VARCHAR(64),
+                    message_type VARCHAR(32) NOT NULL,
+                    recipient_uuid VARCHAR(36),
+                    content TEXT NOT NULL,
+                    sent_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    PRIMARY KEY (message_id, sent_at)
+                ) PARTITION BY RANGE (sent_at)
+            """;
+        } else {
+            return """
+                CREATE TABLE IF NOT EXISTS chat_messages (
+                    message_id BIGINT NOT NULL AUTO_INCREMENT,
+                    player_uuid VARCHAR(36) NOT NULL,
+                    player_name VARCHAR(64) NOT NULL,
+                    server_id VARCHAR(64),
+                    message_type VARCHAR(32) NOT NULL,
+                    recipient_uuid VARCHAR(36),
+                    content TEXT NOT NULL,
+                    sent_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    PRIMARY KEY (message_id, sent_at)
+                ) PARTITION BY RANGE (UNIX_TIMESTAMP(sent_at)) (
+                    PARTITION pmax VALUES LESS THAN MAXVALUE
+                )
+            """;
+        }
+    }
+
     private String getAnnouncementsTableSQL() {
         if (dbType.contains("POSTGRES")) {
             return """
@@ -373,11 +480,95 @@ public class SchemaInitializer {
         }
     }
 
+    private String getServerHealthHistoryTableSQL() {
+        String id = dbType.contains("POSTGRES") ? "history_id BIGSERIAL PRIMARY KEY" : "history_id BIGINT PRIMARY KEY AUTO_INCREMENT";
+        return """
+            CREATE TABLE IF NOT EXISTS server_health_history (
+                %s,
+                server_id VARCHAR(64) NOT NULL,
+                resolution_seconds INTEGER NOT NULL,
+                bucket_start TIMESTAMP NOT NULL,
+                samples INTEGER NOT NULL,
+                players_avg REAL,
+                players_max INTEGER,
+                tps_avg REAL,
+                tps_min REAL,
+                memory_used_avg REAL,
+                memory_used_max BIGINT,
+                cpu_avg REAL,
+                cpu_max REAL,
+                tick_mean_avg REAL,
+                tick_p99_max REAL,
+                tick_max REAL,
+                gc_pause_total REAL,
+                gc_pause_max REAL,
+                gc_count INTEGER,
+                allocation_avg REAL,
+                heap_after_gc_max BIGINT,
+                UNIQUE (server_id, resolution_seconds, bucket_start)
+            )
+        """.formatted(id);
+    }
+
+    private String getNetworkLeasesTableSQL() {
+        return """
+            CREATE TABLE IF NOT EXISTS network_leases (
+                lease_name VARCHAR(64) PRIMARY KEY,
+                holder VARCHAR(64) NOT NULL,
+                token BIGINT NOT NULL,
+                expires_at TIMESTAMP NOT NULL
+            )
+        """;
+    }
+
+    private void createDefaultPartitions(Statement stmt) {
+        String[] tables = {PartitionManager.CHAT_MESSAGES, PartitionManager.TRANSFER_HISTORY};
+
+        for (String table : tables) {
+            try {
+                stmt.execute("CREATE TABLE IF NOT EXISTS " + table + "_default PARTITION OF " + table + " DEFAULT");
+            } catch (SQLException e) {
+                // Table predates partitioning
+                logger.at(Level.FINE).log("Default partition note: " + e.getMessage());
+            }
+        }
+    }
+
+    private void addMissingColumns(Statement stmt) {
+        try {
+            stmt.execute("ALTER TABLE player_locations ADD COLUMN player_name_lower VARCHAR(64)");
+        } catch (SQLException e) {
+            // Column already exists
+            logger.at(Level.FINE).log("Column note: " + e.getMessage());
+        }
+
+        // Telemetry rollups, added after the history table shipped
+        String[] historyColumns = {
+            "tick_mean_avg REAL", "tick_p99_max REAL", "tick_max REAL", "gc_pause_total REAL", "gc_pause_max REAL",
+            "gc_count INTEGER", "allocation_avg REAL", "heap_after_gc_max BIGINT"
+        };
+        for (String column : historyColumns) {
+            try {
+                stmt.execute("ALTER TABLE server_health_history ADD COLUMN " + column);
+            } catch (SQLException e) {
+                logger.at(Level.FINE).log("Column note: " + e.getMessage());
+            }
+        }
+
+        try {
+            stmt.execute("UPDATE player_locations SET player_name_lower = LOWER(player_name) WHERE player_name_lower IS NULL");
+        } catch (SQLException e) {
+            logger.at(Level.WARNING).log("Failed to backfill player_name_lower: " + e.getMessage());
+        }
+    }
+
     private void createIndexes(Statement stmt) throws SQLException {
         String[] indexes = {
             "CREATE INDEX IF NOT EXISTS idx_server_health_heartbeat ON server_health(last_heartbeat)",
             "CREATE INDEX IF NOT EXISTS idx_servers_is_hub ON servers(is_hub, hub_priority DESC)",
             "CREATE INDEX IF NOT EXISTS idx_player_locations_server ON player_locations(server_id)",
+            "CREATE INDEX IF NOT EXISTS idx_player_locations_keyset ON player_locations(server_id, player_name, player_uuid)",
+            "CREATE INDEX IF NOT EXISTS idx_player_locations_name ON player_locations(player_name_lower)",
             "CREATE INDEX IF NOT EXISTS idx_teleporters_location ON teleporters(server_id, world_name)",
             "CREATE INDEX IF NOT EXISTS idx_server_queues_server ON server_queues(server_id, priority DESC, joined_queue_at ASC)",
             "CREATE INDEX IF NOT EXISTS idx_server_queues_player ON server_queues(player_uuid)",
@@ -385,7 +576,8 @@ public class SchemaInitializer {
             "CREATE INDEX IF NOT EXISTS idx_chat_messages_recipient ON chat_messages(recipient_uuid, sent_at DESC)",
             "CREATE INDEX IF NOT EXISTS idx_announcements_time ON announcements(created_at DESC)",
             "CREATE INDEX IF NOT EXISTS idx_moderation_target ON moderation_actions(target_uuid, active)",
-            "CREATE INDEX IF NOT EXISTS idx_transfer_history_player ON transfer_history(player_uuid, transferred_at DESC)"
+            "CREATE INDEX IF NOT EXISTS idx_transfer_history_player ON transfer_history(player_uuid, transferred_at DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_server_health_history_time ON server_health_history(bucket_start)"
         };
 
         for (String index : indexes) {
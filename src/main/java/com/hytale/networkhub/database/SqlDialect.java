@@ -0,0 +1,26 @@
+package com.hytale.networkhub.database;
+
+/**
+ * SQL dialects supported by the statement registry
+ * MariaDB shares the MySQL dialect; embedded H2 runs in MySQL mode and uses the MySQL statements
+ */
+public enum SqlDialect {
+    POSTGRESQL,
+    MYSQL,
+    H2;
+
+    public static SqlDialect fromType(String dbType) {
+        switch (dbType.toLowerCase()) {
+            case "postgresql":
+            case "postgres":
+                return POSTGRESQL;
+            case "mysql":
+            case "mariadb":
+                return MYSQL;
+            case "h2":
+                return H2;
+            default:
+                throw new IllegalArgumentException("Unsupported database type: " + dbType);
+        }
+    }
+}
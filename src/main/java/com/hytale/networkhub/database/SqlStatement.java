@@ -0,0 +1,463 @@
+package com.hytale.networkhub.database;
+
+import static com.hytale.networkhub.database.SqlType.*;
+
+/**
+ * Named statements used by the managers, with SQL text per dialect and typed parameters
+ * Resolved once at startup by StatementRegistry for the configured database type
+ * The MySQL text also runs on embedded H2 in MySQL mode, so date math sticks to TIMESTAMPADD
+ */
+public enum SqlStatement {
+
+    // === Server registry ===
+
+    SERVER_REGISTER("""
+            INSERT INTO servers (server_id, server_name, host, port, server_type, is_hub, hub_priority, max_players, registered_at, last_updated)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            ON CONFLICT (server_id) DO UPDATE SET
+                server_name = EXCLUDED.server_name,
+                host = EXCLUDED.host,
+                port = EXCLUDED.port,
+                server_type = EXCLUDED.server_type,
+                is_hub = EXCLUDED.is_hub,
+                hub_priority = EXCLUDED.hub_priority,
+                max_players = EXCLUDED.max_players,
+                last_updated = CURRENT_TIMESTAMP
+        """, """
+            INSERT INTO servers (server_id, server_name, host, port, server_type, is_hub, hub_priority, max_players, registered_at, last_updated)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            ON DUPLICATE KEY UPDATE
+                server_name = VALUES(server_name),
+                host = VALUES(host),
+                port = VALUES(port),
+                server_type = VALUES(server_type),
+                is_hub = VALUES(is_hub),
+                hub_priority = VALUES(hub_priority),
+                max_players = VALUES(max_players),
+                last_updated = CURRENT_TIMESTAMP
+        """, STRING, STRING, STRING, INT, STRING, BOOLEAN, INT, INT),
+
+    SERVER_SELECT_BY_ID("""
+            SELECT s.*, h.status, h.current_players, h.tps
+            FROM servers s
+            LEFT JOIN server_health h ON s.server_id = h.server_id
+            WHERE s.server_id = ?
+        """, STRING),
+
+    SERVER_SELECT_ALL("""
+            SELECT s.*, h.status, h.current_players, h.tps
+            FROM servers s
+            LEFT JOIN server_health h ON s.server_id = h.server_id
+        """),
+
+    SERVER_SET_HUB("UPDATE servers SET is_hub = true, hub_priority = ? WHERE server_id = ?", INT, STRING),
+
+    SERVER_UNSET_HUB("UPDATE servers SET is_hub = false, hub_priority = 0 WHERE server_id = ?", STRING),
+
+    // === Server health ===
+
+    HEALTH_HEARTBEAT_UPSERT("""
+            INSERT INTO server_health (server_id, status, last_heartbeat, current_players, tps, memory_used_mb, memory_max_mb, cpu_percent, uptime_seconds, consecutive_failures, updated_at)
+            VALUES (?, 'ONLINE', CURRENT_TIMESTAMP, ?, ?, ?, ?, ?, ?, 0, CURRENT_TIMESTAMP)
+            ON CONFLICT (server_id) DO UPDATE SET
+                status = 'ONLINE',
+                last_heartbeat = CURRENT_TIMESTAMP,
+                current_players = EXCLUDED.current_players,
+                tps = EXCLUDED.tps,
+                memory_used_mb = EXCLUDED.memory_used_mb,
+                memory_max_mb = EXCLUDED.memory_max_mb,
+                cpu_percent = EXCLUDED.cpu_percent,
+                uptime_seconds = EXCLUDED.uptime_seconds,
+                consecutive_failures = 0,
+                updated_at = CURRENT_TIMESTAMP
+        """, """
+            INSERT INTO server_health (server_id, status, last_heartbeat, current_players, tps, memory_used_mb, memory_max_mb, cpu_percent, uptime_seconds, consecutive_failures, updated_at)
+            VALUES (?, 'ONLINE', CURRENT_TIMESTAMP, ?, ?, ?, ?, ?, ?, 0, CURRENT_TIMESTAMP)
+            ON DUPLICATE KEY UPDATE
+                status = 'ONLINE',
+                last_heartbeat = CURRENT_TIMESTAMP,
+                current_players = VALUES(current_players),
+                tps = VALUES(tps),
+                memory_used_mb = VALUES(memory_used_mb),
+                memory_max_mb = VALUES(memory_max_mb),
+                cpu_percent = VALUES(cpu_percent),
+                uptime_seconds = VALUES(uptime_seconds),
+                consecutive_failures = 0,
+                updated_at = CURRENT_TIMESTAMP
+        """, STRING, INT, DOUBLE, LONG, LONG, DOUBLE, LONG),
+
+    HEALTH_SELECT_LIVENESS("""
+            SELECT server_id, status, last_heartbeat, CURRENT_TIMESTAMP AS checked_at
+            FROM server_health
+            WHERE status != 'OFFLINE'
+        """),
+
+    HEALTH_SET_STATUS("UPDATE server_health SET status = ?, updated_at = CURRENT_TIMESTAMP WHERE server_id = ?", STRING, STRING),
+
+    HEALTH_MARK_OFFLINE("UPDATE server_health SET status = 'OFFLINE', updated_at = CURRENT_TIMESTAMP WHERE server_id = ?", STRING),
+
+    // The failure detector's writes about other servers, only while the leader's fence holds
+    HEALTH_SET_STATUS_FENCED("UPDATE server_health SET status = ?, updated_at = CURRENT_TIMESTAMP WHERE server_id = ? AND " +
+        Fence.CONDITION, STRING, STRING, LONG, STRING, LONG),
+
+    HEALTH_MARK_OFFLINE_FENCED("UPDATE server_health SET status = 'OFFLINE', updated_at = CURRENT_TIMESTAMP WHERE server_id = ? AND " +
+        Fence.CONDITION, STRING, LONG, STRING, LONG),
+
+    // Adds a partial bucket to the stored one; MySQL assigns left to right, so samples must come last
+    // Averages move toward the new one by its share of the samples, H2 cannot parse VALUES() as a left operand
+    HISTORY_MERGE("""
+            INSERT INTO server_health_history (server_id, resolution_seconds, bucket_start, samples, players_avg, players_max, tps_avg, tps_min, memory_used_avg, memory_used_max, cpu_avg, cpu_max,
+                tick_mean_avg, tick_p99_max, tick_max, gc_pause_total, gc_pause_max, gc_count, allocation_avg, heap_after_gc_max)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (server_id, resolution_seconds, bucket_start) DO UPDATE SET
+                players_avg = server_health_history.players_avg - (server_health_history.players_avg - EXCLUDED.players_avg) * EXCLUDED.samples / (server_health_history.samples + EXCLUDED.samples),
+                players_max = GREATEST(server_health_history.players_max, EXCLUDED.players_max),
+                tps_avg = server_health_history.tps_avg - (server_health_history.tps_avg - EXCLUDED.tps_avg) * EXCLUDED.samples / (server_health_history.samples + EXCLUDED.samples),
+                tps_min = LEAST(server_health_history.tps_min, EXCLUDED.tps_min),
+                memory_used_avg = server_health_history.memory_used_avg - (server_health_history.memory_used_avg - EXCLUDED.memory_used_avg) * EXCLUDED.samples / (server_health_history.samples + EXCLUDED.samples),
+                memory_used_max = GREATEST(server_health_history.memory_used_max, EXCLUDED.memory_used_max),
+                cpu_avg = server_health_history.cpu_avg - (server_health_history.cpu_avg - EXCLUDED.cpu_avg) * EXCLUDED.samples / (server_health_history.samples + EXCLUDED.samples),
+                cpu_max = GREATEST(server_health_history.cpu_max, EXCLUDED.cpu_max),
+                tick_mean_avg = server_health_history.tick_mean_avg - (server_health_history.tick_mean_avg - EXCLUDED.tick_mean_avg) * EXCLUDED.samples / (server_health_history.samples + EXCLUDED.samples),
+                tick_p99_max = GREATEST(server_health_history.tick_p99_max, EXCLUDED.tick_p99_max),
+                tick_max = GREATEST(server_health_history.tick_max, EXCLUDED.tick_max),
+                gc_pause_total = server_health_history.gc_pause_total + EXCLUDED.gc_pause_total,
+                gc_pause_max = GREATEST(server_health_history.gc_pause_max, EXCLUDED.gc_pause_max),
+                gc_count = server_health_history.gc_count + EXCLUDED.gc_count,
+                allocation_avg = server_health_history.allocation_avg - (server_health_history.allocation_avg - EXCLUDED.allocation_avg) * EXCLUDED.samples / (server_health_history.samples + EXCLUDED.samples),
+                heap_after_gc_max = NULLIF(GREATEST(COALESCE(server_health_history.heap_after_gc_max, -1), COALESCE(EXCLUDED.heap_after_gc_max, -1)), -1),
+                samples = server_health_history.samples + EXCLUDED.samples
+        """, """
+            INSERT INTO server_health_history (server_id, resolution_seconds, bucket_start, samples, players_avg, players_max, tps_avg, tps_min, memory_used_avg, memory_used_max, cpu_avg, cpu_max,
+                tick_mean_avg, tick_p99_max, tick_max, gc_pause_total, gc_pause_max, gc_count, allocation_avg, heap_after_gc_max)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                players_avg = players_avg - (players_avg - VALUES(players_avg)) * VALUES(samples) / (samples + VALUES(samples)),
+                players_max = GREATEST(players_max, VALUES(players_max)),
+                tps_avg = tps_avg - (tps_avg - VALUES(tps_avg)) * VALUES(samples) / (samples + VALUES(samples)),
+                tps_min = LEAST(tps_min, VALUES(tps_min)),
+                memory_used_avg = memory_used_avg - (memory_used_avg - VALUES(memory_used_avg)) * VALUES(samples) / (samples + VALUES(samples)),
+                memory_used_max = GREATEST(memory_used_max, VALUES(memory_used_max)),
+                cpu_avg = cpu_avg - (cpu_avg - VALUES(cpu_avg)) * VALUES(samples) / (samples + VALUES(samples)),
+                cpu_max = GREATEST(cpu_max, VALUES(cpu_max)),
+                tick_mean_avg = tick_mean_avg - (tick_mean_avg - VALUES(tick_mean_avg)) * VALUES(samples) / (samples + VALUES(samples)),
+                tick_p99_max = GREATEST(tick_p99_max, VALUES(tick_p99_max)),
+                tick_max = GREATEST(tick_max, VALUES(tick_max)),
+                gc_pause_total = gc_pause_total + VALUES(gc_pause_total),
+                gc_pause_max = GREATEST(gc_pause_max, VALUES(gc_pause_max)),
+                gc_count = gc_count + VALUES(gc_count),
+                allocation_avg = allocation_avg - (allocation_avg - VALUES(allocation_avg)) * VALUES(samples) / (samples + VALUES(samples)),
+                heap_after_gc_max = NULLIF(GREATEST(COALESCE(heap_after_gc_max, -1), COALESCE(VALUES(heap_after_gc_max), -1)), -1),
+                samples = samples + VALUES(samples)
+        """, STRING, INT, TIMESTAMP, INT, DOUBLE, INT, DOUBLE, DOUBLE, DOUBLE, LONG, DOUBLE, DOUBLE,
+        DOUBLE, DOUBLE, DOUBLE, DOUBLE, DOUBLE, INT, DOUBLE, LONG),
+
+    HISTORY_SELECT("""
+            SELECT bucket_start, samples, players_avg, players_max, tps_avg, tps_min, memory_used_avg, memory_used_max, cpu_avg, cpu_max,
+                tick_mean_avg, tick_p99_max, tick_max, gc_pause_total, gc_pause_max, gc_count, allocation_avg, heap_after_gc_max
+            FROM server_health_history
+            WHERE server_id = ? AND resolution_seconds = ? AND bucket_start >= ?
+            ORDER BY bucket_start
+        """, STRING, INT, TIMESTAMP),
+
+    // === Leases ===
+
+    LEASE_CREATE("""
+            INSERT INTO network_leases (lease_name, holder, token, expires_at)
+            VALUES (?, ?, 1, CURRENT_TIMESTAMP + (? * INTERVAL '1 second'))
+            ON CONFLICT (lease_name) DO NOTHING
+        """, """
+            INSERT IGNORE INTO network_leases (lease_name, holder, token, expires_at)
+            VALUES (?, ?, 1, TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP))
+        """, STRING, STRING, INT),
+
+    // The token only moves when the lease changes hands; MySQL applies SET in order, so it is computed first
+    LEASE_ACQUIRE("""
+            UPDATE network_leases
+            SET token = CASE WHEN holder = ? THEN token ELSE token + 1 END,
+                holder = ?,
+                expires_at = CURRENT_TIMESTAMP + (? * INTERVAL '1 second')
+            WHERE lease_name = ?
+              AND (holder = ? OR expires_at < CURRENT_TIMESTAMP)
+        """, """
+            UPDATE network_leases
+            SET token = CASE WHEN holder = ? THEN token ELSE token + 1 END,
+                holder = ?,
+                expires_at = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP)
+            WHERE lease_name = ?
+              AND (holder = ? OR expires_at < CURRENT_TIMESTAMP)
+        """, STRING, STRING, INT, STRING, STRING),
+
+    LEASE_RELEASE("UPDATE network_leases SET expires_at = CURRENT_TIMESTAMP WHERE lease_name = ? AND holder = ?",
+        STRING, STRING),
+
+    // With the lease itself in Redis, the row only fences; every new holder moves the token on
+    FENCE_ADVANCE("UPDATE network_leases SET token = token + 1, holder = ? WHERE lease_name = ?", STRING, STRING),
+
+    FENCE_SELECT("SELECT 1 FROM network_leases WHERE lease_name = ? AND token = ?", STRING, LONG),
+
+    LEASE_SELECT("""
+            SELECT holder, token, expires_at, CURRENT_TIMESTAMP AS checked_at
+            FROM network_leases
+            WHERE lease_name = ?
+        """, STRING),
+
+    // === Player tracking ===
+
+    PLAYER_TRACK_JOIN("""
+            INSERT INTO player_locations (player_uuid, player_name, player_name_lower, server_id, joined_at, last_seen)
+            VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            ON CONFLICT (player_uuid) DO UPDATE SET
+                player_name = EXCLUDED.player_name,
+                player_name_lower = EXCLUDED.player_name_lower,
+                server_id = EXCLUDED.server_id,
+                joined_at = CURRENT_TIMESTAMP,
+                last_seen = CURRENT_TIMESTAMP
+        """, """
+            INSERT INTO player_locations (player_uuid, player_name, player_name_lower, server_id, joined_at, last_seen)
+            VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            ON DUPLICATE KEY UPDATE
+                player_name = VALUES(player_name),
+                player_name_lower = VALUES(player_name_lower),
+                server_id = VALUES(server_id),
+                joined_at = CURRENT_TIMESTAMP,
+                last_seen = CURRENT_TIMESTAMP
+        """, STRING, STRING, STRING, STRING),
+
+    /** Only clears the server if the player has not already joined another one */
+    PLAYER_TRACK_QUIT("""
+            UPDATE player_locations
+            SET server_id = CASE WHEN server_id = ? THEN NULL ELSE server_id END, last_seen = CURRENT_TIMESTAMP
+            WHERE player_uuid = ?
+        """, STRING, STRING),
+
+    /** Multi-row, see DatabaseManager.executeMultiRow; the parameter types describe one row */
+    PLAYER_FLUSH_LOCATIONS("""
+            INSERT INTO player_locations
+                (player_uuid, player_name, player_name_lower, server_id, joined_at, last_seen, world_name, x, y, z)
+            SELECT u.player_uuid, u.player_name, u.player_name_lower, u.server_id, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP,
+                u.world_name, u.x, u.y, u.z
+            FROM UNNEST(?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::float8[], ?::float8[], ?::float8[])
+                AS u(player_uuid, player_name, player_name_lower, server_id, world_name, x, y, z)
+            ON CONFLICT (player_uuid) DO UPDATE SET
+                world_name = EXCLUDED.world_name,
+                x = EXCLUDED.x,
+                y = EXCLUDED.y,
+                z = EXCLUDED.z,
+                last_seen = CURRENT_TIMESTAMP
+        """, """
+            INSERT INTO player_locations
+                (player_uuid, player_name, player_name_lower, server_id, joined_at, last_seen, world_name, x, y, z)
+            VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                world_name = VALUES(world_name),
+                x = VALUES(x),
+                y = VALUES(y),
+                z = VALUES(z),
+                last_seen = CURRENT_TIMESTAMP
+        """, STRING, STRING, STRING, STRING, STRING, DOUBLE, DOUBLE, DOUBLE),
+
+    PLAYER_SET_SERVER("""
+            UPDATE player_locations
+            SET server_id = ?, joined_at = CURRENT_TIMESTAMP
+            WHERE player_uuid = ?
+        """, STRING, STRING),
+
+    PLAYER_FIND_BY_UUID("""
+            SELECT pl.*, s.server_name
+            FROM player_locations pl
+            LEFT JOIN servers s ON pl.server_id = s.server_id
+            WHERE pl.player_uuid = ?
+        """, STRING),
+
+    PLAYER_FIND_BY_NAME("""
+            SELECT pl.*, s.server_name
+            FROM player_locations pl
+            LEFT JOIN servers s ON pl.server_id = s.server_id
+            WHERE pl.player_name_lower = ?
+            ORDER BY pl.last_seen DESC
+        """, STRING),
+
+    PLAYER_LIST_ONLINE("""
+            SELECT pl.player_uuid, pl.player_name, pl.server_id
+            FROM player_locations pl
+            JOIN server_health h ON h.server_id = pl.server_id
+            WHERE h.status != 'OFFLINE'
+        """),
+
+    PLAYER_COUNT_ALL("SELECT COUNT(*) as count FROM player_locations WHERE server_id IS NOT NULL"),
+
+    PLAYER_COUNT_BY_SERVER("""
+            SELECT server_id, COUNT(*) as count FROM player_locations
+            WHERE server_id IS NOT NULL
+            GROUP BY server_id
+        """),
+
+    // Keyset pages over (server_id, player_name, player_uuid); the last parameter is the row limit
+
+    PLAYER_PAGE_FIRST("""
+            SELECT * FROM player_locations
+            WHERE server_id IS NOT NULL
+            ORDER BY server_id, player_name, player_uuid
+            LIMIT ?
+        """, INT),
+
+    PLAYER_PAGE_AFTER("""
+            SELECT * FROM player_locations
+            WHERE server_id IS NOT NULL AND (server_id, player_name, player_uuid) > (?, ?, ?)
+            ORDER BY server_id, player_name, player_uuid
+            LIMIT ?
+        """, STRING, STRING, STRING, INT),
+
+    // === Transfers ===
+
+    TRANSFER_LOG("""
+            INSERT INTO transfer_history (player_uuid, player_name, from_server_id, to_server_id,
+                                         transfer_type, initiated_by, reason, success, transferred_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+        """, STRING, STRING, STRING, STRING, STRING, STRING, STRING, BOOLEAN),
+
+    // === Queues ===
+
+    QUEUE_UPSERT("""
+            INSERT INTO server_queues (server_id, player_uuid, player_name, priority, joined_queue_at, position, notified)
+            VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?, false)
+            ON CONFLICT (server_id, player_uuid) DO UPDATE SET
+                priority = EXCLUDED.priority,
+                joined_queue_at = CURRENT_TIMESTAMP
+        """, """
+            INSERT INTO server_queues (server_id, player_uuid, player_name, priority, joined_queue_at, position, notified)
+            VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?, false)
+            ON DUPLICATE KEY UPDATE
+                priority = VALUES(priority),
+                joined_queue_at = CURRENT_TIMESTAMP
+        """, STRING, STRING, STRING, INT, INT),
+
+    QUEUE_DELETE_ENTRY("DELETE FROM server_queues WHERE player_uuid = ? AND server_id = ?", STRING, STRING),
+
+    QUEUE_DELETE_PLAYER("DELETE FROM server_queues WHERE player_uuid = ?", STRING),
+
+    /** In queue order, so entries that tie keep their order when the queues are rebuilt */
+    QUEUE_LOAD_ALL("SELECT * FROM server_queues ORDER BY server_id, priority DESC, joined_queue_at, queue_id"),
+
+    // === Teleporters ===
+
+    TELEPORTER_LOAD("SELECT * FROM teleporters WHERE server_id = ? AND enabled = true", STRING),
+
+    TELEPORTER_INSERT("""
+            INSERT INTO teleporters (server_id, world_name, x, y, z, destination_server_id,
+                                    display_name, permission, cooldown_seconds, enabled, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, true, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        """, STRING, STRING, INT, INT, INT, STRING, STRING, STRING, INT),
+
+    TELEPORTER_DELETE("DELETE FROM teleporters WHERE server_id = ? AND world_name = ? AND x = ? AND y = ? AND z = ?",
+        STRING, STRING, INT, INT, INT),
+
+    // === Chat ===
+
+    CHAT_MESSAGE_INSERT("""
+            INSERT INTO chat_messages (player_uuid, player_name, server_id, message_type, recipient_uuid, content, sent_at)
+            VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+        """, STRING, STRING, STRING, STRING, STRING, STRING),
+
+    // === Announcements ===
+
+    ANNOUNCEMENT_INSERT("""
+            INSERT INTO announcements (created_by_uuid, created_by_name, title, subtitle, action_bar,
+                                      display_type, target_servers, target_permissions, duration_seconds,
+                                      priority, sound, created_at, expires_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP + (? * INTERVAL '1 second'))
+        """, """
+            INSERT INTO announcements (created_by_uuid, created_by_name, title, subtitle, action_bar,
+                                      display_type, target_servers, target_permissions, duration_seconds,
+                                      priority, sound, created_at, expires_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP))
+        """, STRING, STRING, STRING, STRING, STRING, STRING, STRING, STRING, INT, INT, STRING, INT),
+
+    // === Moderation ===
+
+    MODERATION_BAN("""
+            INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
+                                           moderator_name, reason, server_id, expires_at, created_at)
+            VALUES (?, ?, 'BAN', ?, ?, ?, ?,
+                    CASE WHEN ? > 0 THEN CURRENT_TIMESTAMP + (? * INTERVAL '1 second') ELSE NULL END,
+                    CURRENT_TIMESTAMP)
+        """, """
+            INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
+                                           moderator_name, reason, server_id, expires_at, created_at)
+            VALUES (?, ?, 'BAN', ?, ?, ?, ?,
+                    CASE WHEN ? > 0 THEN TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) ELSE NULL END,
+                    CURRENT_TIMESTAMP)
+        """, STRING, STRING, STRING, STRING, STRING, STRING, LONG, LONG),
+
+    MODERATION_KICK("""
+            INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
+                                           moderator_name, reason, server_id, created_at)
+            VALUES (?, ?, 'KICK', ?, ?, ?, ?, CURRENT_TIMESTAMP)
+        """, STRING, STRING, STRING, STRING, STRING, STRING),
+
+    MODERATION_MUTE("""
+            INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
+                                           moderator_name, reason, server_id, expires_at, created_at)
+            VALUES (?, ?, 'MUTE', ?, ?, ?, ?, CURRENT_TIMESTAMP + (? * INTERVAL '1 second'), CURRENT_TIMESTAMP)
+        """, """
+            INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
+                                           moderator_name, reason, server_id, expires_at, created_at)
+            VALUES (?, ?, 'MUTE', ?, ?, ?, ?,
+                    TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP),
+                    CURRENT_TIMESTAMP)
+        """, STRING, STRING, STRING, STRING, STRING, STRING, LONG),
+
+    MODERATION_UNBAN("""
+            UPDATE moderation_actions
+            SET active = false, unbanned_by = ?, unbanned_at = CURRENT_TIMESTAMP
+            WHERE target_uuid = ? AND action_type = 'BAN' AND active = true
+        """, STRING, STRING),
+
+    MODERATION_UNMUTE("""
+            UPDATE moderation_actions
+            SET active = false, unbanned_by = ?, unbanned_at = CURRENT_TIMESTAMP
+            WHERE target_uuid = ? AND action_type = 'MUTE' AND active = true
+        """, STRING, STRING),
+
+    MODERATION_IS_BANNED("""
+            SELECT COUNT(*) FROM moderation_actions
+            WHERE target_uuid = ? AND action_type = 'BAN' AND active = true
+            AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
+        """, STRING),
+
+    MODERATION_IS_MUTED("""
+            SELECT COUNT(*) FROM moderation_actions
+            WHERE target_uuid = ? AND action_type = 'MUTE' AND active = true
+            AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
+        """, STRING),
+
+    MODERATION_BAN_REASON("""
+            SELECT reason FROM moderation_actions
+            WHERE target_uuid = ? AND action_type = 'BAN' AND active = true
+            AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
+            ORDER BY created_at DESC LIMIT 1
+        """, STRING);
+
+    private final String postgresSql;
+    private final String mysqlSql;
+    private final SqlType[] paramTypes;
+
+    SqlStatement(String sql, SqlType... paramTypes) {
+        this(sql, sql, paramTypes);
+    }
+
+    SqlStatement(String postgresSql, String mysqlSql, SqlType... paramTypes) {
+        this.postgresSql = postgresSql;
+        this.mysqlSql = mysqlSql;
+        this.paramTypes = paramTypes;
+    }
+
+    public String getSql(SqlDialect dialect) {
+        return dialect == SqlDialect.POSTGRESQL ? postgresSql : mysqlSql;
+    }
+
+    public SqlType[] getParamTypes() {
+        return paramTypes;
+    }
+}
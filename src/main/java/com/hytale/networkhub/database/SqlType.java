@@ -0,0 +1,75 @@
+package com.hytale.networkhub.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Bind types for statement parameters
+ * Each type binds with its explicit JDBC setter instead of setObject
+ */
+public enum SqlType {
+    STRING(Types.VARCHAR, "varchar"),
+    INT(Types.INTEGER, "int4"),
+    LONG(Types.BIGINT, "int8"),
+    DOUBLE(Types.DOUBLE, "float8"),
+    BOOLEAN(Types.BOOLEAN, "bool"),
+    TIMESTAMP(Types.TIMESTAMP, "timestamp");
+
+    private final int jdbcType;
+    private final String arrayElementType;
+
+    SqlType(int jdbcType, String arrayElementType) {
+        this.jdbcType = jdbcType;
+        this.arrayElementType = arrayElementType;
+    }
+
+    /**
+     * Bind one column of many rows as a single array parameter, for PostgreSQL's UNNEST
+     */
+    public void bindArray(PreparedStatement stmt, int index, Object[] values) throws SQLException {
+        Object[] elements = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) continue;
+            switch (this) {
+                case STRING -> elements[i] = value.toString();
+                case INT -> elements[i] = ((Number) value).intValue();
+                case LONG -> elements[i] = ((Number) value).longValue();
+                case DOUBLE -> elements[i] = ((Number) value).doubleValue();
+                default -> elements[i] = value;
+            }
+        }
+        stmt.setArray(index, stmt.getConnection().createArrayOf(arrayElementType, elements));
+    }
+
+    public void bind(PreparedStatement stmt, int index, Object value) throws SQLException {
+        if (value == null) {
+            stmt.setNull(index, jdbcType);
+            return;
+        }
+
+        switch (this) {
+            case STRING:
+                // UUIDs and enums are stored as their string form
+                stmt.setString(index, value.toString());
+                break;
+            case INT:
+                stmt.setInt(index, ((Number) value).intValue());
+                break;
+            case LONG:
+                stmt.setLong(index, ((Number) value).longValue());
+                break;
+            case DOUBLE:
+                stmt.setDouble(index, ((Number) value).doubleValue());
+                break;
+            case BOOLEAN:
+                stmt.setBoolean(index, (Boolean) value);
+                break;
+            case TIMESTAMP:
+                stmt.setTimestamp(index, (Timestamp) value);
+                break;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.hytale.networkhub.database;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * SQL text for every named statement, resolved once for the configured dialect
+ * Each statement's placeholder count is checked against its parameter types at startup
+ */
+public class StatementRegistry {
+    private final SqlDialect dialect;
+    private final Map<SqlStatement, String> sqlByStatement = new EnumMap<>(SqlStatement.class);
+
+    public StatementRegistry(SqlDialect dialect) {
+        this.dialect = dialect;
+
+        for (SqlStatement statement : SqlStatement.values()) {
+            String sql = statement.getSql(dialect);
+            int placeholders = countPlaceholders(sql);
+            if (placeholders != statement.getParamTypes().length) {
+                throw new IllegalStateException("Statement " + statement + " has " + placeholders +
+                    " placeholders but declares " + statement.getParamTypes().length + " parameter types (" + dialect + ")");
+            }
+            sqlByStatement.put(statement, sql);
+        }
+    }
+
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
+    public String sql(SqlStatement statement) {
+        return sqlByStatement.get(statement);
+    }
+
+    private static int countPlaceholders(String sql) {
+        int count = 0;
+        boolean inLiteral = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            } else if (c == '?' && !inLiteral) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
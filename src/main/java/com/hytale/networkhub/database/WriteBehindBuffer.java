@@ -0,0 +1,220 @@
+package com.hytale.networkhub.database;
+
+import com.hytale.networkhub.config.DatabaseConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.hypixel.hytale.logger.HytaleLogger;
+import java.util.logging.Level;
+
+/**
+ * Write-behind stage for asynchronous updates
+ * Buffers statements and flushes them in arrival order when the batch is full or the flush
+ * interval has elapsed; each run of consecutive statements with the same SQL text is one JDBC batch
+ */
+public class WriteBehindBuffer {
+    private final HytaleLogger logger;
+    private final DatabaseManager dbManager;
+    private final DatabaseConfig.WriteBehindConfig config;
+    private final BlockingQueue<PendingWrite> buffer;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean running = false;
+    private volatile Thread flushingThread;
+    private Thread flushThread;
+
+    public WriteBehindBuffer(HytaleLogger logger, DatabaseManager dbManager, DatabaseConfig.WriteBehindConfig config) {
+        this.logger = logger;
+        this.dbManager = dbManager;
+        this.config = config;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, config.bufferCapacity));
+    }
+
+    public void start() {
+        running = true;
+        flushThread = new Thread(this::runLoop, "NetworkHub-WriteBehind");
+        flushThread.setDaemon(true);
+        flushThread.start();
+        logger.at(Level.INFO).log("Write-behind buffer started (batch size: " + config.maxBatchSize +
+            ", flush interval: " + config.flushIntervalMs + "ms)");
+    }
+
+    /**
+     * Queue a statement for the next batch
+     * A caller that finds the buffer full waits up to enqueueTimeoutMs, and for as long as the database is down,
+     * since the flush thread then only journals; otherwise the statement is rejected, never run on the caller
+     */
+    public CompletableFuture<Integer> submit(String caller, String sql, SqlType[] types, Object[] params) {
+        CompletableFuture<Integer> future = offer(caller, sql, types, params);
+        if (future != null) {
+            return future;
+        }
+
+        dbManager.getQueryMetrics().recordError(caller, sql);
+        logger.at(Level.WARNING).log("Write-behind buffer full, rejected write from " + caller);
+        return CompletableFuture.failedFuture(new RejectedExecutionException("Write-behind buffer full"));
+    }
+
+    /**
+     * Queue a statement behind everything already buffered, or return null if the buffer stayed full
+     */
+    CompletableFuture<Integer> offer(String caller, String sql, SqlType[] types, Object[] params) {
+        PendingWrite write = new PendingWrite(caller, sql, types, params);
+        pending.incrementAndGet();
+
+        try {
+            while (running) {
+                if (buffer.offer(write, config.enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    return write.future;
+                }
+                if (!dbManager.isJournalingWrites()) break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        pending.decrementAndGet();
+        return null;
+    }
+
+    /**
+     * Whether accepted writes have not been executed or journaled yet
+     * While there are any, a write headed for the journal has to queue behind them to keep the order
+     */
+    boolean hasPending() {
+        return pending.get() > 0;
+    }
+
+    /**
+     * Whether the current thread is the one flushing the buffer, whose diverted writes go to the journal directly
+     */
+    boolean isFlushThread() {
+        return Thread.currentThread() == flushingThread;
+    }
+
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    /**
+     * Stop accepting new statements and flush everything still buffered
+     */
+    public void close() {
+        running = false;
+
+        if (flushThread != null) {
+            flushThread.interrupt();
+            try {
+                flushThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Flush anything left over on the closing thread
+        flushingThread = Thread.currentThread();
+        List<PendingWrite> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            logger.at(Level.INFO).log("Flushing " + remaining.size() + " buffered writes before shutdown");
+            flush(remaining);
+        }
+    }
+
+    private void runLoop() {
+        flushingThread = Thread.currentThread();
+        List<PendingWrite> batch = new ArrayList<>(config.maxBatchSize);
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.flushIntervalMs);
+
+        while (running) {
+            try {
+                PendingWrite first = buffer.poll(config.flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+
+                // Keep collecting until the batch is full or the oldest statement has waited long enough
+                while (batch.size() < config.maxBatchSize) {
+                    buffer.drainTo(batch, config.maxBatchSize - batch.size());
+                    if (batch.size() >= config.maxBatchSize) break;
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+
+                    PendingWrite next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Closing - fall through and flush what we have
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> writes) {
+        // Batch runs of consecutive statements with the same SQL text, so writes reach the database in arrival order
+        int start = 0;
+        while (start < writes.size()) {
+            String sql = writes.get(start).sql;
+            int end = start + 1;
+            while (end < writes.size() && writes.get(end).sql.equals(sql)) {
+                end++;
+            }
+
+            flushRun(writes.subList(start, end));
+            start = end;
+        }
+    }
+
+    private void flushRun(List<PendingWrite> run) {
+        try {
+            if (run.size() == 1) {
+                PendingWrite write = run.get(0);
+                write.future.complete(dbManager.executeUpdate(write.caller, write.sql, write.types, write.params));
+                return;
+            }
+
+            List<Object[]> paramSets = new ArrayList<>(run.size());
+            for (PendingWrite write : run) {
+                paramSets.add(write.params);
+            }
+
+            PendingWrite first = run.get(0);
+            int[] results = dbManager.executeBatch(first.caller, first.sql, first.types, paramSets);
+            for (int i = 0; i < run.size(); i++) {
+                run.get(i).future.complete(i < results.length ? results[i] : 0);
+            }
+        } catch (Exception e) {
+            logger.at(Level.SEVERE).log("Write-behind flush failed: " + e.getMessage());
+            run.forEach(w -> w.future.completeExceptionally(e));
+        } finally {
+            pending.addAndGet(-run.size());
+        }
+    }
+
+    private static class PendingWrite {
+        private final String caller;
+        private final String sql;
+        private final SqlType[] types;
+        private final Object[] params;
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        private PendingWrite(String caller, String sql, SqlType[] types, Object[] params) {
+            this.caller = caller;
+            this.sql = sql;
+            this.types = types;
+            this.params = params;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.hytale.networkhub.database;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import com.hypixel.hytale.logger.HytaleLogger;
+import java.util.logging.Level;
+
+/**
+ * Append-only, memory-mapped journal of writes that could not reach the database
+ * Layout: header (magic, version, replay offset) followed by records of
+ * [length][crc32][payload], where a zero length marks the end of the journal
+ */
+public class WriteJournal {
+    private static final int MAGIC = 0x4E484A31; // "NHJ1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int READ_OFFSET_POS = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_BOOLEAN = 5;
+    private static final byte TAG_TIMESTAMP = 6;
+
+    private final HytaleLogger logger;
+    private final Path file;
+    private final long initialBytes;
+    private final long maxBytes;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int readOffset;
+    private int writeOffset;
+    private int pendingCount;
+
+    public WriteJournal(HytaleLogger logger, Path file, long initialBytes, long maxBytes) {
+        this.logger = logger;
+        this.file = file;
+        // A single mapping is limited to 2GB
+        this.maxBytes = Math.min(maxBytes, Integer.MAX_VALUE);
+        this.initialBytes = Math.min(Math.max(initialBytes, HEADER_SIZE * 2), this.maxBytes);
+    }
+
+    /**
+     * Map the journal file and find the records still waiting for replay
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), initialBytes);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(READ_OFFSET_POS, HEADER_SIZE);
+            buffer.force();
+        }
+
+        readOffset = buffer.getInt(READ_OFFSET_POS);
+        if (readOffset < HEADER_SIZE || readOffset > buffer.capacity()) {
+            logger.at(Level.WARNING).log("Write journal header is corrupt, starting from the beginning");
+            readOffset = HEADER_SIZE;
+        }
+
+        // Walk the valid records; a torn write at the tail fails its checksum and ends the scan
+        int pos = readOffset;
+        int count = 0;
+        while (true) {
+            int next = nextRecord(pos);
+            if (next < 0) break;
+            pos = next;
+            count++;
+        }
+        writeOffset = pos;
+        pendingCount = count;
+
+        if (pendingCount > 0) {
+            logger.at(Level.INFO).log("Write journal has " + pendingCount + " writes from a previous run awaiting replay");
+        }
+    }
+
+    /**
+     * Append a write; returns false if the journal is full
+     */
+    public synchronized boolean append(String caller, String sql, SqlType[] types, Object[] params) {
+        if (buffer == null) return false;
+
+        byte[] payload;
+        try {
+            payload = encode(caller, sql, types, params);
+        } catch (IOException e) {
+            logger.at(Level.SEVERE).log("Failed to encode journal record: " + e.getMessage());
+            return false;
+        }
+
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        // Keep room for the zero length that terminates the journal
+        if (!ensureCapacity((long) writeOffset + recordSize + 4)) {
+            return false;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        // Length goes in last so a crash mid-append never exposes a partial record
+        buffer.putInt(writeOffset + 4, (int) crc.getValue());
+        buffer.put(writeOffset + RECORD_HEADER_SIZE, payload);
+        buffer.putInt(writeOffset, payload.length);
+        writeOffset += recordSize;
+        pendingCount++;
+        return true;
+    }
+
+    public synchronized boolean hasPending() {
+        return pendingCount > 0;
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Read up to maxEntries pending writes without consuming them
+     */
+    public synchronized List<Entry> read(int maxEntries) {
+        List<Entry> entries = new ArrayList<>(Math.min(maxEntries, pendingCount));
+        int pos = readOffset;
+
+        while (entries.size() < maxEntries && pos < writeOffset) {
+            int length = buffer.getInt(pos);
+            byte[] payload = new byte[length];
+            buffer.get(pos + RECORD_HEADER_SIZE, payload);
+            int end = pos + RECORD_HEADER_SIZE + length;
+
+            try {
+                entries.add(decode(payload, end));
+            } catch (IOException e) {
+                // Checksummed but unreadable, skip it rather than blocking the journal
+                logger.at(Level.SEVERE).log("Skipping unreadable journal record: " + e.getMessage());
+                if (pos == readOffset) {
+                    commit(end);
+                    if (readOffset == HEADER_SIZE) break;
+                }
+            }
+            pos = end;
+        }
+
+        return entries;
+    }
+
+    /**
+     * Mark every record up to and including the one ending at endOffset as replayed
+     */
+    public synchronized void commit(int endOffset) {
+        while (readOffset < endOffset) {
+            readOffset += RECORD_HEADER_SIZE + buffer.getInt(readOffset);
+            pendingCount--;
+        }
+
+        buffer.putInt(READ_OFFSET_POS, readOffset);
+        if (readOffset >= writeOffset) {
+            reset();
+        }
+    }
+
+    /**
+     * Flush mapped pages to disk
+     */
+    public synchronized void force() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    public synchronized void close() {
+        if (channel == null) return;
+
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            logger.at(Level.WARNING).log("Failed to close write journal: " + e.getMessage());
+        }
+        channel = null;
+        buffer = null;
+    }
+
+    /**
+     * Empty the journal once everything is replayed
+     * The used region is zeroed before the replay offset moves back, so a crash midway
+     * can never replay old records a second time
+     */
+    private void reset() {
+        int length = writeOffset - HEADER_SIZE;
+        byte[] zeros = new byte[Math.min(length, 64 * 1024)];
+        for (int pos = HEADER_SIZE; pos < writeOffset; pos += zeros.length) {
+            buffer.put(pos, zeros, 0, Math.min(zeros.length, writeOffset - pos));
+        }
+
+        readOffset = HEADER_SIZE;
+        writeOffset = HEADER_SIZE;
+        pendingCount = 0;
+        buffer.putInt(READ_OFFSET_POS, readOffset);
+        buffer.force();
+    }
+
+    private int nextRecord(int pos) {
+        if (pos + RECORD_HEADER_SIZE > buffer.capacity()) return -1;
+
+        int length = buffer.getInt(pos);
+        if (length <= 0 || (long) pos + RECORD_HEADER_SIZE + length > buffer.capacity()) return -1;
+
+        byte[] payload = new byte[length];
+        buffer.get(pos + RECORD_HEADER_SIZE, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != buffer.getInt(pos + 4)) return -1;
+
+        return pos + RECORD_HEADER_SIZE + length;
+    }
+
+    private boolean ensureCapacity(long required) {
+        if (required <= buffer.capacity()) return true;
+
+        if (required > maxBytes) {
+            logger.at(Level.SEVERE).log("Write journal is full (" + (maxBytes / 1024 / 1024) + "MB), dropping write");
+            return false;
+        }
+
+        long newSize = Math.min(maxBytes, Math.max(required, (long) buffer.capacity() * 2));
+        try {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+            logger.at(Level.INFO).log("Grew write journal to " + (newSize / 1024 / 1024) + "MB");
+            return true;
+        } catch (IOException e) {
+            logger.at(Level.SEVERE).log("Failed to grow write journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static byte[] encode(String caller, String sql, SqlType[] types, Object[] params) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + sql.length());
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        writeString(out, caller);
+        writeString(out, sql);
+
+        out.writeShort(types != null ? types.length : -1);
+        if (types != null) {
+            for (SqlType type : types) {
+                out.writeByte(type.ordinal());
+            }
+        }
+
+        out.writeShort(params.length);
+        for (Object param : params) {
+            if (param == null) {
+                out.writeByte(TAG_NULL);
+            } else if (param instanceof Integer) {
+                out.writeByte(TAG_INT);
+                out.writeInt((Integer) param);
+            } else if (param instanceof Long) {
+                out.writeByte(TAG_LONG);
+                out.writeLong((Long) param);
+            } else if (param instanceof Double) {
+                out.writeByte(TAG_DOUBLE);
+                out.writeDouble((Double) param);
+            } else if (param instanceof Boolean) {
+                out.writeByte(TAG_BOOLEAN);
+                out.writeBoolean((Boolean) param);
+            } else if (param instanceof Timestamp) {
+                out.writeByte(TAG_TIMESTAMP);
+                out.writeLong(((Timestamp) param).getTime());
+            } else {
+                // UUIDs, enums and other values are stored as their string form
+                out.writeByte(TAG_STRING);
+                writeString(out, param.toString());
+            }
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(byte[] payload, int endOffset) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+
+        String caller = readString(in);
+        String sql = readString(in);
+
+        SqlType[] types = null;
+        int typeCount = in.readShort();
+        if (typeCount >= 0) {
+            SqlType[] all = SqlType.values();
+            types = new SqlType[typeCount];
+            for (int i = 0; i < typeCount; i++) {
+                types[i] = all[in.readByte()];
+            }
+        }
+
+        Object[] params = new Object[in.readShort()];
+        for (int i = 0; i < params.length; i++) {
+            byte tag = in.readByte();
+            switch (tag) {
+                case TAG_NULL -> params[i] = null;
+                case TAG_STRING -> params[i] = readString(in);
+                case TAG_INT -> params[i] = in.readInt();
+                case TAG_LONG -> params[i] = in.readLong();
+                case TAG_DOUBLE -> params[i] = in.readDouble();
+                case TAG_BOOLEAN -> params[i] = in.readBoolean();
+                case TAG_TIMESTAMP -> params[i] = new Timestamp(in.readLong());
+                default -> throw new IOException("Unknown parameter tag " + tag);
+            }
+        }
+
+        return new Entry(caller, sql, types, params, endOffset);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A journaled write and the offset just past its record
+     */
+    public static class Entry {
+        private final String caller;
+        private final String sql;
+        private final SqlType[] types;
+        private final Object[] params;
+        private final int endOffset;
+
+        private Entry(String caller, String sql, SqlType[] types, Object[] params, int endOffset) {
+            this.caller = caller;
+            this.sql = sql;
+            this.types = types;
+            this.params = params;
+            this.endOffset = endOffset;
+        }
+
+        public String getCaller() { return caller; }
+        public String getSql() { return sql; }
+        public SqlType[] getTypes() { return types; }
+        public Object[] getParams() { return params; }
+        public int getEndOffset() { return endOffset; }
+    }
+}
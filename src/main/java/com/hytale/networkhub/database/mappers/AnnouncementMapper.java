@@ -0,0 +1,64 @@
+package com.hytale.networkhub.database.mappers;
+
+import com.hytale.networkhub.database.models.Announcement;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Maps announcements rows; target_servers is stored comma separated
+ */
+public class AnnouncementMapper extends ColumnMapper<Announcement> {
+    private static final int CREATED_BY_UUID = 0;
+    private static final int CREATED_BY_NAME = 1;
+    private static final int TITLE = 2;
+    private static final int SUBTITLE = 3;
+    private static final int ACTION_BAR = 4;
+    private static final int DISPLAY_TYPE = 5;
+    private static final int TARGET_SERVERS = 6;
+    private static final int TARGET_PERMISSIONS = 7;
+    private static final int DURATION_SECONDS = 8;
+    private static final int PRIORITY = 9;
+    private static final int SOUND = 10;
+
+    private static final Announcement.DisplayType[] DISPLAY_TYPES = Announcement.DisplayType.values();
+
+    public AnnouncementMapper() {
+        super("created_by_uuid", "created_by_name", "title", "subtitle", "action_bar", "display_type",
+            "target_servers", "target_permissions", "duration_seconds", "priority", "sound");
+    }
+
+    @Override
+    protected Announcement map(ResultSet rs, int[] index) throws SQLException {
+        Announcement announcement = new Announcement();
+        announcement.setCreatorUuid(getUuid(rs, index[CREATED_BY_UUID]));
+        announcement.setCreatorName(getString(rs, index[CREATED_BY_NAME]));
+        announcement.setTitle(getString(rs, index[TITLE]));
+        announcement.setSubtitle(getString(rs, index[SUBTITLE]));
+        announcement.setActionBar(getString(rs, index[ACTION_BAR]));
+        announcement.setDisplayType(parseDisplayType(getString(rs, index[DISPLAY_TYPE])));
+
+        String targetServers = getString(rs, index[TARGET_SERVERS]);
+        if (targetServers != null && !targetServers.isEmpty()) {
+            announcement.setTargetServers(new ArrayList<>(Arrays.asList(targetServers.split(","))));
+        }
+
+        announcement.setTargetPermissions(getString(rs, index[TARGET_PERMISSIONS]));
+        announcement.setDurationSeconds(getInt(rs, index[DURATION_SECONDS]));
+        announcement.setPriority(getInt(rs, index[PRIORITY]));
+        announcement.setSound(getString(rs, index[SOUND]));
+        return announcement;
+    }
+
+    private static Announcement.DisplayType parseDisplayType(String value) {
+        if (value == null) return null;
+        for (Announcement.DisplayType type : DISPLAY_TYPES) {
+            if (type.name().equals(value)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,122 @@
+package com.hytale.networkhub.database.mappers;
+
+import com.hytale.networkhub.database.DatabaseManager;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Row mapper that resolves its columns once per result shape and reads every row by index
+ * A shape is the result set's column labels in order, so every run of the same statement shares one lookup
+ * Columns missing from the result set resolve to index 0 and read as null, zero or false
+ */
+public abstract class ColumnMapper<T> implements DatabaseManager.RowMapper<T> {
+    /** A mapper only ever sees a few statements; past this many shapes the cache starts over */
+    private static final int MAX_SHAPES = 64;
+
+    private final String[] columns;
+    private final Map<List<String>, int[]> shapes = new ConcurrentHashMap<>();
+    private volatile Binding binding;
+
+    protected ColumnMapper(String... columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public T map(ResultSet rs) throws SQLException {
+        Binding current = binding;
+        if (current == null || current.resultSet.get() != rs) {
+            current = new Binding(rs, indexesFor(rs.getMetaData()));
+            binding = current;
+        }
+        return map(rs, current.indexes);
+    }
+
+    /**
+     * Map the current row; index[i] is the JDBC column index of the i-th constructor column
+     */
+    protected abstract T map(ResultSet rs, int[] index) throws SQLException;
+
+    private int[] indexesFor(ResultSetMetaData meta) throws SQLException {
+        String[] labels = new String[meta.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = meta.getColumnLabel(i + 1).toLowerCase(Locale.ROOT);
+        }
+
+        List<String> shape = Arrays.asList(labels);
+        int[] indexes = shapes.get(shape);
+        if (indexes == null) {
+            if (shapes.size() >= MAX_SHAPES) {
+                shapes.clear();
+            }
+            indexes = resolve(labels);
+            shapes.put(shape, indexes);
+        }
+        return indexes;
+    }
+
+    private int[] resolve(String[] labels) {
+        Map<String, Integer> byLabel = new HashMap<>(labels.length * 2);
+        for (int i = 0; i < labels.length; i++) {
+            byLabel.putIfAbsent(labels[i], i + 1);
+        }
+
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = byLabel.getOrDefault(columns[i], 0);
+        }
+        return indexes;
+    }
+
+    protected static String getString(ResultSet rs, int index) throws SQLException {
+        return index > 0 ? rs.getString(index) : null;
+    }
+
+    protected static int getInt(ResultSet rs, int index) throws SQLException {
+        return index > 0 ? rs.getInt(index) : 0;
+    }
+
+    protected static long getLong(ResultSet rs, int index) throws SQLException {
+        return index > 0 ? rs.getLong(index) : 0;
+    }
+
+    protected static double getDouble(ResultSet rs, int index) throws SQLException {
+        return index > 0 ? rs.getDouble(index) : 0;
+    }
+
+    protected static boolean getBoolean(ResultSet rs, int index) throws SQLException {
+        return index > 0 && rs.getBoolean(index);
+    }
+
+    protected static Timestamp getTimestamp(ResultSet rs, int index) throws SQLException {
+        return index > 0 ? rs.getTimestamp(index) : null;
+    }
+
+    protected static UUID getUuid(ResultSet rs, int index) throws SQLException {
+        String value = getString(rs, index);
+        return value != null ? UUID.fromString(value) : null;
+    }
+
+    /**
+     * The indexes in use for the current result set, so its rows skip the metadata; weakly held so a finished query can be collected
+     */
+    private static class Binding {
+        private final WeakReference<ResultSet> resultSet;
+        private final int[] indexes;
+
+        private Binding(ResultSet resultSet, int[] indexes) {
+            this.resultSet = new WeakReference<>(resultSet);
+            this.indexes = indexes;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.hytale.networkhub.database.mappers;
+
+import com.hytale.networkhub.database.models.PlayerLocation;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps player_locations rows
+ */
+public class PlayerLocationMapper extends ColumnMapper<PlayerLocation> {
+    private static final int PLAYER_UUID = 0;
+    private static final int PLAYER_NAME = 1;
+    private static final int SERVER_ID = 2;
+    private static final int JOINED_AT = 3;
+    private static final int LAST_SEEN = 4;
+    private static final int WORLD_NAME = 5;
+    private static final int X = 6;
+    private static final int Y = 7;
+    private static final int Z = 8;
+
+    public PlayerLocationMapper() {
+        super("player_uuid", "player_name", "server_id", "joined_at", "last_seen", "world_name", "x", "y", "z");
+    }
+
+    @Override
+    protected PlayerLocation map(ResultSet rs, int[] index) throws SQLException {
+        PlayerLocation location = new PlayerLocation();
+        location.setPlayerUuid(getUuid(rs, index[PLAYER_UUID]));
+        location.setPlayerName(getString(rs, index[PLAYER_NAME]));
+        location.setServerId(getString(rs, index[SERVER_ID]));
+        location.setJoinedAt(getTimestamp(rs, index[JOINED_AT]));
+        location.setLastSeen(getTimestamp(rs, index[LAST_SEEN]));
+        location.setWorldName(getString(rs, index[WORLD_NAME]));
+        location.setX(getDouble(rs, index[X]));
+        location.setY(getDouble(rs, index[Y]));
+        location.setZ(getDouble(rs, index[Z]));
+        return location;
+    }
+}
@@ -0,0 +1,39 @@
+package com.hytale.networkhub.database.mappers;
+
+import com.hytale.networkhub.database.models.QueueEntry;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps server_queues rows
+ */
+public class QueueEntryMapper extends ColumnMapper<QueueEntry> {
+    private static final int QUEUE_ID = 0;
+    private static final int SERVER_ID = 1;
+    private static final int PLAYER_UUID = 2;
+    private static final int PLAYER_NAME = 3;
+    private static final int PRIORITY = 4;
+    private static final int JOINED_QUEUE_AT = 5;
+    private static final int POSITION = 6;
+    private static final int NOTIFIED = 7;
+
+    public QueueEntryMapper() {
+        super("queue_id", "server_id", "player_uuid", "player_name", "priority", "joined_queue_at",
+            "position", "notified");
+    }
+
+    @Override
+    protected QueueEntry map(ResultSet rs, int[] index) throws SQLException {
+        QueueEntry entry = new QueueEntry();
+        entry.setQueueId(getInt(rs, index[QUEUE_ID]));
+        entry.setServerId(getString(rs, index[SERVER_ID]));
+        entry.setPlayerUuid(getUuid(rs, index[PLAYER_UUID]));
+        entry.setPlayerName(getString(rs, index[PLAYER_NAME]));
+        entry.setPriority(getInt(rs, index[PRIORITY]));
+        entry.setJoinedQueueAt(getTimestamp(rs, index[JOINED_QUEUE_AT]));
+        entry.setPosition(getInt(rs, index[POSITION]));
+        entry.setNotified(getBoolean(rs, index[NOTIFIED]));
+        return entry;
+    }
+}
@@ -0,0 +1,75 @@
+package com.hytale.networkhub.database.mappers;
+
+import com.hytale.networkhub.database.models.ServerRecord;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps servers rows joined with their server_health status and player count
+ */
+public class ServerRecordMapper extends ColumnMapper<ServerRecord> {
+    private static final int SERVER_ID = 0;
+    private static final int SERVER_NAME = 1;
+    private static final int HOST = 2;
+    private static final int PORT = 3;
+    private static final int SERVER_TYPE = 4;
+    private static final int IS_HUB = 5;
+    private static final int HUB_PRIORITY = 6;
+    private static final int MAX_PLAYERS = 7;
+    private static final int MOTD = 8;
+    private static final int REGISTERED_AT = 9;
+    private static final int LAST_UPDATED = 10;
+    private static final int STATUS = 11;
+    private static final int CURRENT_PLAYERS = 12;
+    private static final int TPS = 13;
+
+    private static final ServerRecord.ServerStatus[] STATUSES = ServerRecord.ServerStatus.values();
+
+    public ServerRecordMapper() {
+        super("server_id", "server_name", "host", "port", "server_type", "is_hub", "hub_priority",
+            "max_players", "motd", "registered_at", "last_updated", "status", "current_players", "tps");
+    }
+
+    @Override
+    protected ServerRecord map(ResultSet rs, int[] index) throws SQLException {
+        ServerRecord server = new ServerRecord();
+        server.setServerId(getString(rs, index[SERVER_ID]));
+        server.setServerName(getString(rs, index[SERVER_NAME]));
+        server.setHost(getString(rs, index[HOST]));
+        server.setPort(getInt(rs, index[PORT]));
+        server.setServerType(getString(rs, index[SERVER_TYPE]));
+        server.setHub(getBoolean(rs, index[IS_HUB]));
+        server.setHubPriority(getInt(rs, index[HUB_PRIORITY]));
+        server.setMaxPlayers(getInt(rs, index[MAX_PLAYERS]));
+        server.setMotd(getString(rs, index[MOTD]));
+        server.setRegisteredAt(getTimestamp(rs, index[REGISTERED_AT]));
+        server.setLastUpdated(getTimestamp(rs, index[LAST_UPDATED]));
+
+        // Status and current players from server_health
+        ServerRecord.ServerStatus status = parseStatus(getString(rs, index[STATUS]));
+        if (status != null) {
+            server.setStatus(status);
+            server.setCurrentPlayers(getInt(rs, index[CURRENT_PLAYERS]));
+            server.setTps(getDouble(rs, index[TPS]));
+        } else {
+            server.setStatus(ServerRecord.ServerStatus.OFFLINE);
+            server.setCurrentPlayers(0);
+        }
+
+        return server;
+    }
+
+    /**
+     * Linear scan over the few statuses, avoids valueOf's map lookup and exception on bad input
+     */
+    private static ServerRecord.ServerStatus parseStatus(String value) {
+        if (value == null) return null;
+        for (ServerRecord.ServerStatus status : STATUSES) {
+            if (status.name().equals(value)) {
+                return status;
+            }
+        }
+        return null;
+    }
+}
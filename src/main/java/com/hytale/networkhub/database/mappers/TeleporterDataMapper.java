@@ -0,0 +1,54 @@
+package com.hytale.networkhub.database.mappers;
+
+import com.hytale.networkhub.database.models.TeleporterData;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps teleporters rows
+ */
+public class TeleporterDataMapper extends ColumnMapper<TeleporterData> {
+    private static final int TELEPORTER_ID = 0;
+    private static final int SERVER_ID = 1;
+    private static final int WORLD_NAME = 2;
+    private static final int X = 3;
+    private static final int Y = 4;
+    private static final int Z = 5;
+    private static final int DESTINATION_SERVER_ID = 6;
+    private static final int DESTINATION_WORLD = 7;
+    private static final int DESTINATION_X = 8;
+    private static final int DESTINATION_Y = 9;
+    private static final int DESTINATION_Z = 10;
+    private static final int DISPLAY_NAME = 11;
+    private static final int PERMISSION = 12;
+    private static final int COOLDOWN_SECONDS = 13;
+    private static final int ENABLED = 14;
+
+    public TeleporterDataMapper() {
+        super("teleporter_id", "server_id", "world_name", "x", "y", "z", "destination_server_id",
+            "destination_world", "destination_x", "destination_y", "destination_z", "display_name",
+            "permission", "cooldown_seconds", "enabled");
+    }
+
+    @Override
+    protected TeleporterData map(ResultSet rs, int[] index) throws SQLException {
+        TeleporterData tp = new TeleporterData();
+        tp.setTeleporterId(getInt(rs, index[TELEPORTER_ID]));
+        tp.setServerId(getString(rs, index[SERVER_ID]));
+        tp.setWorldName(getString(rs, index[WORLD_NAME]));
+        tp.setX(getInt(rs, index[X]));
+        tp.setY(getInt(rs, index[Y]));
+        tp.setZ(getInt(rs, index[Z]));
+        tp.setDestinationServerId(getString(rs, index[DESTINATION_SERVER_ID]));
+        tp.setDestinationWorld(getString(rs, index[DESTINATION_WORLD]));
+        tp.setDestinationX(getDouble(rs, index[DESTINATION_X]));
+        tp.setDestinationY(getDouble(rs, index[DESTINATION_Y]));
+        tp.setDestinationZ(getDouble(rs, index[DESTINATION_Z]));
+        tp.setDisplayName(getString(rs, index[DISPLAY_NAME]));
+        tp.setPermission(getString(rs, index[PERMISSION]));
+        tp.setCooldownSeconds(getInt(rs, index[COOLDOWN_SECONDS]));
+        tp.setEnabled(getBoolean(rs, index[ENABLED]));
+        return tp;
+    }
+}
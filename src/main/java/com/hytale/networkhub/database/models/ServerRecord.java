@@ -13,6 +13,8 @@ public class ServerRecord {
     private int hubPriority;
     private int maxPlayers;
     private int currentPlayers;
+    private double tps;
+    private double tickP99Millis;
     private String motd;
     private ServerStatus status;
     private Timestamp registeredAt;
@@ -57,6 +59,14 @@ public class ServerRecord {
     public int getCurrentPlayers() { return currentPlayers; }
     public void setCurrentPlayers(int currentPlayers) { this.currentPlayers = currentPlayers; }
 
+    /** Ticks per second over the last heartbeat window, 0 if unknown */
+    public double getTps() { return tps; }
+    public void setTps(double tps) { this.tps = tps; }
+
+    /** 99th percentile tick time over the last heartbeat window, 0 if unknown */
+    public double getTickP99Millis() { return tickP99Millis; }
+    public void setTickP99Millis(double tickP99Millis) { this.tickP99Millis = tickP99Millis; }
+
     public String getMotd() { return motd; }
     public void setMotd(String motd) { this.motd = motd; }
 
@@ -5,6 +5,7 @@ import com.hytale.networkhub.database.models.ServerRecord;
 import com.hytale.networkhub.managers.MessagingManager;
 import com.hytale.networkhub.managers.QueueManager;
 import com.hytale.networkhub.managers.ServerRegistryManager;
+import com.hytale.networkhub.managers.ServerRegistrySnapshot;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.Message;
 
@@ -138,43 +139,26 @@ public class NetworkHUD {
         NetworkStats stats = new NetworkStats();
 
         try {
-            // Get all servers
-            List<ServerRecord> servers = registryManager.getAllServers();
-            stats.setTotalServers(servers.size());
-
-            int totalPlayers = 0;
-            int onlineServers = 0;
-            int hubPlayers = 0;
-            int gamePlayers = 0;
-            Map<String, ServerInfo> serverInfoMap = new HashMap<>();
+            // Totals are precomputed by the registry snapshot
+            ServerRegistrySnapshot snapshot = registryManager.getSnapshot();
+            stats.setTotalServers(snapshot.getTotalServers());
 
-            for (ServerRecord server : servers) {
-                if (server.getStatus() == ServerRecord.ServerStatus.ONLINE) {
-                    onlineServers++;
-                    int playerCount = server.getCurrentPlayers();
-                    totalPlayers += playerCount;
-
-                    if (server.isHub()) {
-                        hubPlayers += playerCount;
-                    } else {
-                        gamePlayers += playerCount;
-                    }
-
-                    // Store server info for detailed display
-                    serverInfoMap.put(server.getServerId(), new ServerInfo(
-                        server.getServerName(),
-                        server.getServerId(),
-                        playerCount,
-                        server.getMaxPlayers(),
-                        server.isHub()
-                    ));
-                }
+            Map<String, ServerInfo> serverInfoMap = new HashMap<>();
+            for (ServerRecord server : snapshot.getOnlineServers()) {
+                // Store server info for detailed display
+                serverInfoMap.put(server.getServerId(), new ServerInfo(
+                    server.getServerName(),
+                    server.getServerId(),
+                    server.getCurrentPlayers(),
+                    server.getMaxPlayers(),
+                    server.isHub()
+                ));
             }
 
-            stats.setTotalPlayers(totalPlayers);
-            stats.setOnlineServers(onlineServers);
-            stats.setHubPlayers(hubPlayers);
-            stats.setGamePlayers(gamePlayers);
+            stats.setTotalPlayers(snapshot.getOnlinePlayers());
+            stats.setOnlineServers(snapshot.getOnlineServerCount());
+            stats.setHubPlayers(snapshot.getHubPlayers());
+            stats.setGamePlayers(snapshot.getGamePlayers());
             stats.setServerInfoMap(serverInfoMap);
 
             // Get queue counts
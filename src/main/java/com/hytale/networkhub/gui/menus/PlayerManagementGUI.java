@@ -1,6 +1,7 @@
 package com.hytale.networkhub.gui.menus;
 
 import com.hytale.networkhub.config.NetworkConfig;
+import com.hytale.networkhub.database.KeysetPage;
 import com.hytale.networkhub.database.models.PlayerLocation;
 import com.hytale.networkhub.database.models.ServerRecord;
 import com.hytale.networkhub.gui.GUIManager;
@@ -10,7 +11,9 @@ import com.hytale.networkhub.managers.TransferManager;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.Message;
 
-import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import com.hypixel.hytale.logger.HytaleLogger;
 import java.util.logging.Level;
 
@@ -20,6 +23,7 @@ import java.util.logging.Level;
  */
 public class PlayerManagementGUI {
     private static final String GUI_ID = "player_management";
+    private static final int PAGE_SIZE = 50;
 
     private final HytaleLogger logger;
     private final NetworkConfig config;
@@ -28,6 +32,9 @@ public class PlayerManagementGUI {
     private final ServerRegistryManager registryManager;
     private final TransferManager transferManager;
 
+    // Last player shown to each admin, the keyset cursor for their next page
+    private final Map<UUID, PlayerLocation> locationCursors = new ConcurrentHashMap<>();
+
     public PlayerManagementGUI(HytaleLogger logger, NetworkConfig config, GUIManager guiManager,
                               PlayerTrackingManager trackingManager, ServerRegistryManager registryManager,
                               TransferManager transferManager) {
@@ -60,6 +67,7 @@ public class PlayerManagementGUI {
      * Close the GUI
      */
     public void close(Player player) {
+        locationCursors.remove(player.getPlayerRef().getUuid());
         guiManager.trackGUIClose(player);
     }
 
@@ -78,28 +86,54 @@ public class PlayerManagementGUI {
     }
 
     /**
-     * Display player locations
+     * Display the first page of player locations
      */
     public void displayPlayerLocations(Player admin) {
-        // Get all online players
-        List<PlayerLocation> locations = trackingManager.getAllOnlinePlayers();
+        locationCursors.remove(admin.getPlayerRef().getUuid());
+        displayPlayerLocationsPage(admin);
+    }
 
-        admin.sendMessage(Message.raw("§8§m-------------------------"));
-        admin.sendMessage(Message.raw("§6§lOnline Players: §f" + locations.size()));
-        admin.sendMessage(Message.raw("§8§m-------------------------"));
+    /**
+     * Display the next page of player locations after the one last shown to this admin
+     */
+    public void displayNextPlayerLocations(Player admin) {
+        displayPlayerLocationsPage(admin);
+    }
 
-        if (locations.isEmpty()) {
-            admin.sendMessage(Message.raw("§7No players online"));
-            return;
+    private void displayPlayerLocationsPage(Player admin) {
+        UUID adminUuid = admin.getPlayerRef().getUuid();
+        PlayerLocation cursor = locationCursors.get(adminUuid);
+        KeysetPage<PlayerLocation> page = trackingManager.getOnlinePlayersPage(cursor, PAGE_SIZE);
+
+        if (cursor == null) {
+            admin.sendMessage(Message.raw("§8§m-------------------------"));
+            admin.sendMessage(Message.raw("§6§lOnline Players: §f" + trackingManager.getOnlinePlayerCount()));
+            admin.sendMessage(Message.raw("§8§m-------------------------"));
+
+            if (page.isEmpty()) {
+                admin.sendMessage(Message.raw("§7No players online"));
+                return;
+            }
         }
 
-        // Group by server
-        locations.stream()
-            .collect(java.util.stream.Collectors.groupingBy(PlayerLocation::getServerId))
-            .forEach((serverId, players) -> {
-                admin.sendMessage(Message.raw(String.format("§e%s §7(%d players):", serverId, players.size())));
-                players.forEach(p -> admin.sendMessage(Message.raw("  §7- §f" + p.getPlayerName())));
-            });
+        // Rows arrive ordered by server, so a header goes in wherever the server changes
+        Map<String, Integer> serverCounts = trackingManager.getPlayerCountsByServer();
+        String currentServer = cursor != null ? cursor.getServerId() : null;
+        for (PlayerLocation location : page.getItems()) {
+            if (!location.getServerId().equals(currentServer)) {
+                currentServer = location.getServerId();
+                admin.sendMessage(Message.raw(String.format("§e%s §7(%d players):",
+                    currentServer, serverCounts.getOrDefault(currentServer, 0))));
+            }
+            admin.sendMessage(Message.raw("  §7- §f" + location.getPlayerName()));
+        }
+
+        if (page.hasMore()) {
+            locationCursors.put(adminUuid, page.getLast());
+            admin.sendMessage(Message.raw("§7More players available, open the next page to continue"));
+        } else {
+            locationCursors.remove(adminUuid);
+        }
 
         admin.sendMessage(Message.raw("§8§m-------------------------"));
     }
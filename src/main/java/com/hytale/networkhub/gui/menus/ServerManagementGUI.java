@@ -3,6 +3,7 @@ package com.hytale.networkhub.gui.menus;
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.models.ServerRecord;
 import com.hytale.networkhub.gui.GUIManager;
+import com.hytale.networkhub.managers.HealthHistory;
 import com.hytale.networkhub.managers.HubManager;
 import com.hytale.networkhub.managers.ServerRegistryManager;
 import com.hypixel.hytale.server.core.entity.entities.Player;
@@ -23,14 +24,17 @@ public class ServerManagementGUI {
     private final GUIManager guiManager;
     private final ServerRegistryManager registryManager;
     private final HubManager hubManager;
+    private final HealthHistory healthHistory;
 
     public ServerManagementGUI(HytaleLogger logger, NetworkConfig config, GUIManager guiManager,
-                              ServerRegistryManager registryManager, HubManager hubManager) {
+                              ServerRegistryManager registryManager, HubManager hubManager,
+                              HealthHistory healthHistory) {
         this.logger = logger;
         this.config = config;
         this.guiManager = guiManager;
         this.registryManager = registryManager;
         this.hubManager = hubManager;
+        this.healthHistory = healthHistory;
 
         // Register with GUI manager
         guiManager.registerGUI(GUI_ID, this);
@@ -103,6 +107,15 @@ public class ServerManagementGUI {
     public void handleServerClick(Player player, ServerRecord server) {
         // TODO: Open server edit submenu
         player.sendMessage(Message.raw("§7Editing server: §e" + server.getServerName()));
+
+        // The last hour at a glance, /network history has the detail
+        List<HealthHistory.Point> lastHour = healthHistory.getSeries(server.getServerId(),
+            HealthHistory.Resolution.ONE_MINUTE, 60);
+        if (!lastHour.isEmpty()) {
+            player.sendMessage(Message.raw("§7Players (1h): §a" + HealthHistory.sparkline(lastHour, HealthHistory.Point::getPlayersAvg)));
+            player.sendMessage(Message.raw("§7TPS (1h): §a" + HealthHistory.sparkline(lastHour, HealthHistory.Point::getTpsAvg)));
+        }
+
         player.sendMessage(Message.raw("§7Commands:"));
         player.sendMessage(Message.raw("§e/network sethub " + server.getServerId() + " [priority]"));
         player.sendMessage(Message.raw("§e/network unsethub " + server.getServerId()));
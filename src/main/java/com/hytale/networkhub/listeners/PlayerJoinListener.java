@@ -29,8 +29,10 @@ public class PlayerJoinListener {
 
     public void onPlayerJoin(Player player) {
         try {
+            long timestamp = System.currentTimeMillis();
+
             // Track in database
-            trackingManager.trackJoin(player.getPlayerRef().getUuid(), player.getPlayerRef().getUsername());
+            trackingManager.trackJoin(player.getPlayerRef().getUuid(), player.getPlayerRef().getUsername(), timestamp);
 
             // Publish to Redis for real-time updates
             if (redisManager.isEnabled()) {
@@ -38,7 +40,7 @@ public class PlayerJoinListener {
                 message.put("playerUuid", player.getPlayerRef().getUuid().toString());
                 message.put("playerName", player.getPlayerRef().getUsername());
                 message.put("serverId", serverId);
-                message.put("timestamp", System.currentTimeMillis());
+                message.put("timestamp", timestamp);
 
                 redisManager.publish(redisManager.getChannel("playerJoin"), message);
             }
@@ -26,8 +26,10 @@ public class PlayerQuitListener {
 
     public void onPlayerQuit(PlayerRef playerRef) {
         try {
+            long timestamp = System.currentTimeMillis();
+
             // Update last seen in database
-            trackingManager.trackQuit(playerRef.getUuid());
+            trackingManager.trackQuit(playerRef.getUuid(), timestamp);
 
             // Publish to Redis
             if (redisManager.isEnabled()) {
@@ -35,7 +37,7 @@ public class PlayerQuitListener {
                 message.put("playerUuid", playerRef.getUuid().toString());
                 message.put("playerName", playerRef.getUsername());
                 message.put("serverId", serverId);
-                message.put("timestamp", System.currentTimeMillis());
+                message.put("timestamp", timestamp);
 
                 redisManager.publish(redisManager.getChannel("playerQuit"), message);
             }
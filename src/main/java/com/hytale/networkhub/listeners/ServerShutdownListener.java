@@ -9,6 +9,7 @@ import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.Message;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import com.hypixel.hytale.logger.HytaleLogger;
@@ -52,14 +53,8 @@ public class ServerShutdownListener {
         logger.at(Level.INFO).log("Server shutting down, evacuating " + onlinePlayers.size() + " players to hub...");
 
         try {
-            // Select fallback hub
-            ServerRecord hub = hubManager.selectFallbackHub();
-            if (hub == null) {
-                logger.at(Level.SEVERE).log("No hub available for fallback! Players will be disconnected!");
-                return;
-            }
-
-            logger.at(Level.INFO).log("Transferring players to hub: " + hub.getServerName());
+            // Spread players across the available hubs
+            List<ServerRecord> hubs = hubManager.selectFallbackHubs(onlinePlayers.size());
 
             // Small delay before transfer
             int delaySeconds = config.getConfig().fallback.transferDelaySeconds;
@@ -75,6 +70,7 @@ public class ServerShutdownListener {
             for (Player player : onlinePlayers) {
                 player.sendMessage(Message.raw("§cServer restarting, transferring to hub..."));
 
+                ServerRecord hub = hubs.get(i);
                 futures[i++] = transferManager.transferPlayer(
                     player.getPlayerRef(),
                     hub,
@@ -115,18 +111,15 @@ public class ServerShutdownListener {
         logger.at(Level.INFO).log("Evacuating " + onlinePlayers.size() + " players...");
 
         try {
-            ServerRecord hub = hubManager.selectFallbackHub();
-            if (hub == null) {
-                logger.at(Level.SEVERE).log("No hub available for evacuation!");
-                return;
-            }
+            List<ServerRecord> hubs = hubManager.selectFallbackHubs(onlinePlayers.size());
+            int i = 0;
 
             for (Player player : onlinePlayers) {
                 player.sendMessage(Message.raw("§eYou are being transferred to the hub..."));
 
                 transferManager.transferPlayer(
                     player.getPlayerRef(),
-                    hub,
+                    hubs.get(i++),
                     TransferManager.TransferType.FALLBACK,
                     "Manual evacuation"
                 );
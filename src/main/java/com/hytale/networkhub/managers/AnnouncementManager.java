@@ -3,6 +3,7 @@ package com.hytale.networkhub.managers;
 import com.google.gson.Gson;
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
 import com.hytale.networkhub.database.models.Announcement;
 import com.hytale.networkhub.redis.RedisManager;
 import com.hypixel.hytale.server.core.entity.entities.Player;
@@ -38,24 +39,7 @@ public class AnnouncementManager {
         if (config.getConfig().announcements.logToDatabase) {
             String targetServersStr = String.join(",", announcement.getTargetServers());
 
-            String sql = """
-                INSERT INTO announcements (created_by_uuid, created_by_name, title, subtitle, action_bar,
-                                          display_type, target_servers, target_permissions, duration_seconds,
-                                          priority, sound, created_at, expires_at)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP + INTERVAL '? seconds')
-            """;
-
-            // For MySQL/MariaDB
-            if (isMySQL()) {
-                sql = """
-                    INSERT INTO announcements (created_by_uuid, created_by_name, title, subtitle, action_bar,
-                                              display_type, target_servers, target_permissions, duration_seconds,
-                                              priority, sound, created_at, expires_at)
-                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, DATE_ADD(CURRENT_TIMESTAMP, INTERVAL ? SECOND))
-                """;
-            }
-
-            dbManager.executeUpdateAsync(sql,
+            dbManager.executeUpdateAsync(SqlStatement.ANNOUNCEMENT_INSERT,
                 announcement.getCreatorUuid().toString(),
                 announcement.getCreatorName(),
                 announcement.getTitle(),
@@ -137,8 +121,4 @@ public class AnnouncementManager {
         //     player.playSound(announcement.getSound());
         // }
     }
-
-    private boolean isMySQL() {
-        return true; // Simplified
-    }
 }
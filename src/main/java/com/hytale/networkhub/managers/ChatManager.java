@@ -3,6 +3,7 @@ package com.hytale.networkhub.managers;
 import com.google.gson.Gson;
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
 import com.hytale.networkhub.redis.RedisManager;
 
 import java.util.HashMap;
@@ -78,16 +79,12 @@ public class ChatManager {
     }
 
     private void persistChatMessage(UUID senderUuid, String senderName, String messageType, String content) {
-        String sql = """
-            INSERT INTO chat_messages (player_uuid, player_name, server_id, message_type, content, sent_at)
-            VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
-        """;
-
-        dbManager.executeUpdateAsync(sql,
+        dbManager.executeUpdateAsync(SqlStatement.CHAT_MESSAGE_INSERT,
             senderUuid.toString(),
             senderName,
             config.getConfig().server.serverId,
             messageType,
+            null,
             content
         );
     }
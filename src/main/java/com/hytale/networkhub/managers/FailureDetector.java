@@ -0,0 +1,140 @@
+package com.hytale.networkhub.managers;
+
+import com.hytale.networkhub.config.NetworkConfig;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Phi accrual failure detector over each server's heartbeat inter-arrival times
+ * Instead of a yes/no timeout it gives a suspicion level phi, where phi = 1 means a 10% chance the server
+ * is still alive, phi = 2 a 1% chance, and so on, judged against how regularly that server has beaten so far
+ * A server with steady heartbeats is suspected soon after it goes quiet, a jittery one is given more slack
+ */
+public class FailureDetector {
+    private final Map<String, ArrivalWindow> windows = new ConcurrentHashMap<>();
+    private final int windowSize;
+    private final double expectedIntervalMillis;
+    private final double minStdDeviationMillis;
+    private final double acceptablePauseMillis;
+
+    public FailureDetector(NetworkConfig.HeartbeatConfig config) {
+        this.windowSize = Math.max(2, config.arrivalWindowSize);
+        this.expectedIntervalMillis = config.intervalSeconds * 1000.0;
+        this.minStdDeviationMillis = Math.max(1, config.minStdDeviationMillis);
+        this.acceptablePauseMillis = Math.max(0, config.acceptablePauseMillis);
+    }
+
+    /**
+     * Record a heartbeat from a server at the given time
+     */
+    public void heartbeat(String serverId, long arrivalMillis) {
+        windows.computeIfAbsent(serverId, id -> new ArrivalWindow()).arrived(arrivalMillis);
+    }
+
+    /**
+     * Start watching a server we have not heard from, as if it had just beaten
+     * So a server that died while nobody was listening is still suspected once it stays quiet
+     */
+    public void watch(String serverId, long nowMillis) {
+        windows.computeIfAbsent(serverId, id -> {
+            ArrivalWindow window = new ArrivalWindow();
+            window.arrived(nowMillis);
+            return window;
+        });
+    }
+
+    /**
+     * Forget a server's history, its next heartbeat starts a fresh window
+     */
+    public void remove(String serverId) {
+        windows.remove(serverId);
+    }
+
+    /**
+     * Forget every server not in the given set
+     */
+    public void retainOnly(Set<String> serverIds) {
+        windows.keySet().retainAll(serverIds);
+    }
+
+    public boolean isWatching(String serverId) {
+        return windows.containsKey(serverId);
+    }
+
+    /**
+     * Time since a server's last heartbeat, -1 if it is not being watched
+     */
+    public long millisSinceHeartbeat(String serverId, long nowMillis) {
+        ArrivalWindow window = windows.get(serverId);
+        return window != null ? nowMillis - window.lastArrival() : -1;
+    }
+
+    /**
+     * The suspicion level for a server at the given time, 0 if it is not being watched
+     */
+    public double phi(String serverId, long nowMillis) {
+        ArrivalWindow window = windows.get(serverId);
+        return window != null ? window.phi(nowMillis) : 0.0;
+    }
+
+    /**
+     * Inter-arrival times in a ring buffer, with running sums so phi needs no pass over the samples
+     */
+    private class ArrivalWindow {
+        private final long[] intervals = new long[windowSize];
+        private int count;
+        private int next;
+        private double sum;
+        private double sumOfSquares;
+        private long lastArrival = -1;
+
+        synchronized void arrived(long arrivalMillis) {
+            if (lastArrival < 0) {
+                // Seed with the configured interval so the first few heartbeats are judged sensibly
+                double spread = expectedIntervalMillis / 4;
+                add(Math.round(expectedIntervalMillis - spread));
+                add(Math.round(expectedIntervalMillis + spread));
+            } else if (arrivalMillis > lastArrival) {
+                add(arrivalMillis - lastArrival);
+            } else {
+                return;
+            }
+            lastArrival = arrivalMillis;
+        }
+
+        private void add(long interval) {
+            if (count == intervals.length) {
+                long evicted = intervals[next];
+                sum -= evicted;
+                sumOfSquares -= (double) evicted * evicted;
+            } else {
+                count++;
+            }
+            intervals[next] = interval;
+            next = (next + 1) % intervals.length;
+            sum += interval;
+            sumOfSquares += (double) interval * interval;
+        }
+
+        synchronized long lastArrival() {
+            return lastArrival;
+        }
+
+        synchronized double phi(long nowMillis) {
+            double elapsed = nowMillis - lastArrival;
+            double mean = sum / count;
+            double variance = Math.max(0, sumOfSquares / count - mean * mean);
+            double stdDeviation = Math.max(minStdDeviationMillis, Math.sqrt(variance));
+
+            // Logistic approximation of the normal distribution's tail, as used by Akka
+            double y = (elapsed - (mean + acceptablePauseMillis)) / stdDeviation;
+            double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+            if (elapsed > mean + acceptablePauseMillis) {
+                return -Math.log10(e / (1.0 + e));
+            }
+            return -Math.log10(1.0 - 1.0 / (1.0 + e));
+        }
+    }
+}
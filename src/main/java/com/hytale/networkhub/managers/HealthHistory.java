@@ -0,0 +1,435 @@
+package com.hytale.networkhub.managers;
+
+import com.hytale.networkhub.config.NetworkConfig;
+import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
+import com.hytale.networkhub.redis.HeartbeatMessage;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+import com.hypixel.hytale.logger.HytaleLogger;
+import java.util.logging.Level;
+
+/**
+ * Per-server history of heartbeat values, rolled up at 10 second, 1 minute and 1 hour resolution
+ * Each resolution is a fixed ring of buckets, so memory stays constant and old buckets are overwritten in place
+ * Only this server's own minute and hour buckets are persisted, each run of the server writing its part of a bucket once;
+ * rows are merged, so a bucket that spans a restart keeps the samples from both sides of it
+ * Other servers' history comes from the heartbeat channel, or from the persisted rows when it is not in memory
+ */
+public class HealthHistory {
+    private static final String SPARK_CHARS = "▁▂▃▄▅▆▇█";
+
+    private final HytaleLogger logger;
+    private final DatabaseManager dbManager;
+    private final NetworkConfig config;
+    private final String serverId;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final Map<Resolution, Long> persistedUpTo = new EnumMap<>(Resolution.class);
+
+    public HealthHistory(HytaleLogger logger, DatabaseManager dbManager, NetworkConfig config) {
+        this.logger = logger;
+        this.dbManager = dbManager;
+        this.config = config;
+        this.serverId = config.getConfig().server.serverId;
+    }
+
+    /**
+     * Resolutions kept in memory; capacity is the number of buckets, so the span is width times capacity
+     */
+    public enum Resolution {
+        TEN_SECONDS(10, 360, false),   // 1 hour
+        ONE_MINUTE(60, 1440, true),    // 1 day
+        ONE_HOUR(3600, 720, true);     // 30 days
+
+        private final int seconds;
+        private final int capacity;
+        private final boolean persisted;
+
+        Resolution(int seconds, int capacity, boolean persisted) {
+            this.seconds = seconds;
+            this.capacity = capacity;
+            this.persisted = persisted;
+        }
+
+        public int getSeconds() { return seconds; }
+        public boolean isPersisted() { return persisted; }
+
+        long bucketStart(long timeMillis) {
+            long width = seconds * 1000L;
+            return timeMillis - Math.floorMod(timeMillis, width);
+        }
+
+        /**
+         * Parse a short form like 10s, 1m or 1h; null if it is none of them
+         */
+        public static Resolution parse(String value) {
+            switch (value.toLowerCase()) {
+                case "10s": return TEN_SECONDS;
+                case "1m": return ONE_MINUTE;
+                case "1h": return ONE_HOUR;
+                default: return null;
+            }
+        }
+    }
+
+    /**
+     * Record one heartbeat's values for a server
+     */
+    public void record(String server, long timeMillis, HeartbeatMessage heartbeat) {
+        if (!isEnabled()) return;
+        series.computeIfAbsent(server, id -> new Series()).record(timeMillis, heartbeat);
+    }
+
+    /**
+     * Forget a server's in-memory history, for servers removed from the network
+     */
+    public void forget(String server) {
+        series.remove(server);
+    }
+
+    /**
+     * Up to maxPoints of a server's most recent buckets at the given resolution, oldest first
+     * Served from memory, or from the persisted rows if this server has not seen the other's heartbeats
+     */
+    public List<Point> getSeries(String server, Resolution resolution, int maxPoints) {
+        Series memory = series.get(server);
+        List<Point> points = memory != null ? memory.points(resolution, maxPoints) : List.of();
+        if (!points.isEmpty() || !resolution.isPersisted() || !isPersistEnabled()) {
+            return points;
+        }
+
+        Timestamp since = new Timestamp(resolution.bucketStart(System.currentTimeMillis()) -
+            (long) maxPoints * resolution.getSeconds() * 1000L);
+        List<Point> stored = dbManager.executeQuery(SqlStatement.HISTORY_SELECT, rs -> {
+            List<Point> list = new ArrayList<>();
+            while (rs.next()) {
+                long heapAfterGcMax = rs.getLong("heap_after_gc_max");
+                if (rs.wasNull()) heapAfterGcMax = -1;
+                list.add(new Point(rs.getTimestamp("bucket_start").getTime(), rs.getInt("samples"),
+                    rs.getDouble("players_avg"), rs.getInt("players_max"),
+                    rs.getDouble("tps_avg"), rs.getDouble("tps_min"),
+                    rs.getDouble("memory_used_avg"), rs.getLong("memory_used_max"),
+                    rs.getDouble("cpu_avg"), rs.getDouble("cpu_max"),
+                    rs.getDouble("tick_mean_avg"), rs.getDouble("tick_p99_max"), rs.getDouble("tick_max"),
+                    rs.getDouble("gc_pause_total"), rs.getDouble("gc_pause_max"), rs.getInt("gc_count"),
+                    rs.getDouble("allocation_avg"), heapAfterGcMax));
+            }
+            return list;
+        }, server, resolution.getSeconds(), since);
+        return stored != null ? stored : List.of();
+    }
+
+    /**
+     * Write this server's buckets that closed since the last call
+     * Rows are merged into what is stored, so each is written at most once: a run stops at the first write that fails
+     * and the next one starts again from that bucket, without the journal, which could replay a row a retry also wrote
+     * With includeOpen, for shutdown only, the still filling buckets are written too, as a batch the journal may keep
+     * Returns the number of rows written
+     */
+    public synchronized int persist(boolean includeOpen) {
+        if (!isPersistEnabled()) return 0;
+
+        Series own = series.get(serverId);
+        if (own == null) return 0;
+
+        long now = System.currentTimeMillis();
+        List<Object[]> batch = new ArrayList<>();
+        int written = 0;
+        for (Resolution resolution : Resolution.values()) {
+            if (!resolution.isPersisted()) continue;
+
+            long open = resolution.bucketStart(now);
+            Long after = persistedUpTo.get(resolution);
+            int pending = after == null ? resolution.capacity
+                : (int) Math.min(resolution.capacity, (open - after) / (resolution.getSeconds() * 1000L) + 1);
+            // The open bucket is not done yet, the next run picks it up once it has closed
+            long upTo = open - 1;
+            for (Point point : own.points(resolution, pending)) {
+                if (point.getBucketStart() == open ? !includeOpen : after != null && point.getBucketStart() <= after) continue;
+
+                Object[] row = toRow(resolution, point);
+                if (includeOpen) {
+                    batch.add(row);
+                } else if (dbManager.executeUpdateUnjournaled(SqlStatement.HISTORY_MERGE, row) > 0) {
+                    written++;
+                } else {
+                    // Retried from here next run, later buckets too so they are never written twice
+                    upTo = point.getBucketStart() - 1;
+                    logger.at(Level.FINE).log("Could not persist health history, retrying next run");
+                    break;
+                }
+            }
+            persistedUpTo.put(resolution, includeOpen ? open : upTo);
+        }
+
+        if (!batch.isEmpty()) {
+            dbManager.executeBatch(SqlStatement.HISTORY_MERGE, batch);
+            written += batch.size();
+        }
+        if (written > 0) {
+            logger.at(Level.FINE).log("Persisted " + written + " health history buckets");
+        }
+        return written;
+    }
+
+    private Object[] toRow(Resolution resolution, Point point) {
+        return new Object[]{serverId, resolution.getSeconds(), new Timestamp(point.getBucketStart()),
+            point.getSamples(), point.getPlayersAvg(), point.getPlayersMax(), point.getTpsAvg(), point.getTpsMin(),
+            point.getMemoryUsedAvg(), point.getMemoryUsedMax(), point.getCpuAvg(), point.getCpuMax(),
+            point.getTickMeanAvg(), point.getTickP99Max(), point.getTickMax(),
+            point.getGcPauseTotal(), point.getGcPauseMax(), point.getGcCount(),
+            point.getAllocationAvg(), point.getHeapAfterGcMax() >= 0 ? point.getHeapAfterGcMax() : null};
+    }
+
+    /**
+     * A one-line chart of a metric across the points, scaled between its own minimum and maximum
+     */
+    public static String sparkline(List<Point> points, ToDoubleFunction<Point> metric) {
+        if (points.isEmpty()) return "";
+
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (Point point : points) {
+            double value = metric.applyAsDouble(point);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        StringBuilder line = new StringBuilder(points.size());
+        int levels = SPARK_CHARS.length() - 1;
+        for (Point point : points) {
+            double value = metric.applyAsDouble(point);
+            int level = max > min ? (int) Math.round((value - min) / (max - min) * levels) : 0;
+            line.append(SPARK_CHARS.charAt(level));
+        }
+        return line.toString();
+    }
+
+    private boolean isEnabled() {
+        return config.getConfig().history.enabled;
+    }
+
+    private boolean isPersistEnabled() {
+        return isEnabled() && config.getConfig().history.persist;
+    }
+
+    /**
+     * One server's rings, one per resolution
+     */
+    private static class Series {
+        private final Map<Resolution, Ring> rings = new EnumMap<>(Resolution.class);
+
+        Series() {
+            for (Resolution resolution : Resolution.values()) {
+                rings.put(resolution, new Ring(resolution));
+            }
+        }
+
+        synchronized void record(long timeMillis, HeartbeatMessage heartbeat) {
+            for (Ring ring : rings.values()) {
+                ring.add(timeMillis, heartbeat);
+            }
+        }
+
+        synchronized List<Point> points(Resolution resolution, int maxPoints) {
+            return rings.get(resolution).points(maxPoints);
+        }
+    }
+
+    /**
+     * Buckets of one resolution in parallel primitive arrays, a slot is reused once its bucket is a full span old
+     */
+    private static class Ring {
+        private final Resolution resolution;
+        private final long[] starts;
+        private final int[] samples;
+        private final float[] playersSum;
+        private final int[] playersMax;
+        private final float[] tpsSum;
+        private final float[] tpsMin;
+        private final float[] memorySum;
+        private final long[] memoryMax;
+        private final float[] cpuSum;
+        private final float[] cpuMax;
+        private final float[] tickMeanSum;
+        private final float[] tickP99Max;
+        private final float[] tickMax;
+        private final float[] gcPauseSum;
+        private final float[] gcPauseMax;
+        private final int[] gcCount;
+        private final float[] allocationSum;
+        private final long[] heapAfterGcMax;
+        private long newest = Long.MIN_VALUE;
+
+        Ring(Resolution resolution) {
+            int capacity = resolution.capacity;
+            this.resolution = resolution;
+            this.starts = new long[capacity];
+            this.samples = new int[capacity];
+            this.playersSum = new float[capacity];
+            this.playersMax = new int[capacity];
+            this.tpsSum = new float[capacity];
+            this.tpsMin = new float[capacity];
+            this.memorySum = new float[capacity];
+            this.memoryMax = new long[capacity];
+            this.cpuSum = new float[capacity];
+            this.cpuMax = new float[capacity];
+            this.tickMeanSum = new float[capacity];
+            this.tickP99Max = new float[capacity];
+            this.tickMax = new float[capacity];
+            this.gcPauseSum = new float[capacity];
+            this.gcPauseMax = new float[capacity];
+            this.gcCount = new int[capacity];
+            this.allocationSum = new float[capacity];
+            this.heapAfterGcMax = new long[capacity];
+            Arrays.fill(starts, Long.MIN_VALUE);
+        }
+
+        void add(long timeMillis, HeartbeatMessage heartbeat) {
+            long start = resolution.bucketStart(timeMillis);
+            // Too old for the ring, or for a slot that already holds a newer bucket
+            if (newest != Long.MIN_VALUE && start <= newest - (long) resolution.capacity * resolution.getSeconds() * 1000L) return;
+
+            int slot = slot(start);
+            if (starts[slot] != start) {
+                if (starts[slot] > start) return;
+                starts[slot] = start;
+                samples[slot] = 0;
+                playersSum[slot] = 0;
+                playersMax[slot] = 0;
+                tpsSum[slot] = 0;
+                tpsMin[slot] = Float.MAX_VALUE;
+                memorySum[slot] = 0;
+                memoryMax[slot] = 0;
+                cpuSum[slot] = 0;
+                cpuMax[slot] = 0;
+                tickMeanSum[slot] = 0;
+                tickP99Max[slot] = 0;
+                tickMax[slot] = 0;
+                gcPauseSum[slot] = 0;
+                gcPauseMax[slot] = 0;
+                gcCount[slot] = 0;
+                allocationSum[slot] = 0;
+                heapAfterGcMax[slot] = -1;
+            }
+
+            samples[slot]++;
+            playersSum[slot] += heartbeat.getCurrentPlayers();
+            playersMax[slot] = Math.max(playersMax[slot], heartbeat.getCurrentPlayers());
+            tpsSum[slot] += (float) heartbeat.getTps();
+            tpsMin[slot] = Math.min(tpsMin[slot], (float) heartbeat.getTps());
+            memorySum[slot] += heartbeat.getMemoryUsedMb();
+            memoryMax[slot] = Math.max(memoryMax[slot], heartbeat.getMemoryUsedMb());
+            cpuSum[slot] += (float) heartbeat.getCpuPercent();
+            cpuMax[slot] = Math.max(cpuMax[slot], (float) heartbeat.getCpuPercent());
+            tickMeanSum[slot] += (float) heartbeat.getTickMeanMs();
+            tickP99Max[slot] = Math.max(tickP99Max[slot], (float) heartbeat.getTickP99Ms());
+            tickMax[slot] = Math.max(tickMax[slot], (float) heartbeat.getTickMaxMs());
+            // Each heartbeat covers its own window, so pauses and collections add up over the bucket
+            gcPauseSum[slot] += (float) heartbeat.getGcPauseMs();
+            gcPauseMax[slot] = Math.max(gcPauseMax[slot], (float) heartbeat.getGcMaxPauseMs());
+            gcCount[slot] += heartbeat.getGcCount();
+            allocationSum[slot] += (float) heartbeat.getAllocationMbPerSec();
+            heapAfterGcMax[slot] = Math.max(heapAfterGcMax[slot], heartbeat.getHeapAfterGcMb());
+            newest = Math.max(newest, start);
+        }
+
+        List<Point> points(int maxPoints) {
+            List<Point> points = new ArrayList<>();
+            if (newest == Long.MIN_VALUE) return points;
+
+            long width = resolution.getSeconds() * 1000L;
+            int span = Math.min(maxPoints, resolution.capacity);
+            for (long start = newest - (span - 1) * width; start <= newest; start += width) {
+                int slot = slot(start);
+                if (starts[slot] != start) continue;
+
+                int n = samples[slot];
+                points.add(new Point(start, n, playersSum[slot] / n, playersMax[slot], tpsSum[slot] / n, tpsMin[slot],
+                    memorySum[slot] / n, memoryMax[slot], cpuSum[slot] / n, cpuMax[slot],
+                    tickMeanSum[slot] / n, tickP99Max[slot], tickMax[slot], gcPauseSum[slot], gcPauseMax[slot],
+                    gcCount[slot], allocationSum[slot] / n, heapAfterGcMax[slot]));
+            }
+            return points;
+        }
+
+        private int slot(long bucketStart) {
+            return (int) Math.floorMod(bucketStart / (resolution.getSeconds() * 1000L), (long) resolution.capacity);
+        }
+    }
+
+    /**
+     * One bucket's rollup: averages plus the extreme that matters for capacity, the lowest TPS and the highest rest
+     * GC pause time and collections are totals over the bucket; heap after GC is -1 if no collection was seen
+     */
+    public static class Point {
+        private final long bucketStart;
+        private final int samples;
+        private final double playersAvg;
+        private final int playersMax;
+        private final double tpsAvg;
+        private final double tpsMin;
+        private final double memoryUsedAvg;
+        private final long memoryUsedMax;
+        private final double cpuAvg;
+        private final double cpuMax;
+        private final double tickMeanAvg;
+        private final double tickP99Max;
+        private final double tickMax;
+        private final double gcPauseTotal;
+        private final double gcPauseMax;
+        private final int gcCount;
+        private final double allocationAvg;
+        private final long heapAfterGcMax;
+
+        public Point(long bucketStart, int samples, double playersAvg, int playersMax, double tpsAvg, double tpsMin,
+                     double memoryUsedAvg, long memoryUsedMax, double cpuAvg, double cpuMax,
+                     double tickMeanAvg, double tickP99Max, double tickMax, double gcPauseTotal, double gcPauseMax,
+                     int gcCount, double allocationAvg, long heapAfterGcMax) {
+            this.bucketStart = bucketStart;
+            this.samples = samples;
+            this.playersAvg = playersAvg;
+            this.playersMax = playersMax;
+            this.tpsAvg = tpsAvg;
+            this.tpsMin = tpsMin;
+            this.memoryUsedAvg = memoryUsedAvg;
+            this.memoryUsedMax = memoryUsedMax;
+            this.cpuAvg = cpuAvg;
+            this.cpuMax = cpuMax;
+            this.tickMeanAvg = tickMeanAvg;
+            this.tickP99Max = tickP99Max;
+            this.tickMax = tickMax;
+            this.gcPauseTotal = gcPauseTotal;
+            this.gcPauseMax = gcPauseMax;
+            this.gcCount = gcCount;
+            this.allocationAvg = allocationAvg;
+            this.heapAfterGcMax = heapAfterGcMax;
+        }
+
+        public long getBucketStart() { return bucketStart; }
+        public int getSamples() { return samples; }
+        public double getPlayersAvg() { return playersAvg; }
+        public int getPlayersMax() { return playersMax; }
+        public double getTpsAvg() { return tpsAvg; }
+        public double getTpsMin() { return tpsMin; }
+        public double getMemoryUsedAvg() { return memoryUsedAvg; }
+        public long getMemoryUsedMax() { return memoryUsedMax; }
+        public double getCpuAvg() { return cpuAvg; }
+        public double getCpuMax() { return cpuMax; }
+        public double getTickMeanAvg() { return tickMeanAvg; }
+        public double getTickP99Max() { return tickP99Max; }
+        public double getTickMax() { return tickMax; }
+        public double getGcPauseTotal() { return gcPauseTotal; }
+        public double getGcPauseMax() { return gcPauseMax; }
+        public int getGcCount() { return gcCount; }
+        public double getAllocationAvg() { return allocationAvg; }
+        public long getHeapAfterGcMax() { return heapAfterGcMax; }
+    }
+}
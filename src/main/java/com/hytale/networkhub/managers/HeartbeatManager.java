@@ -1,142 +1,268 @@
 package com.hytale.networkhub.managers;
 
+import com.google.gson.Gson;
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
 import com.hytale.networkhub.database.models.ServerRecord;
+import com.hytale.networkhub.redis.HeartbeatMessage;
+import com.hytale.networkhub.redis.RedisManager;
 
-import java.lang.management.ManagementFactory;
-import java.lang.management.OperatingSystemMXBean;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import com.hypixel.hytale.logger.HytaleLogger;
 import java.util.logging.Level;
 
+/**
+ * Sends this server's heartbeats and detects servers that stopped sending theirs
+ * With Redis enabled a heartbeat is a message on the heartbeat channel, and server_health is only
+ * written every persistIntervalSeconds or when heartbeats resume after a stall
+ * Without Redis every heartbeat is written to server_health and arrivals are read back from it
+ * A phi accrual failure detector judges each server against its own heartbeat rhythm
+ */
 public class HeartbeatManager {
     private final HytaleLogger logger;
     private final DatabaseManager dbManager;
+    private final RedisManager redisManager;
     private final NetworkConfig config;
+    private final ServerRegistryManager registryManager;
+    private final ServerTelemetry telemetry;
+    private final HealthHistory healthHistory;
+    private final LeaderElection leaderElection;
+    private final Gson gson;
+    private final FailureDetector failureDetector;
     private final String serverId;
     private long serverStartTime;
+    private long lastBeat = 0;
+    private long lastPersisted = 0;
+    private int lastPublishedPlayers = -1;
+    private double lastPublishedTps = -1;
+    private boolean lastPublishedLagging = false;
+    private boolean suspendedDetection = false;
 
-    public HeartbeatManager(HytaleLogger logger, NetworkConfig config, DatabaseManager dbManager) {
+    public HeartbeatManager(HytaleLogger logger, NetworkConfig config, DatabaseManager dbManager,
+                            RedisManager redisManager, ServerRegistryManager registryManager, ServerTelemetry telemetry,
+                            HealthHistory healthHistory, LeaderElection leaderElection, Gson gson) {
         this.logger = logger;
         this.dbManager = dbManager;
+        this.redisManager = redisManager;
         this.config = config;
+        this.registryManager = registryManager;
+        this.telemetry = telemetry;
+        this.healthHistory = healthHistory;
+        this.leaderElection = leaderElection;
+        this.gson = gson;
+        this.failureDetector = new FailureDetector(config.getConfig().heartbeat);
         this.serverId = config.getConfig().server.serverId;
         this.serverStartTime = System.currentTimeMillis();
     }
 
-    public void sendHeartbeat(int currentPlayers) {
-        String sql = """
-            INSERT INTO server_health (server_id, status, last_heartbeat, current_players, tps, memory_used_mb, memory_max_mb, cpu_percent, uptime_seconds, consecutive_failures, updated_at)
-            VALUES (?, 'ONLINE', CURRENT_TIMESTAMP, ?, ?, ?, ?, ?, ?, 0, CURRENT_TIMESTAMP)
-            ON CONFLICT (server_id) DO UPDATE SET
-                status = 'ONLINE',
-                last_heartbeat = CURRENT_TIMESTAMP,
-                current_players = EXCLUDED.current_players,
-                tps = EXCLUDED.tps,
-                memory_used_mb = EXCLUDED.memory_used_mb,
-                memory_max_mb = EXCLUDED.memory_max_mb,
-                cpu_percent = EXCLUDED.cpu_percent,
-                uptime_seconds = EXCLUDED.uptime_seconds,
-                consecutive_failures = 0,
-                updated_at = CURRENT_TIMESTAMP
-        """;
-
-        // For MySQL/MariaDB
-        if (isMySQL()) {
-            sql = """
-                INSERT INTO server_health (server_id, status, last_heartbeat, current_players, tps, memory_used_mb, memory_max_mb, cpu_percent, uptime_seconds, consecutive_failures, updated_at)
-                VALUES (?, 'ONLINE', CURRENT_TIMESTAMP, ?, ?, ?, ?, ?, ?, 0, CURRENT_TIMESTAMP)
-                ON DUPLICATE KEY UPDATE
-                    status = 'ONLINE',
-                    last_heartbeat = CURRENT_TIMESTAMP,
-                    current_players = VALUES(current_players),
-                    tps = VALUES(tps),
-                    memory_used_mb = VALUES(memory_used_mb),
-                    memory_max_mb = VALUES(memory_max_mb),
-                    cpu_percent = VALUES(cpu_percent),
-                    uptime_seconds = VALUES(uptime_seconds),
-                    consecutive_failures = 0,
-                    updated_at = CURRENT_TIMESTAMP
-            """;
+    /**
+     * Start listening for the other servers' heartbeats
+     */
+    public void initialize() {
+        if (usesRedisLiveness()) {
+            redisManager.subscribe(redisManager.getChannel("heartbeat"), this::handleHeartbeat);
         }
+    }
 
-        double tps = getTPS();
+    public synchronized void sendHeartbeat(int currentPlayers) {
+        ServerTelemetry.Sample sample = telemetry.sample();
+        double tps = sample.getTps();
         long memUsed = (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / 1024 / 1024;
         long memMax = Runtime.getRuntime().maxMemory() / 1024 / 1024;
-        double cpu = getCpuUsage();
+        double cpu = sample.getProcessCpuPercent();
         long uptime = (System.currentTimeMillis() - serverStartTime) / 1000;
+        HeartbeatMessage heartbeat = new HeartbeatMessage(serverId, currentPlayers, memUsed, memMax, sample);
+        healthHistory.record(serverId, System.currentTimeMillis(), heartbeat);
+
+        if (!usesRedisLiveness()) {
+            dbManager.executeUpdateAsync(SqlStatement.HEALTH_HEARTBEAT_UPSERT, serverId, currentPlayers, tps, memUsed, memMax, cpu, uptime);
+            return;
+        }
+
+        // The failure detectors need every beat's arrival time and the health histories every beat's values
+        redisManager.publish(redisManager.getChannel("heartbeat"), heartbeat);
+
+        long now = System.currentTimeMillis();
+        long persistMillis = config.getConfig().heartbeat.persistIntervalSeconds * 1000L;
+        boolean lagging = ServerTelemetry.isLagging(tps, sample.getTickP99Millis());
+        if (lagging && !lastPublishedLagging) {
+            logger.at(Level.WARNING).log(String.format(Locale.ROOT, "Server is lagging: %.1f TPS, p99 tick %.1fms, GC pauses %.0fms",
+                tps, sample.getTickP99Millis(), sample.getGcPauseMillis()));
+        }
+
+        // After a stall longer than the timeout the others have marked us offline, so the row is rewritten at once
+        boolean resumed = now - lastBeat >= config.getConfig().heartbeat.timeoutSeconds * 1000L;
+        lastBeat = now;
+
+        boolean persist = resumed || now - lastPersisted >= persistMillis;
+        if (persist) {
+            dbManager.executeUpdateAsync(SqlStatement.HEALTH_HEARTBEAT_UPSERT, serverId, currentPlayers, tps, memUsed, memMax, cpu, uptime);
+            lastPersisted = now;
+        }
 
-        dbManager.executeUpdateAsync(sql, serverId, currentPlayers, tps, memUsed, memMax, cpu, uptime);
+        // Routing only needs to hear about load and lag changes, the persist cadence also refreshes servers
+        // that reconciled from a database row older than our last delta
+        if (persist || currentPlayers != lastPublishedPlayers || lagging != lastPublishedLagging ||
+            Math.abs(tps - lastPublishedTps) >= 1.0) {
+            registryManager.publishHealth(serverId, currentPlayers, tps, sample.getTickP99Millis());
+            lastPublishedPlayers = currentPlayers;
+            lastPublishedTps = tps;
+            lastPublishedLagging = lagging;
+        }
     }
 
+    /**
+     * Run the failure detector over every server and apply the status changes it finds
+     * With Redis, arrivals come from the heartbeat channel, without it from server_health's last_heartbeat
+     * Only changes are written and published, so every server can run this without flooding the network
+     */
     public void checkServerHealth() {
+        Map<String, ServerRecord.ServerStatus> statuses = new HashMap<>();
+        long now;
+
+        if (usesRedisLiveness()) {
+            now = System.currentTimeMillis();
+            for (ServerRecord server : registryManager.getSnapshot().getServers()) {
+                statuses.put(server.getServerId(), server.getStatus());
+            }
+        } else {
+            // Heartbeat times and the check time both come from the database clock, so server clocks never mix
+            List<LivenessRow> rows = dbManager.executeQueryOnPrimary(SqlStatement.HEALTH_SELECT_LIVENESS, rs -> {
+                List<LivenessRow> list = new ArrayList<>();
+                while (rs.next()) {
+                    Timestamp lastHeartbeat = rs.getTimestamp("last_heartbeat");
+                    list.add(new LivenessRow(rs.getString("server_id"), rs.getString("status"),
+                        lastHeartbeat != null ? lastHeartbeat.getTime() : -1, rs.getTimestamp("checked_at").getTime()));
+                }
+                return list;
+            });
+            if (rows == null || rows.isEmpty()) return;
+
+            now = rows.get(0).checkedAt;
+            for (LivenessRow row : rows) {
+                if (row.lastHeartbeat >= 0) {
+                    failureDetector.heartbeat(row.serverId, row.lastHeartbeat);
+                }
+                statuses.put(row.serverId, ServerRecord.ServerStatus.valueOf(row.status));
+            }
+        }
+
+        detectFailures(statuses, now);
+    }
+
+    private void detectFailures(Map<String, ServerRecord.ServerStatus> statuses, long now) {
         NetworkConfig.HeartbeatConfig hbConfig = config.getConfig().heartbeat;
+        failureDetector.retainOnly(statuses.keySet());
+        failureDetector.watch(serverId, now);
 
-        String sql = """
-            UPDATE server_health
-            SET consecutive_failures = consecutive_failures + 1,
-                status = CASE
-                    WHEN consecutive_failures + 1 >= ? THEN 'OFFLINE'
-                    WHEN consecutive_failures + 1 >= ? THEN 'DEGRADED'
-                    ELSE status
-                END,
-                updated_at = CURRENT_TIMESTAMP
-            WHERE server_id != ?
-              AND (EXTRACT(EPOCH FROM (CURRENT_TIMESTAMP - last_heartbeat)) > ? OR last_heartbeat IS NULL)
-              AND status != 'OFFLINE'
-        """;
-
-        // For MySQL/MariaDB
-        if (isMySQL()) {
-            sql = """
-                UPDATE server_health
-                SET consecutive_failures = consecutive_failures + 1,
-                    status = CASE
-                        WHEN consecutive_failures + 1 >= ? THEN 'OFFLINE'
-                        WHEN consecutive_failures + 1 >= ? THEN 'DEGRADED'
-                        ELSE status
-                    END,
-                    updated_at = CURRENT_TIMESTAMP
-                WHERE server_id != ?
-                  AND (TIMESTAMPDIFF(SECOND, last_heartbeat, CURRENT_TIMESTAMP) > ? OR last_heartbeat IS NULL)
-                  AND status != 'OFFLINE'
-            """;
+        // If our own heartbeats are not getting through, the silence is ours and says nothing about the others
+        double ownPhi = failureDetector.phi(serverId, now);
+        if (ownPhi >= hbConfig.phiDegradedThreshold) {
+            if (!suspendedDetection) {
+                logger.at(Level.WARNING).log(String.format(Locale.ROOT,
+                    "Own heartbeats are not arriving (phi %.1f), holding off failure detection", ownPhi));
+                suspendedDetection = true;
+            }
+            return;
         }
+        if (suspendedDetection) {
+            logger.at(Level.INFO).log("Own heartbeats are arriving again, resuming failure detection");
+            suspendedDetection = false;
+        }
+
+        int changed = 0;
+        for (Map.Entry<String, ServerRecord.ServerStatus> entry : statuses.entrySet()) {
+            String id = entry.getKey();
+            ServerRecord.ServerStatus current = entry.getValue() != null ? entry.getValue() : ServerRecord.ServerStatus.OFFLINE;
+            if (id.equals(serverId)) continue;
+
+            // An offline server is only watched again once it sends a heartbeat
+            if (current == ServerRecord.ServerStatus.OFFLINE && !failureDetector.isWatching(id)) continue;
+            failureDetector.watch(id, now);
+
+            double phi = failureDetector.phi(id, now);
+            ServerRecord.ServerStatus next = phi >= hbConfig.phiOfflineThreshold ? ServerRecord.ServerStatus.OFFLINE
+                : phi >= hbConfig.phiDegradedThreshold ? ServerRecord.ServerStatus.DEGRADED
+                : ServerRecord.ServerStatus.ONLINE;
 
-        int updated = dbManager.executeUpdate(sql,
-            hbConfig.failureThreshold,
-            hbConfig.failureThreshold - 1,
-            serverId,
-            hbConfig.timeoutSeconds
-        );
+            if (current == ServerRecord.ServerStatus.OFFLINE && next != ServerRecord.ServerStatus.ONLINE) {
+                failureDetector.remove(id);
+                continue;
+            }
+            if (next == current) continue;
+
+            logger.at(next == ServerRecord.ServerStatus.ONLINE ? Level.INFO : Level.WARNING).log(String.format(Locale.ROOT,
+                "Server %s is now %s (phi %.1f, last heartbeat %.1fs ago)", id, next, phi,
+                failureDetector.millisSinceHeartbeat(id, now) / 1000.0));
+
+            // Fenced, a leader that stalled past its lease must not overrule the one that took over
+            int written = next == ServerRecord.ServerStatus.OFFLINE
+                ? leaderElection.executeFenced(SqlStatement.HEALTH_MARK_OFFLINE_FENCED, id)
+                : leaderElection.executeFenced(SqlStatement.HEALTH_SET_STATUS_FENCED, next.name(), id);
+            if (written == 0) {
+                logger.at(Level.FINE).log("Status change for " + id + " not written, no longer the maintenance leader");
+                continue;
+            }
+
+            if (next == ServerRecord.ServerStatus.OFFLINE) {
+                registryManager.publishStatus(id, next, 0);
+                failureDetector.remove(id);
+            } else {
+                ServerRecord server = registryManager.getSnapshot().getServer(id);
+                registryManager.publishStatus(id, next, server != null ? server.getCurrentPlayers() : 0);
+            }
+            changed++;
+        }
 
-        if (updated > 0) {
-            logger.at(Level.FINE).log("Marked " + updated + " server(s) as degraded/offline due to missed heartbeats");
+        // Without Redis nothing is published, the registry has to read the new statuses back
+        if (changed > 0 && !usesRedisLiveness()) {
+            registryManager.reload();
         }
     }
 
-    public void markOffline() {
-        String sql = "UPDATE server_health SET status = 'OFFLINE', updated_at = CURRENT_TIMESTAMP WHERE server_id = ?";
-        dbManager.executeUpdate(sql, serverId);
-        logger.at(Level.INFO).log("Marked server as offline: " + serverId);
+    private void handleHeartbeat(String json) {
+        HeartbeatMessage heartbeat = gson.fromJson(json, HeartbeatMessage.class);
+        if (heartbeat == null || heartbeat.getServerId() == null) return;
+
+        long now = System.currentTimeMillis();
+        failureDetector.heartbeat(heartbeat.getServerId(), now);
+        // Our own values were recorded when they were sent
+        if (!heartbeat.getServerId().equals(serverId)) {
+            healthHistory.record(heartbeat.getServerId(), now, heartbeat);
+        }
     }
 
-    private double getTPS() {
-        // TODO: Get actual TPS from Hytale server
-        // For now, return a placeholder
-        return 20.0;
+    public boolean usesRedisLiveness() {
+        return redisManager != null && redisManager.isEnabled();
     }
 
-    private double getCpuUsage() {
-        try {
-            OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
-            return osBean.getSystemLoadAverage();
-        } catch (Exception e) {
-            return 0.0;
-        }
+    public synchronized void markOffline() {
+        dbManager.executeUpdate(SqlStatement.HEALTH_MARK_OFFLINE, serverId);
+        registryManager.publishStatus(serverId, ServerRecord.ServerStatus.OFFLINE, 0);
+        // The next heartbeat is a transition back to online
+        lastBeat = 0;
+        lastPublishedPlayers = -1;
+        lastPublishedTps = -1;
+        logger.at(Level.INFO).log("Marked server as offline: " + serverId);
     }
 
-    private boolean isMySQL() {
-        return dbManager.isMySQL();
+    private static class LivenessRow {
+        private final String serverId;
+        private final String status;
+        private final long lastHeartbeat;
+        private final long checkedAt;
+
+        private LivenessRow(String serverId, String status, long lastHeartbeat, long checkedAt) {
+            this.serverId = serverId;
+            this.status = status;
+            this.lastHeartbeat = lastHeartbeat;
+            this.checkedAt = checkedAt;
+        }
     }
 }
@@ -1,74 +1,227 @@
 package com.hytale.networkhub.managers;
 
+import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
 import com.hytale.networkhub.database.models.ServerRecord;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import com.hypixel.hytale.logger.HytaleLogger;
 import java.util.logging.Level;
 
 public class HubManager {
     private final HytaleLogger logger;
     private final DatabaseManager dbManager;
+    private final NetworkConfig config;
     private final ServerRegistryManager registryManager;
+    private final Map<String, PendingTransfers> pendingTransfers = new ConcurrentHashMap<>();
 
-    public HubManager(HytaleLogger logger, DatabaseManager dbManager, ServerRegistryManager registryManager) {
+    public HubManager(HytaleLogger logger, DatabaseManager dbManager, NetworkConfig config,
+                      ServerRegistryManager registryManager) {
         this.logger = logger;
         this.dbManager = dbManager;
+        this.config = config;
         this.registryManager = registryManager;
     }
 
     public void setHub(String serverId, int priority) {
-        String sql = "UPDATE servers SET is_hub = true, hub_priority = ? WHERE server_id = ?";
-        int rows = dbManager.executeUpdate(sql, priority, serverId);
+        int rows = dbManager.executeUpdate(SqlStatement.SERVER_SET_HUB, priority, serverId);
 
         if (rows > 0) {
             logger.at(Level.INFO).log("Set server " + serverId + " as hub with priority " + priority);
+            registryManager.publishHub(serverId, true, priority);
         }
     }
 
     public void unsetHub(String serverId) {
-        String sql = "UPDATE servers SET is_hub = false, hub_priority = 0 WHERE server_id = ?";
-        int rows = dbManager.executeUpdate(sql, serverId);
+        int rows = dbManager.executeUpdate(SqlStatement.SERVER_UNSET_HUB, serverId);
 
         if (rows > 0) {
             logger.at(Level.INFO).log("Removed hub designation from server " + serverId);
+            registryManager.publishHub(serverId, false, 0);
         }
     }
 
+    /**
+     * Online hubs ordered by priority, then by player count
+     */
     public List<ServerRecord> getAvailableHubs() {
-        return registryManager.getHubServers().stream()
-            .filter(s -> s.getStatus() == ServerRecord.ServerStatus.ONLINE)
-            .sorted((a, b) -> {
-                if (a.getHubPriority() != b.getHubPriority()) {
-                    return Integer.compare(b.getHubPriority(), a.getHubPriority());
-                }
-                return Integer.compare(a.getCurrentPlayers(), b.getCurrentPlayers());
-            })
-            .toList();
+        return registryManager.getSnapshot().getOnlineHubs();
     }
 
     public ServerRecord selectFallbackHub() {
-        List<ServerRecord> hubs = getAvailableHubs();
+        ServerRecord selectedHub = selectFallbackHubs(1).get(0);
+        logger.at(Level.INFO).log("Selected fallback hub: " + selectedHub.getServerName() +
+                   " (Priority: " + selectedHub.getHubPriority() +
+                   ", Players: " + selectedHub.getCurrentPlayers() + "/" + selectedHub.getMaxPlayers() + ")");
+
+        return selectedHub;
+    }
 
-        if (hubs.isEmpty()) {
+    /**
+     * Pick a fallback hub for each of the given number of players, spread by load
+     * Only the highest priority hubs with room are used, a lower priority is used once those are full
+     * Every pick is counted against its hub until heartbeats catch up, so a mass evacuation
+     * lands evenly instead of piling onto whichever hub looked emptiest
+     */
+    public synchronized List<ServerRecord> selectFallbackHubs(int players) {
+        ServerRegistrySnapshot snapshot = registryManager.getSnapshot();
+        List<ServerRecord> candidates = withoutLocalServer(snapshot.getOnlineHubs());
+
+        if (candidates.isEmpty()) {
             logger.at(Level.SEVERE).log("No available hub servers found for fallback!");
 
             // Try to find ANY online server as last resort
-            List<ServerRecord> anyServer = registryManager.getOnlineServers();
-            if (!anyServer.isEmpty()) {
-                logger.at(Level.WARNING).log("Using non-hub server as fallback: " + anyServer.get(0).getServerName());
-                return anyServer.get(0);
+            candidates = withoutLocalServer(snapshot.getOnlineServers());
+            if (candidates.isEmpty()) {
+                throw new RuntimeException("No online servers available for fallback!");
             }
+            logger.at(Level.WARNING).log("Using non-hub servers as fallback");
+        }
 
-            throw new RuntimeException("No online servers available for fallback!");
+        long now = System.currentTimeMillis();
+        int[] load = new int[candidates.size()];
+        for (int i = 0; i < load.length; i++) {
+            ServerRecord server = candidates.get(i);
+            load[i] = server.getCurrentPlayers() + pending(server.getServerId()).count(now);
         }
 
-        ServerRecord selectedHub = hubs.get(0);
-        logger.at(Level.INFO).log("Selected fallback hub: " + selectedHub.getServerName() +
-                   " (Priority: " + selectedHub.getHubPriority() +
-                   ", Players: " + selectedHub.getCurrentPlayers() + "/" + selectedHub.getMaxPlayers() + ")");
+        long expiresAt = now + reservationMillis();
+        List<ServerRecord> assigned = new ArrayList<>(players);
+        for (int p = 0; p < players; p++) {
+            int choice = chooseServer(candidates, load);
+            load[choice]++;
+            ServerRecord server = candidates.get(choice);
+            pending(server.getServerId()).add(expiresAt);
+            assigned.add(server);
+        }
 
-        return selectedHub;
+        if (players > 1) {
+            Map<String, Integer> spread = new HashMap<>();
+            assigned.forEach(s -> spread.merge(s.getServerName(), 1, Integer::sum));
+            logger.at(Level.INFO).log("Spread " + players + " players across fallback servers: " + spread);
+        }
+        return assigned;
+    }
+
+    /**
+     * Weighted power-of-two-choices within the best priority tier that still has room
+     * Two servers are drawn with odds proportional to their capacity and the less loaded one wins
+     * Lagging servers are only used when no healthy server has room
+     */
+    private int chooseServer(List<ServerRecord> servers, int[] load) {
+        List<Integer> tier = bestTier(servers, load, false);
+        if (tier.isEmpty()) {
+            tier = bestTier(servers, load, true);
+        }
+
+        if (tier.isEmpty()) {
+            // Everything is full, overfill the server with the most room relative to its size
+            int best = 0;
+            for (int i = 1; i < servers.size(); i++) {
+                if (loadFactor(servers.get(i), load[i]) < loadFactor(servers.get(best), load[best])) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+        if (tier.size() == 1) {
+            return tier.get(0);
+        }
+
+        int first = drawWeighted(servers, tier, -1);
+        int second = drawWeighted(servers, tier, first);
+        return loadFactor(servers.get(second), load[second]) < loadFactor(servers.get(first), load[first]) ? second : first;
+    }
+
+    /**
+     * Indexes of the servers with room in the highest priority that has any
+     */
+    private static List<Integer> bestTier(List<ServerRecord> servers, int[] load, boolean includeLagging) {
+        List<Integer> tier = new ArrayList<>();
+        int tierPriority = Integer.MIN_VALUE;
+        for (int i = 0; i < servers.size(); i++) {
+            ServerRecord server = servers.get(i);
+            if (load[i] >= server.getMaxPlayers()) continue;
+            if (!includeLagging && ServerTelemetry.isLagging(server.getTps(), server.getTickP99Millis())) continue;
+
+            if (server.getHubPriority() > tierPriority) {
+                tier.clear();
+                tierPriority = server.getHubPriority();
+            }
+            if (server.getHubPriority() == tierPriority) {
+                tier.add(i);
+            }
+        }
+        return tier;
+    }
+
+    private static int drawWeighted(List<ServerRecord> servers, List<Integer> tier, int exclude) {
+        long total = 0;
+        for (int i : tier) {
+            if (i != exclude) total += weight(servers.get(i));
+        }
+
+        long target = ThreadLocalRandom.current().nextLong(total);
+        for (int i : tier) {
+            if (i == exclude) continue;
+            target -= weight(servers.get(i));
+            if (target < 0) return i;
+        }
+        return tier.get(tier.size() - 1);
+    }
+
+    private static long weight(ServerRecord server) {
+        return Math.max(1, server.getMaxPlayers());
+    }
+
+    private static double loadFactor(ServerRecord server, int load) {
+        return (double) load / weight(server);
+    }
+
+    private List<ServerRecord> withoutLocalServer(List<ServerRecord> servers) {
+        String localId = config.getConfig().server.serverId;
+        List<ServerRecord> result = new ArrayList<>(servers.size());
+        for (ServerRecord server : servers) {
+            if (!server.getServerId().equals(localId)) {
+                result.add(server);
+            }
+        }
+        return result;
+    }
+
+    private PendingTransfers pending(String serverId) {
+        return pendingTransfers.computeIfAbsent(serverId, id -> new PendingTransfers());
+    }
+
+    /**
+     * How long a pick counts against a hub, by then its heartbeat reports the players itself
+     */
+    private long reservationMillis() {
+        return Math.max(1, config.getConfig().heartbeat.intervalSeconds) * 2000L;
+    }
+
+    /**
+     * Transfers sent to one server that its player count may not show yet
+     */
+    private static class PendingTransfers {
+        private final ArrayDeque<Long> expiries = new ArrayDeque<>();
+
+        synchronized void add(long expiresAt) {
+            expiries.addLast(expiresAt);
+        }
+
+        synchronized int count(long now) {
+            while (!expiries.isEmpty() && expiries.peekFirst() <= now) {
+                expiries.pollFirst();
+            }
+            return expiries.size();
+        }
     }
 }
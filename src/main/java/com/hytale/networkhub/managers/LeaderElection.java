@@ -0,0 +1,251 @@
+package com.hytale.networkhub.managers;
+
+import com.hytale.networkhub.config.NetworkConfig;
+import com.hytale.networkhub.database.CircuitBreaker;
+import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.Fence;
+import com.hytale.networkhub.database.SqlStatement;
+import com.hytale.networkhub.redis.RedisManager;
+
+import java.util.concurrent.TimeUnit;
+import com.hypixel.hytale.logger.HytaleLogger;
+import java.util.logging.Level;
+
+/**
+ * Lease-based leader election, so network-wide maintenance runs on exactly one server
+ * With Redis the lease is an expiring lock key, without it a row in network_leases
+ * Every change of holder hands out a higher fencing token; the holder renews every third of the lease,
+ * and stops acting as leader shortly before its lease could run out, even when it cannot reach the store
+ * Leader-only writes carry the token (see Fence), so a leader that stalls past its lease is refused by the store:
+ * database writes are checked against the network_leases row, which with a Redis lease every new holder advances,
+ * and Redis scripts against the lease key itself
+ * With election disabled every server considers itself the leader, as before
+ */
+public class LeaderElection {
+    private static final String LEASE_NAME = "maintenance";
+    private static final String LEASE_KEY = "hytale:lease:" + LEASE_NAME;
+
+    private final HytaleLogger logger;
+    private final NetworkConfig config;
+    private final DatabaseManager dbManager;
+    private final RedisManager redisManager;
+    private final String serverId;
+    private volatile long validUntilNanos;
+    private volatile long fencingToken = -1;
+    // With a Redis lease, the network_leases token our database writes are fenced with
+    private volatile long databaseFence = -1;
+    private volatile boolean leader = false;
+
+    public LeaderElection(HytaleLogger logger, NetworkConfig config, DatabaseManager dbManager, RedisManager redisManager) {
+        this.logger = logger;
+        this.config = config;
+        this.dbManager = dbManager;
+        this.redisManager = redisManager;
+        this.serverId = config.getConfig().server.serverId;
+    }
+
+    /**
+     * Take the lease if it is free, or extend it if we hold it
+     */
+    public synchronized void renew() {
+        if (!isEnabled()) return;
+
+        long leaseNanos = TimeUnit.SECONDS.toNanos(getLeaseSeconds());
+        // The store's expiry started no earlier than this, so a deadline counted from here is never late
+        long started = System.nanoTime();
+        long token = usesRedis() ? renewRedis() : renewDatabase();
+        if (token > 0 && usesRedis()) {
+            renewDatabaseFence();
+        }
+
+        if (token > 0) {
+            // A tenth of the lease covers clock rate differences between us and the store
+            validUntilNanos = started + leaseNanos - leaseNanos / 10;
+            if (!leader || token != fencingToken) {
+                logger.at(Level.INFO).log("This server is now the maintenance leader (fencing token " + token + ")");
+            }
+            fencingToken = token;
+            leader = true;
+        } else {
+            validUntilNanos = 0;
+            fencingToken = -1;
+            databaseFence = -1;
+            if (leader) {
+                logger.at(Level.WARNING).log("Lost the maintenance lease, maintenance tasks stop on this server");
+            }
+            leader = false;
+        }
+    }
+
+    /**
+     * Give up the lease on shutdown, so another server takes over without waiting for it to expire
+     */
+    public synchronized void release() {
+        if (!isEnabled() || !leader) return;
+
+        if (usesRedis()) {
+            redisManager.deleteIfEquals(LEASE_KEY, serverId + ":" + fencingToken);
+        } else {
+            dbManager.executeUpdateUnjournaled(SqlStatement.LEASE_RELEASE, LEASE_NAME, serverId);
+        }
+        validUntilNanos = 0;
+        fencingToken = -1;
+        databaseFence = -1;
+        leader = false;
+        logger.at(Level.INFO).log("Released the maintenance lease");
+    }
+
+    /**
+     * Whether this server should run network-wide maintenance right now
+     */
+    public boolean isLeader() {
+        return !isEnabled() || (leader && System.nanoTime() - validUntilNanos < 0);
+    }
+
+    /** The token of our current lease, -1 while we do not hold it */
+    public long getFencingToken() {
+        return isLeader() ? fencingToken : -1;
+    }
+
+    /**
+     * The fence leader-only database writes carry, null while we are not the leader
+     * Fence.NONE with election disabled, and null until a Redis leader has advanced the database fence
+     */
+    public Fence getFence() {
+        if (!isEnabled()) return Fence.NONE;
+        if (!isLeader()) return null;
+
+        long token = usesRedis() ? databaseFence : fencingToken;
+        return token > 0 ? new Fence(LEASE_NAME, token) : null;
+    }
+
+    /**
+     * Run a leader-only write ending in Fence.CONDITION, never journaled
+     * Returns the rows changed, 0 if we are not the leader or another server has taken over since
+     */
+    public int executeFenced(SqlStatement statement, Object... params) {
+        Fence fence = getFence();
+        if (fence == null) return 0;
+        return dbManager.executeUpdateUnjournaled(statement, fence.append(params));
+    }
+
+    /** The Redis lease key, for scripts that only act while it holds getLeaseValue() */
+    public String getLeaseKey() {
+        return LEASE_KEY;
+    }
+
+    /**
+     * What the Redis lease key holds while we are the leader, null if we are not or nothing is fenced
+     */
+    public String getLeaseValue() {
+        return isEnabled() && usesRedis() && isLeader() ? serverId + ":" + fencingToken : null;
+    }
+
+    /**
+     * The current holder of the lease as the store sees it, null if nobody holds it or it could not be read
+     */
+    public Lease getLease() {
+        if (!isEnabled()) return null;
+
+        if (usesRedis()) {
+            String value = redisManager.get(LEASE_KEY);
+            if (value == null) return null;
+            int split = value.lastIndexOf(':');
+            return new Lease(value.substring(0, split), Long.parseLong(value.substring(split + 1)), -1);
+        }
+
+        Lease lease = readLease();
+        return lease != null && lease.getExpiresInMillis() > 0 ? lease : null;
+    }
+
+    public int getRenewIntervalSeconds() {
+        return Math.max(1, getLeaseSeconds() / 3);
+    }
+
+    private long renewRedis() {
+        long ttlMillis = TimeUnit.SECONDS.toMillis(getLeaseSeconds());
+        if (leader && redisManager.expireIfEquals(LEASE_KEY, serverId + ":" + fencingToken, ttlMillis)) {
+            return fencingToken;
+        }
+        return redisManager.acquireFencedLock(LEASE_KEY, serverId, ttlMillis);
+    }
+
+    /**
+     * Make sure the network_leases row carries a token of ours, taking a new one if another holder advanced it since
+     * Until it does, database writes are fenced off while Redis work goes on
+     */
+    private void renewDatabaseFence() {
+        CircuitBreaker breaker = dbManager.getCircuitBreaker();
+        if (breaker != null && !breaker.isClosed()) return;
+
+        Lease row = readLease();
+        if (row != null && serverId.equals(row.getHolder()) && row.getFencingToken() == databaseFence) return;
+
+        databaseFence = -1;
+        if (row == null) {
+            dbManager.executeUpdateUnjournaled(SqlStatement.LEASE_CREATE, LEASE_NAME, serverId, 0);
+        }
+        if (dbManager.executeUpdateUnjournaled(SqlStatement.FENCE_ADVANCE, serverId, LEASE_NAME) == 0) return;
+
+        row = readLease();
+        if (row != null && serverId.equals(row.getHolder())) {
+            databaseFence = row.getFencingToken();
+            logger.at(Level.FINE).log("Database fence advanced to " + databaseFence);
+        }
+    }
+
+    private long renewDatabase() {
+        // Lease writes must never be journaled: a replay could take the lease for a server that gave up on it
+        CircuitBreaker breaker = dbManager.getCircuitBreaker();
+        if (breaker != null && !breaker.isClosed()) return -1;
+
+        int leaseSeconds = getLeaseSeconds();
+        int updated = dbManager.executeUpdateUnjournaled(SqlStatement.LEASE_ACQUIRE, serverId, serverId, leaseSeconds, LEASE_NAME, serverId);
+        if (updated == 0) {
+            updated = dbManager.executeUpdateUnjournaled(SqlStatement.LEASE_CREATE, LEASE_NAME, serverId, leaseSeconds);
+        }
+        if (updated == 0) return -1;
+
+        Lease lease = readLease();
+        return lease != null && serverId.equals(lease.getHolder()) ? lease.getFencingToken() : -1;
+    }
+
+    private Lease readLease() {
+        return dbManager.executeQueryOnPrimary(SqlStatement.LEASE_SELECT, rs -> {
+            if (!rs.next()) return null;
+            return new Lease(rs.getString("holder"), rs.getLong("token"),
+                rs.getTimestamp("expires_at").getTime() - rs.getTimestamp("checked_at").getTime());
+        }, LEASE_NAME);
+    }
+
+    private int getLeaseSeconds() {
+        return Math.max(3, config.getConfig().leader.leaseSeconds);
+    }
+
+    private boolean isEnabled() {
+        return config.getConfig().leader.enabled;
+    }
+
+    private boolean usesRedis() {
+        return redisManager != null && redisManager.isEnabled();
+    }
+
+    /**
+     * Who holds a lease, with which fencing token, and for how much longer (-1 if unknown)
+     */
+    public static class Lease {
+        private final String holder;
+        private final long fencingToken;
+        private final long expiresInMillis;
+
+        public Lease(String holder, long fencingToken, long expiresInMillis) {
+            this.holder = holder;
+            this.fencingToken = fencingToken;
+            this.expiresInMillis = expiresInMillis;
+        }
+
+        public String getHolder() { return holder; }
+        public long getFencingToken() { return fencingToken; }
+        public long getExpiresInMillis() { return expiresInMillis; }
+    }
+}
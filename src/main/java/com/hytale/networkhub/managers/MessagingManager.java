@@ -3,6 +3,7 @@ package com.hytale.networkhub.managers;
 import com.google.gson.Gson;
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
 import com.hytale.networkhub.database.models.PlayerLocation;
 import com.hytale.networkhub.redis.RedisManager;
 
@@ -90,12 +91,7 @@ public class MessagingManager {
 
     private void persistChatMessage(UUID senderUuid, String senderName, UUID recipientUuid,
                                    String messageType, String content) {
-        String sql = """
-            INSERT INTO chat_messages (player_uuid, player_name, server_id, message_type, recipient_uuid, content, sent_at)
-            VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
-        """;
-
-        dbManager.executeUpdateAsync(sql,
+        dbManager.executeUpdateAsync(SqlStatement.CHAT_MESSAGE_INSERT,
             senderUuid.toString(),
             senderName,
             config.getConfig().server.serverId,
@@ -3,6 +3,7 @@ package com.hytale.networkhub.managers;
 import com.google.gson.Gson;
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
 import com.hytale.networkhub.redis.RedisManager;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 
@@ -40,35 +41,7 @@ public class ModerationManager {
     public void banPlayer(UUID targetUuid, String targetName, UUID moderatorUuid,
                          String moderatorName, String reason, long durationSeconds) {
         // Store in database
-        String sql = """
-            INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
-                                           moderator_name, reason, server_id, expires_at, created_at)
-            VALUES (?, ?, 'BAN', ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
-        """;
-
-        String expiresAt = durationSeconds > 0
-            ? "CURRENT_TIMESTAMP + INTERVAL '" + durationSeconds + " seconds'"
-            : "NULL";
-
-        // PostgreSQL
-        if (!isMySQL()) {
-            sql = """
-                INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
-                                               moderator_name, reason, server_id, expires_at, created_at)
-                VALUES (?, ?, 'BAN', ?, ?, ?, ?, CURRENT_TIMESTAMP + INTERVAL '? seconds', CURRENT_TIMESTAMP)
-            """;
-        } else {
-            // MySQL/MariaDB
-            sql = """
-                INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
-                                               moderator_name, reason, server_id, expires_at, created_at)
-                VALUES (?, ?, 'BAN', ?, ?, ?, ?,
-                        IF(? > 0, DATE_ADD(CURRENT_TIMESTAMP, INTERVAL ? SECOND), NULL),
-                        CURRENT_TIMESTAMP)
-            """;
-        }
-
-        dbManager.executeUpdateAsync(sql,
+        dbManager.executeUpdateAsync(SqlStatement.MODERATION_BAN,
             targetUuid.toString(),
             targetName,
             moderatorUuid.toString(),
@@ -107,13 +80,7 @@ public class ModerationManager {
     public void kickPlayer(UUID targetUuid, String targetName, UUID moderatorUuid,
                           String moderatorName, String reason) {
         // Log to database
-        String sql = """
-            INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
-                                           moderator_name, reason, server_id, created_at)
-            VALUES (?, ?, 'KICK', ?, ?, ?, ?, CURRENT_TIMESTAMP)
-        """;
-
-        dbManager.executeUpdateAsync(sql,
+        dbManager.executeUpdateAsync(SqlStatement.MODERATION_KICK,
             targetUuid.toString(),
             targetName,
             moderatorUuid.toString(),
@@ -145,29 +112,7 @@ public class ModerationManager {
     public void mutePlayer(UUID targetUuid, String targetName, UUID moderatorUuid,
                           String moderatorName, String reason, long durationSeconds) {
         // Store in database
-        String sql = """
-            INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
-                                           moderator_name, reason, server_id, expires_at, created_at)
-            VALUES (?, ?, 'MUTE', ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
-        """;
-
-        if (!isMySQL()) {
-            sql = """
-                INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
-                                               moderator_name, reason, server_id, expires_at, created_at)
-                VALUES (?, ?, 'MUTE', ?, ?, ?, ?, CURRENT_TIMESTAMP + INTERVAL '? seconds', CURRENT_TIMESTAMP)
-            """;
-        } else {
-            sql = """
-                INSERT INTO moderation_actions (target_uuid, target_name, action_type, moderator_uuid,
-                                               moderator_name, reason, server_id, expires_at, created_at)
-                VALUES (?, ?, 'MUTE', ?, ?, ?, ?,
-                        DATE_ADD(CURRENT_TIMESTAMP, INTERVAL ? SECOND),
-                        CURRENT_TIMESTAMP)
-            """;
-        }
-
-        dbManager.executeUpdateAsync(sql,
+        dbManager.executeUpdateAsync(SqlStatement.MODERATION_MUTE,
             targetUuid.toString(),
             targetName,
             moderatorUuid.toString(),
@@ -201,13 +146,7 @@ public class ModerationManager {
     public void unbanPlayer(UUID targetUuid, String targetName, UUID moderatorUuid,
                            String moderatorName) {
         // Remove active bans from database
-        String sql = """
-            UPDATE moderation_actions
-            SET active = false, unbanned_by = ?, unbanned_at = CURRENT_TIMESTAMP
-            WHERE target_uuid = ? AND action_type = 'BAN' AND active = true
-        """;
-
-        dbManager.executeUpdateAsync(sql,
+        dbManager.executeUpdateAsync(SqlStatement.MODERATION_UNBAN,
             moderatorUuid.toString(),
             targetUuid.toString()
         );
@@ -233,13 +172,7 @@ public class ModerationManager {
     public void unmutePlayer(UUID targetUuid, String targetName, UUID moderatorUuid,
                             String moderatorName) {
         // Remove active mutes from database
-        String sql = """
-            UPDATE moderation_actions
-            SET active = false, unbanned_by = ?, unbanned_at = CURRENT_TIMESTAMP
-            WHERE target_uuid = ? AND action_type = 'MUTE' AND active = true
-        """;
-
-        dbManager.executeUpdateAsync(sql,
+        dbManager.executeUpdateAsync(SqlStatement.MODERATION_UNMUTE,
             moderatorUuid.toString(),
             targetUuid.toString()
         );
@@ -263,13 +196,7 @@ public class ModerationManager {
      * Check if a player is banned
      */
     public boolean isBanned(UUID playerUuid) {
-        String sql = """
-            SELECT COUNT(*) FROM moderation_actions
-            WHERE target_uuid = ? AND action_type = 'BAN' AND active = true
-            AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
-        """;
-
-        return dbManager.executeQuery(sql, rs -> {
+        return dbManager.executeQuery(SqlStatement.MODERATION_IS_BANNED, rs -> {
             if (rs.next()) {
                 return rs.getInt(1) > 0;
             }
@@ -281,13 +208,7 @@ public class ModerationManager {
      * Check if a player is muted
      */
     public boolean isMuted(UUID playerUuid) {
-        String sql = """
-            SELECT COUNT(*) FROM moderation_actions
-            WHERE target_uuid = ? AND action_type = 'MUTE' AND active = true
-            AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
-        """;
-
-        return dbManager.executeQuery(sql, rs -> {
+        return dbManager.executeQuery(SqlStatement.MODERATION_IS_MUTED, rs -> {
             if (rs.next()) {
                 return rs.getInt(1) > 0;
             }
@@ -299,14 +220,7 @@ public class ModerationManager {
      * Get ban reason for a player
      */
     public String getBanReason(UUID playerUuid) {
-        String sql = """
-            SELECT reason FROM moderation_actions
-            WHERE target_uuid = ? AND action_type = 'BAN' AND active = true
-            AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
-            ORDER BY created_at DESC LIMIT 1
-        """;
-
-        return dbManager.executeQuery(sql, rs -> {
+        return dbManager.executeQuery(SqlStatement.MODERATION_BAN_REASON, rs -> {
             if (rs.next()) {
                 return rs.getString("reason");
             }
@@ -396,11 +310,4 @@ public class ModerationManager {
             return (seconds / 86400) + " days";
         }
     }
-
-    /**
-     * Check if database is MySQL/MariaDB
-     */
-    private boolean isMySQL() {
-        return dbManager.isMySQL();
-    }
 }
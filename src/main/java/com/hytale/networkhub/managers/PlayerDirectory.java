@@ -0,0 +1,410 @@
+package com.hytale.networkhub.managers;
+
+import com.hytale.networkhub.database.models.PlayerLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory directory of every online player on the network, keyed by UUID
+ * An open-addressing table over parallel primitive arrays: each UUID is two longs and each server an interned int,
+ * so a player costs a few dozen bytes plus their name and a lookup is a few array reads
+ * Lookups take no lock unless they race a write, writes come from local joins/quits and the Redis join/quit events
+ * Names are also kept lowercased in sorted order, for case-insensitive exact and prefix lookups
+ * A bulk load runs alongside the events: changes made while it runs win over the rows it read
+ * Joins and quits arrive on separate channels in no order relative to each other, so each entry keeps its join's
+ * timestamp and a quit from before it is ignored; both come from the clock of the server the player was on
+ */
+public class PlayerDirectory {
+    private static final int MIN_CAPACITY = 1024;
+    private static final int NO_SERVER = 0;
+
+    private final StampedLock lock = new StampedLock();
+    private final Map<String, Integer> serverIndexes = new HashMap<>();
+    private final ConcurrentSkipListMap<String, UUID> byName = new ConcurrentSkipListMap<>();
+    private volatile String[] servers = {null};
+    // Players per interned server, kept in step with the table so a server's count is one read
+    private volatile int[] serverCounts = {0};
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private volatile int size;
+    // Non-null while a load runs: who joined, which server who quit, and which servers went offline since it began
+    private Set<UUID> putDuringLoad;
+    private Map<UUID, String> removedDuringLoad;
+    private Set<String> offlineDuringLoad;
+
+    /**
+     * Record a player as online on a server, replacing wherever they were before
+     * joinedAt is the join's timestamp on that server's clock, or 0 if unknown
+     */
+    public void put(UUID playerUuid, String playerName, String serverId, long joinedAt) {
+        long stamp = lock.writeLock();
+        try {
+            if (putDuringLoad != null) {
+                putDuringLoad.add(playerUuid);
+                removedDuringLoad.remove(playerUuid);
+            }
+            putLocked(playerUuid, playerName, serverId, joinedAt);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void putLocked(UUID playerUuid, String playerName, String serverId, long joinedAt) {
+        int server = internServer(serverId);
+        Table current = table;
+        int slot = current.find(playerUuid.getMostSignificantBits(), playerUuid.getLeastSignificantBits());
+        byName.put(normalizeName(playerName), playerUuid);
+        if (slot >= 0) {
+            String previousName = current.names[slot];
+            if (!previousName.equalsIgnoreCase(playerName)) {
+                byName.remove(normalizeName(previousName), playerUuid);
+            }
+            serverCounts[current.servers[slot]]--;
+            serverCounts[server]++;
+            current.names[slot] = playerName;
+            current.servers[slot] = server;
+            current.joinedAt[slot] = joinedAt;
+            return;
+        }
+
+        if ((size + 1) * 4L > current.capacity() * 3L) {
+            current = resize(current.capacity() * 2);
+        }
+        current.insert(playerUuid.getMostSignificantBits(), playerUuid.getLeastSignificantBits(), playerName, server, joinedAt);
+        serverCounts[server]++;
+        size++;
+    }
+
+    /**
+     * Remove a player if they are still on the given server and joined it no later than quitAt
+     * A quit from the server a player just left must not undo their join on the next one,
+     * and a quit that arrives after a quick rejoin of the same server must not undo the rejoin
+     */
+    public boolean remove(UUID playerUuid, String serverId, long quitAt) {
+        long stamp = lock.writeLock();
+        try {
+            if (removedDuringLoad != null && !putDuringLoad.contains(playerUuid)) {
+                removedDuringLoad.put(playerUuid, serverId);
+            }
+            Integer server = serverIndexes.get(serverId);
+            int slot = table.find(playerUuid.getMostSignificantBits(), playerUuid.getLeastSignificantBits());
+            if (server == null || slot < 0 || table.servers[slot] != server || table.joinedAt[slot] > quitAt) return false;
+
+            deleteLocked(playerUuid, slot);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove everyone on a server that went offline, whose quits will never arrive
+     * Returns the number of players removed
+     */
+    public int removeServer(String serverId) {
+        long stamp = lock.writeLock();
+        try {
+            if (offlineDuringLoad != null) {
+                offlineDuringLoad.add(serverId);
+            }
+            Integer server = serverIndexes.get(serverId);
+            if (server == null) return 0;
+
+            List<UUID> players = new ArrayList<>();
+            Table current = table;
+            for (int i = 0; i < current.capacity(); i++) {
+                if (current.servers[i] == server) {
+                    players.add(new UUID(current.uuidHigh[i], current.uuidLow[i]));
+                }
+            }
+            for (UUID playerUuid : players) {
+                deleteLocked(playerUuid, table.find(playerUuid.getMostSignificantBits(), playerUuid.getLeastSignificantBits()));
+            }
+            return players.size();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Start a bulk load, from here on joins and quits are remembered so the loaded rows cannot undo them
+     */
+    public void beginLoad() {
+        long stamp = lock.writeLock();
+        try {
+            putDuringLoad = new HashSet<>();
+            removedDuringLoad = new HashMap<>();
+            offlineDuringLoad = new HashSet<>();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Finish a bulk load with the rows it read
+     * A row is skipped if its player joined since the load began, or quit the row's server or saw it go offline since;
+     * anyone neither in the rows nor joined since is dropped as stale
+     */
+    public void finishLoad(Collection<PlayerLocation> rows) {
+        long stamp = lock.writeLock();
+        try {
+            if (putDuringLoad == null) return;
+
+            Set<UUID> loaded = new HashSet<>();
+            for (PlayerLocation row : rows) {
+                UUID playerUuid = row.getPlayerUuid();
+                loaded.add(playerUuid);
+                if (putDuringLoad.contains(playerUuid) || offlineDuringLoad.contains(row.getServerId()) ||
+                    row.getServerId().equals(removedDuringLoad.get(playerUuid))) continue;
+                putLocked(playerUuid, row.getPlayerName(), row.getServerId(), 0);
+            }
+
+            List<UUID> stale = new ArrayList<>();
+            Table current = table;
+            for (int i = 0; i < current.capacity(); i++) {
+                if (current.servers[i] == NO_SERVER) continue;
+                UUID playerUuid = new UUID(current.uuidHigh[i], current.uuidLow[i]);
+                if (!loaded.contains(playerUuid) && !putDuringLoad.contains(playerUuid)) {
+                    stale.add(playerUuid);
+                }
+            }
+            for (UUID playerUuid : stale) {
+                deleteLocked(playerUuid, table.find(playerUuid.getMostSignificantBits(), playerUuid.getLeastSignificantBits()));
+            }
+        } finally {
+            putDuringLoad = null;
+            removedDuringLoad = null;
+            offlineDuringLoad = null;
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Give up on a bulk load that failed, keeping the directory as the events left it
+     */
+    public void abortLoad() {
+        long stamp = lock.writeLock();
+        try {
+            putDuringLoad = null;
+            removedDuringLoad = null;
+            offlineDuringLoad = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void deleteLocked(UUID playerUuid, int slot) {
+        byName.remove(normalizeName(table.names[slot]), playerUuid);
+        serverCounts[table.servers[slot]]--;
+        table.delete(slot);
+        size--;
+    }
+
+    /**
+     * A player's name and server, without world or position, or null if they are not online
+     */
+    public PlayerLocation find(UUID playerUuid) {
+        long msb = playerUuid.getMostSignificantBits();
+        long lsb = playerUuid.getLeastSignificantBits();
+
+        long stamp = lock.tryOptimisticRead();
+        String[] serverIds = servers;
+        Table current = table;
+        int slot = current.find(msb, lsb);
+        String name = slot >= 0 ? current.names[slot] : null;
+        int server = slot >= 0 ? current.servers[slot] : NO_SERVER;
+
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                serverIds = servers;
+                current = table;
+                slot = current.find(msb, lsb);
+                name = slot >= 0 ? current.names[slot] : null;
+                server = slot >= 0 ? current.servers[slot] : NO_SERVER;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        if (server == NO_SERVER) return null;
+
+        PlayerLocation location = new PlayerLocation();
+        location.setPlayerUuid(playerUuid);
+        location.setPlayerName(name);
+        location.setServerId(serverIds[server]);
+        return location;
+    }
+
+    /**
+     * An online player by name, ignoring case, or null
+     */
+    public PlayerLocation findByName(String playerName) {
+        UUID playerUuid = byName.get(normalizeName(playerName));
+        return playerUuid != null ? find(playerUuid) : null;
+    }
+
+    /**
+     * Names of online players starting with the prefix, ignoring case, in alphabetical order
+     */
+    public List<String> completeName(String prefix, int limit) {
+        String normalized = normalizeName(prefix);
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, UUID> entry : byName.tailMap(normalized).entrySet()) {
+            if (names.size() >= limit || !entry.getKey().startsWith(normalized)) break;
+
+            PlayerLocation location = find(entry.getValue());
+            if (location != null) {
+                names.add(location.getPlayerName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * The form names are indexed and compared in, here and in the player_name_lower column
+     */
+    public static String normalizeName(String playerName) {
+        return playerName.toLowerCase(Locale.ROOT);
+    }
+
+    public boolean isOnline(UUID playerUuid) {
+        return find(playerUuid) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of players online on a server
+     */
+    public int countOnServer(String serverId) {
+        long stamp = lock.readLock();
+        try {
+            Integer server = serverIndexes.get(serverId);
+            return server != null ? serverCounts[server] : 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int internServer(String serverId) {
+        Integer existing = serverIndexes.get(serverId);
+        if (existing != null) return existing;
+
+        String[] grown = Arrays.copyOf(servers, servers.length + 1);
+        grown[grown.length - 1] = serverId;
+        servers = grown;
+        serverCounts = Arrays.copyOf(serverCounts, grown.length);
+        serverIndexes.put(serverId, grown.length - 1);
+        return grown.length - 1;
+    }
+
+    private Table resize(int capacity) {
+        Table old = table;
+        Table grown = new Table(capacity);
+        for (int i = 0; i < old.capacity(); i++) {
+            if (old.servers[i] != NO_SERVER) {
+                grown.insert(old.uuidHigh[i], old.uuidLow[i], old.names[i], old.servers[i], old.joinedAt[i]);
+            }
+        }
+        table = grown;
+        return grown;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Linear probing over parallel arrays, a slot is empty while its server is NO_SERVER
+     */
+    private static final class Table {
+        private final long[] uuidHigh;
+        private final long[] uuidLow;
+        private final int[] servers;
+        private final String[] names;
+        private final long[] joinedAt;
+        private final int mask;
+
+        Table(int capacity) {
+            uuidHigh = new long[capacity];
+            uuidLow = new long[capacity];
+            servers = new int[capacity];
+            names = new String[capacity];
+            joinedAt = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return servers.length;
+        }
+
+        /**
+         * The slot holding a UUID, or -1
+         * Probes at most the whole table, so a read racing a write cannot loop forever
+         */
+        int find(long msb, long lsb) {
+            int slot = hash(msb, lsb) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                if (servers[slot] == NO_SERVER) return -1;
+                if (uuidHigh[slot] == msb && uuidLow[slot] == lsb) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        void insert(long msb, long lsb, String name, int server, long joined) {
+            int slot = hash(msb, lsb) & mask;
+            while (servers[slot] != NO_SERVER) {
+                slot = (slot + 1) & mask;
+            }
+            uuidHigh[slot] = msb;
+            uuidLow[slot] = lsb;
+            names[slot] = name;
+            servers[slot] = server;
+            joinedAt[slot] = joined;
+        }
+
+        /**
+         * Empty a slot and shift later entries of the same probe run back, so no tombstones are left behind
+         */
+        void delete(int slot) {
+            int hole = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (servers[next] == NO_SERVER) break;
+
+                int home = hash(uuidHigh[next], uuidLow[next]) & mask;
+                // An entry may move into the hole only if its home slot is not between the hole and itself
+                boolean stays = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+                if (!stays) {
+                    uuidHigh[hole] = uuidHigh[next];
+                    uuidLow[hole] = uuidLow[next];
+                    names[hole] = names[next];
+                    servers[hole] = servers[next];
+                    joinedAt[hole] = joinedAt[next];
+                    hole = next;
+                }
+            }
+            servers[hole] = NO_SERVER;
+            names[hole] = null;
+        }
+    }
+}
@@ -2,166 +2,244 @@ package com.hytale.networkhub.managers;
 
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.KeysetPage;
+import com.hytale.networkhub.database.SqlStatement;
+import com.hytale.networkhub.database.mappers.PlayerLocationMapper;
 import com.hytale.networkhub.database.models.PlayerLocation;
+import com.hytale.networkhub.redis.RedisManager;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import com.hypixel.hytale.logger.HytaleLogger;
 import java.util.logging.Level;
 
 public class PlayerTrackingManager {
     private final HytaleLogger logger;
     private final DatabaseManager dbManager;
+    private final RedisManager redisManager;
+    private final PlayerDirectory directory;
     private final NetworkConfig config;
+    private final PlayerLocationMapper locationMapper = new PlayerLocationMapper();
+    private final Map<UUID, Position> pendingLocations = new ConcurrentHashMap<>();
+    private final Map<UUID, Position> flushedLocations = new ConcurrentHashMap<>();
 
-    public PlayerTrackingManager(HytaleLogger logger, DatabaseManager dbManager, NetworkConfig config) {
+    public PlayerTrackingManager(HytaleLogger logger, DatabaseManager dbManager, RedisManager redisManager,
+                                 PlayerDirectory directory, NetworkConfig config) {
         this.logger = logger;
         this.dbManager = dbManager;
+        this.redisManager = redisManager;
+        this.directory = directory;
         this.config = config;
     }
 
-    public void trackJoin(UUID playerUuid, String playerName) {
-        String serverId = config.getConfig().server.serverId;
+    /**
+     * Load who is online on servers that are up, once the join/quit events are being received
+     * Events applied while the query runs win over its rows; also run after resubscribing, to catch up on missed events
+     */
+    public synchronized void initialize() {
+        List<PlayerLocation> rows = new ArrayList<>();
+        directory.beginLoad();
+        long loaded = dbManager.streamQuery(SqlStatement.PLAYER_LIST_ONLINE, rs -> {
+            PlayerLocation row = new PlayerLocation();
+            row.setPlayerUuid(UUID.fromString(rs.getString("player_uuid")));
+            row.setPlayerName(rs.getString("player_name"));
+            row.setServerId(rs.getString("server_id"));
+            rows.add(row);
+            return true;
+        });
+
+        if (loaded < 0) {
+            directory.abortLoad();
+            logger.at(Level.WARNING).log("Failed to load the player directory, it only has the joins seen since");
+            return;
+        }
+        directory.finishLoad(rows);
+        logger.at(Level.INFO).log("Loaded " + loaded + " online players into the player directory");
+    }
 
-        String sql = """
-            INSERT INTO player_locations (player_uuid, player_name, server_id, joined_at, last_seen)
-            VALUES (?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
-            ON CONFLICT (player_uuid) DO UPDATE SET
-                player_name = EXCLUDED.player_name,
-                server_id = EXCLUDED.server_id,
-                joined_at = CURRENT_TIMESTAMP,
-                last_seen = CURRENT_TIMESTAMP
-        """;
-
-        // For MySQL/MariaDB
-        if (isMySQL()) {
-            sql = """
-                INSERT INTO player_locations (player_uuid, player_name, server_id, joined_at, last_seen)
-                VALUES (?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
-                ON DUPLICATE KEY UPDATE
-                    player_name = VALUES(player_name),
-                    server_id = VALUES(server_id),
-                    joined_at = CURRENT_TIMESTAMP,
-                    last_seen = CURRENT_TIMESTAMP
-            """;
+    /**
+     * Forget the players of a server that went offline, their quits will never arrive
+     */
+    public void handleServerOffline(String serverId) {
+        int removed = directory.removeServer(serverId);
+        if (removed > 0) {
+            logger.at(Level.INFO).log("Removed " + removed + " players of offline server " + serverId + " from the player directory");
         }
+    }
+
+    /**
+     * Players online on this server, as its own joins and quits left the directory
+     */
+    public int getLocalPlayerCount() {
+        return directory.countOnServer(config.getConfig().server.serverId);
+    }
+
+    /**
+     * joinedAt is the timestamp published with the join, so the directory orders it against quits the same way everywhere
+     */
+    public void trackJoin(UUID playerUuid, String playerName, long joinedAt) {
+        String serverId = config.getConfig().server.serverId;
 
-        dbManager.executeUpdate(sql, playerUuid.toString(), playerName, serverId);
+        directory.put(playerUuid, playerName, serverId, joinedAt);
+        dbManager.executeUpdate(SqlStatement.PLAYER_TRACK_JOIN, playerUuid.toString(), playerName,
+            PlayerDirectory.normalizeName(playerName), serverId);
         logger.at(Level.FINE).log("Tracked player join: " + playerName + " on " + serverId);
     }
 
-    public void trackQuit(UUID playerUuid) {
-        String sql = "UPDATE player_locations SET last_seen = CURRENT_TIMESTAMP WHERE player_uuid = ?";
-        dbManager.executeUpdate(sql, playerUuid.toString());
+    public void trackQuit(UUID playerUuid, long quitAt) {
+        String serverId = config.getConfig().server.serverId;
+
+        directory.remove(playerUuid, serverId, quitAt);
+        pendingLocations.remove(playerUuid);
+        flushedLocations.remove(playerUuid);
+        dbManager.executeUpdate(SqlStatement.PLAYER_TRACK_QUIT, serverId, playerUuid.toString());
     }
 
+    /**
+     * Note a player's position for the next location flush
+     * Ignored while the player is within minMoveDistance of the position last written for them
+     */
     public void updateLocation(UUID playerUuid, String worldName, double x, double y, double z) {
-        String sql = """
-            UPDATE player_locations
-            SET world_name = ?, x = ?, y = ?, z = ?, last_seen = CURRENT_TIMESTAMP
-            WHERE player_uuid = ?
-        """;
-        dbManager.executeUpdateAsync(sql, worldName, x, y, z, playerUuid.toString());
+        Position position = new Position(worldName, x, y, z);
+        Position flushed = flushedLocations.get(playerUuid);
+        double minDistance = config.getConfig().location.minMoveDistance;
+        if (flushed != null && flushed.distanceSquared(position) < minDistance * minDistance) {
+            pendingLocations.remove(playerUuid);
+            return;
+        }
+        pendingLocations.put(playerUuid, position);
     }
 
-    public PlayerLocation findPlayer(UUID playerUuid) {
-        String sql = """
-            SELECT pl.*, s.server_name
-            FROM player_locations pl
-            LEFT JOIN servers s ON pl.server_id = s.server_id
-            WHERE pl.player_uuid = ?
-        """;
-
-        return dbManager.executeQuery(sql, rs -> {
-            if (rs.next()) {
-                PlayerLocation location = new PlayerLocation();
-                location.setPlayerUuid(UUID.fromString(rs.getString("player_uuid")));
-                location.setPlayerName(rs.getString("player_name"));
-                location.setServerId(rs.getString("server_id"));
-                location.setJoinedAt(rs.getTimestamp("joined_at"));
-                location.setLastSeen(rs.getTimestamp("last_seen"));
-                location.setWorldName(rs.getString("world_name"));
-                location.setX(rs.getDouble("x"));
-                location.setY(rs.getDouble("y"));
-                location.setZ(rs.getDouble("z"));
-                return location;
+    /**
+     * Write every pending position as one multi-row upsert
+     * Returns the number of players written; positions that failed stay pending unless a newer one arrived
+     */
+    public int flushLocations() {
+        if (pendingLocations.isEmpty()) return 0;
+
+        String serverId = config.getConfig().server.serverId;
+        List<UUID> players = new ArrayList<>();
+        List<Position> positions = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<UUID, Position> entry : pendingLocations.entrySet()) {
+            PlayerLocation player = directory.find(entry.getKey());
+            if (player == null) {
+                // Left before the flush, their row keeps the last position written
+                pendingLocations.remove(entry.getKey(), entry.getValue());
+                continue;
             }
-            return null;
-        }, playerUuid.toString());
+
+            Position position = entry.getValue();
+            players.add(entry.getKey());
+            positions.add(position);
+            rows.add(new Object[] {entry.getKey(), player.getPlayerName(), PlayerDirectory.normalizeName(player.getPlayerName()),
+                serverId, position.worldName, position.x, position.y, position.z});
+        }
+
+        int written = dbManager.executeMultiRow(SqlStatement.PLAYER_FLUSH_LOCATIONS, rows);
+        for (int i = 0; i < written; i++) {
+            pendingLocations.remove(players.get(i), positions.get(i));
+            flushedLocations.put(players.get(i), positions.get(i));
+        }
+        return written;
     }
 
+    /**
+     * Where a player is online, from the player directory
+     * With Redis the directory sees every join and quit on the network, so a miss means offline
+     * Without it the directory only knows this server's players, and misses fall back to the database
+     * Directory results carry the player's name and server but not their world or position
+     */
+    public PlayerLocation findPlayer(UUID playerUuid) {
+        PlayerLocation location = directory.find(playerUuid);
+        if (location != null || isNetworkWide()) {
+            return location;
+        }
+        location = dbManager.executeQuery(SqlStatement.PLAYER_FIND_BY_UUID, rs -> rs.next() ? locationMapper.map(rs) : null,
+            playerUuid.toString());
+        // Quitting clears the server, the row itself stays until retention removes it
+        return location != null && location.getServerId() != null ? location : null;
+    }
+
+    /**
+     * Where a player is online by name, ignoring case, resolved like findPlayer
+     */
     public PlayerLocation findPlayerByName(String playerName) {
-        String sql = """
-            SELECT pl.*, s.server_name
-            FROM player_locations pl
-            LEFT JOIN servers s ON pl.server_id = s.server_id
-            WHERE LOWER(pl.player_name) = LOWER(?)
-        """;
-
-        return dbManager.executeQuery(sql, rs -> {
-            if (rs.next()) {
-                PlayerLocation location = new PlayerLocation();
-                location.setPlayerUuid(UUID.fromString(rs.getString("player_uuid")));
-                location.setPlayerName(rs.getString("player_name"));
-                location.setServerId(rs.getString("server_id"));
-                location.setJoinedAt(rs.getTimestamp("joined_at"));
-                location.setLastSeen(rs.getTimestamp("last_seen"));
-                location.setWorldName(rs.getString("world_name"));
-                location.setX(rs.getDouble("x"));
-                location.setY(rs.getDouble("y"));
-                location.setZ(rs.getDouble("z"));
-                return location;
-            }
-            return null;
-        }, playerName);
+        PlayerLocation location = directory.findByName(playerName);
+        if (location != null || isNetworkWide()) {
+            return location;
+        }
+        location = dbManager.executeQuery(SqlStatement.PLAYER_FIND_BY_NAME, rs -> rs.next() ? locationMapper.map(rs) : null,
+            PlayerDirectory.normalizeName(playerName));
+        return location != null && location.getServerId() != null ? location : null;
     }
 
-    public List<PlayerLocation> getPlayersOnServer(String serverId) {
-        String sql = "SELECT * FROM player_locations WHERE server_id = ?";
+    /**
+     * Online player names starting with the prefix, for tab completion, without touching the database
+     */
+    public List<String> completePlayerNames(String prefix, int limit) {
+        return directory.completeName(prefix, limit);
+    }
 
-        return dbManager.executeQuery(sql, rs -> {
-            List<PlayerLocation> players = new ArrayList<>();
-            while (rs.next()) {
-                PlayerLocation location = new PlayerLocation();
-                location.setPlayerUuid(UUID.fromString(rs.getString("player_uuid")));
-                location.setPlayerName(rs.getString("player_name"));
-                location.setServerId(rs.getString("server_id"));
-                location.setJoinedAt(rs.getTimestamp("joined_at"));
-                location.setLastSeen(rs.getTimestamp("last_seen"));
-                location.setWorldName(rs.getString("world_name"));
-                location.setX(rs.getDouble("x"));
-                location.setY(rs.getDouble("y"));
-                location.setZ(rs.getDouble("z"));
-                players.add(location);
-            }
-            return players;
-        }, serverId);
+    public PlayerDirectory getDirectory() {
+        return directory;
     }
 
-    public List<PlayerLocation> getAllOnlinePlayers() {
-        String sql = "SELECT * FROM player_locations ORDER BY server_id, player_name";
+    /**
+     * One page of online players ordered by server, name and UUID
+     * Pass null to start from the beginning, otherwise the last player of the previous page
+     */
+    public KeysetPage<PlayerLocation> getOnlinePlayersPage(PlayerLocation after, int pageSize) {
+        if (after == null) {
+            return dbManager.queryPage(SqlStatement.PLAYER_PAGE_FIRST, pageSize, locationMapper);
+        }
+        return dbManager.queryPage(SqlStatement.PLAYER_PAGE_AFTER, pageSize, locationMapper,
+            after.getServerId(), after.getPlayerName(), after.getPlayerUuid().toString());
+    }
+
+    public int getOnlinePlayerCount() {
+        Integer count = dbManager.executeQuery(SqlStatement.PLAYER_COUNT_ALL, rs -> rs.next() ? rs.getInt("count") : 0);
+        return count != null ? count : 0;
+    }
 
-        return dbManager.executeQuery(sql, rs -> {
-            List<PlayerLocation> players = new ArrayList<>();
+    /**
+     * Online player count per server
+     */
+    public Map<String, Integer> getPlayerCountsByServer() {
+        Map<String, Integer> counts = dbManager.executeQuery(SqlStatement.PLAYER_COUNT_BY_SERVER, rs -> {
+            Map<String, Integer> result = new HashMap<>();
             while (rs.next()) {
-                PlayerLocation location = new PlayerLocation();
-                location.setPlayerUuid(UUID.fromString(rs.getString("player_uuid")));
-                location.setPlayerName(rs.getString("player_name"));
-                location.setServerId(rs.getString("server_id"));
-                location.setJoinedAt(rs.getTimestamp("joined_at"));
-                location.setLastSeen(rs.getTimestamp("last_seen"));
-                location.setWorldName(rs.getString("world_name"));
-                location.setX(rs.getDouble("x"));
-                location.setY(rs.getDouble("y"));
-                location.setZ(rs.getDouble("z"));
-                players.add(location);
+                result.put(rs.getString("server_id"), rs.getInt("count"));
             }
-            return players;
+            return result;
         });
+        return counts != null ? counts : new HashMap<>();
+    }
+
+    private boolean isNetworkWide() {
+        return redisManager != null && redisManager.isEnabled();
     }
 
-    private boolean isMySQL() {
-        return dbManager.isMySQL();
+    private static final class Position {
+        private final String worldName;
+        private final double x, y, z;
+
+        Position(String worldName, double x, double y, double z) {
+            this.worldName = worldName;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        /** Infinitely far when the worlds differ */
+        double distanceSquared(Position other) {
+            if (!worldName.equals(other.worldName)) return Double.POSITIVE_INFINITY;
+            double dx = x - other.x, dy = y - other.y, dz = z - other.z;
+            return dx * dx + dy * dy + dz * dz;
+        }
     }
 }
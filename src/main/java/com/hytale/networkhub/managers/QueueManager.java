@@ -2,34 +2,74 @@ package com.hytale.networkhub.managers;
 
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
+import com.hytale.networkhub.database.mappers.QueueEntryMapper;
 import com.hytale.networkhub.database.models.QueueEntry;
 import com.hytale.networkhub.database.models.ServerRecord;
+import com.hytale.networkhub.redis.RedisManager;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import com.hypixel.hytale.logger.HytaleLogger;
 import java.util.logging.Level;
 
+/**
+ * Server queues, held in memory per server, or with Redis as one sorted set per target server shared by every hub
+ * In the distributed mode a player's score is their priority and join time folded into one number,
+ * so every hub sees the same order and only the maintenance leader dispatches
+ * server_queues is only the durable copy in both modes
+ */
 public class QueueManager {
+    private static final String QUEUE_KEY_PREFIX = "hytale:queue:";
+    // Join times in milliseconds stay below this until the 2280s, and priority steps stay exact in a double
+    private static final long PRIORITY_SCALE = 10_000_000_000_000L;
+    private static final int MAX_PRIORITY = 800;
+
     private final HytaleLogger logger;
     private final DatabaseManager dbManager;
+    private final RedisManager redisManager;
     private final NetworkConfig config;
     private final ServerRegistryManager registryManager;
     private final TransferManager transferManager;
     private final PlayerTrackingManager trackingManager;
+    private final LeaderElection leaderElection;
 
-    // In-memory queue cache
-    private final Map<String, PriorityQueue<QueueEntry>> serverQueues = new ConcurrentHashMap<>();
+    // The queues themselves when not distributed
+    private final Map<String, RankedQueue> serverQueues = new ConcurrentHashMap<>();
+    private final QueueEntryMapper entryMapper = new QueueEntryMapper();
 
-    public QueueManager(HytaleLogger logger, DatabaseManager dbManager, NetworkConfig config,
+    public QueueManager(HytaleLogger logger, DatabaseManager dbManager, RedisManager redisManager, NetworkConfig config,
                        ServerRegistryManager registryManager, TransferManager transferManager,
-                       PlayerTrackingManager trackingManager) {
+                       PlayerTrackingManager trackingManager, LeaderElection leaderElection) {
         this.logger = logger;
         this.dbManager = dbManager;
+        this.redisManager = redisManager;
         this.config = config;
         this.registryManager = registryManager;
         this.transferManager = transferManager;
         this.trackingManager = trackingManager;
+        this.leaderElection = leaderElection;
+    }
+
+    /**
+     * Restore the queues from their durable copy
+     * Distributed queues only get the entries Redis lost, the order other hubs already share is kept
+     */
+    public void initialize() {
+        serverQueues.clear();
+        Map<String, Map<String, Double>> scoresByServer = new HashMap<>();
+        long loaded = dbManager.streamQuery(SqlStatement.QUEUE_LOAD_ALL, rs -> {
+            QueueEntry entry = entryMapper.map(rs);
+            if (isDistributed()) {
+                scoresByServer.computeIfAbsent(entry.getServerId(), k -> new HashMap<>())
+                    .put(entry.getPlayerUuid().toString(), (double) score(entry.getPriority(), entry.getJoinedQueueAt().getTime()));
+            } else {
+                serverQueues.computeIfAbsent(entry.getServerId(), k -> new RankedQueue()).add(entry);
+            }
+            return true;
+        });
+        scoresByServer.forEach((serverId, scores) -> redisManager.queueSeed(queueKey(serverId), scores));
+        logger.at(Level.INFO).log("Loaded " + Math.max(0, loaded) + " queued players" + (isDistributed() ? " (distributed)" : ""));
     }
 
     public void joinQueue(UUID playerUuid, String targetServerId, int priority) {
@@ -46,61 +86,66 @@ public class QueueManager {
             return;
         }
 
-        // Check queue size limit
-        int queueSize = getQueueSize(targetServerId);
-        if (queueSize >= config.getConfig().queue.maxQueueSize) {
-            logger.at(Level.INFO).log("Queue full for server " + targetServerId);
-            return;
-        }
-
         // Get player name
         String playerName = getPlayerName(playerUuid);
-
-        // Insert into database
-        String sql = """
-            INSERT INTO server_queues (server_id, player_uuid, player_name, priority, joined_queue_at, position, notified)
-            VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?, false)
-            ON CONFLICT (server_id, player_uuid) DO UPDATE SET
-                priority = EXCLUDED.priority,
-                joined_queue_at = CURRENT_TIMESTAMP
-        """;
-
-        // For MySQL/MariaDB
-        if (isMySQL()) {
-            sql = """
-                INSERT INTO server_queues (server_id, player_uuid, player_name, priority, joined_queue_at, position, notified)
-                VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?, false)
-                ON DUPLICATE KEY UPDATE
-                    priority = VALUES(priority),
-                    joined_queue_at = CURRENT_TIMESTAMP
-            """;
+        int maxQueueSize = config.getConfig().queue.maxQueueSize;
+
+        int position;
+        if (isDistributed()) {
+            // The size check and the add are one script, so hubs joining at once cannot overfill the queue
+            long added = redisManager.queueAdd(queueKey(targetServerId), playerUuid.toString(),
+                score(priority, System.currentTimeMillis()), maxQueueSize);
+            if (added < 0) return;
+            position = (int) added;
+        } else {
+            RankedQueue queue = serverQueues.computeIfAbsent(targetServerId, k -> new RankedQueue());
+            position = queue.size() < maxQueueSize || queue.get(playerUuid) != null
+                ? queue.add(new QueueEntry(playerUuid, playerName, targetServerId, priority)) : 0;
         }
 
-        dbManager.executeUpdate(sql, targetServerId, playerUuid.toString(), playerName, priority, queueSize + 1);
+        if (position == 0) {
+            logger.at(Level.INFO).log("Queue full for server " + targetServerId);
+            return;
+        }
 
-        // Add to in-memory queue
-        QueueEntry entry = new QueueEntry(playerUuid, playerName, targetServerId, priority);
-        serverQueues.computeIfAbsent(targetServerId, k -> new PriorityQueue<>()).add(entry);
+        dbManager.executeUpdate(SqlStatement.QUEUE_UPSERT, targetServerId, playerUuid.toString(), playerName, priority, position);
 
-        logger.at(Level.INFO).log("Added " + playerName + " to queue for " + targetServerId + " (priority: " + priority + ", position: " + (queueSize + 1) + ")");
+        logger.at(Level.INFO).log("Added " + playerName + " to queue for " + targetServerId + " (priority: " + priority + ", position: " + position + ")");
     }
 
     public void leaveQueue(UUID playerUuid, String targetServerId) {
-        String sql = "DELETE FROM server_queues WHERE player_uuid = ? AND server_id = ?";
-        dbManager.executeUpdate(sql, playerUuid.toString(), targetServerId);
-
-        PriorityQueue<QueueEntry> queue = serverQueues.get(targetServerId);
-        if (queue != null) {
-            queue.removeIf(e -> e.getPlayerUuid().equals(playerUuid));
+        if (isDistributed()) {
+            redisManager.queueRemove(List.of(queueKey(targetServerId)), playerUuid.toString());
+        } else {
+            RankedQueue queue = serverQueues.get(targetServerId);
+            if (queue != null) {
+                queue.remove(playerUuid);
+            }
         }
 
+        dbManager.executeUpdate(SqlStatement.QUEUE_DELETE_ENTRY, playerUuid.toString(), targetServerId);
+
         logger.at(Level.INFO).log("Removed player " + playerUuid + " from queue for " + targetServerId);
     }
 
     public void processQueues() {
-        for (Map.Entry<String, PriorityQueue<QueueEntry>> entry : serverQueues.entrySet()) {
+        if (isDistributed()) {
+            // One dispatcher for the shared queues, or two hubs would fill the same free slots
+            if (!leaderElection.isLeader()) return;
+
+            for (ServerRecord server : registryManager.getOnlineServers()) {
+                try {
+                    processServerQueue(server.getServerId(), null);
+                } catch (Exception e) {
+                    logger.at(Level.SEVERE).log("Error processing queue for " + server.getServerId() + ": " + e.getMessage());
+                }
+            }
+            return;
+        }
+
+        for (Map.Entry<String, RankedQueue> entry : serverQueues.entrySet()) {
             String serverId = entry.getKey();
-            PriorityQueue<QueueEntry> queue = entry.getValue();
+            RankedQueue queue = entry.getValue();
 
             if (queue.isEmpty()) continue;
 
@@ -112,7 +157,10 @@ public class QueueManager {
         }
     }
 
-    private void processServerQueue(String serverId, PriorityQueue<QueueEntry> queue) {
+    /**
+     * Dispatch as many players as the server has free slots, from the local queue or, when it is null, the shared one
+     */
+    private void processServerQueue(String serverId, RankedQueue queue) {
         ServerRecord server = registryManager.getServerById(serverId);
         if (server == null) return;
 
@@ -121,78 +169,123 @@ public class QueueManager {
 
         logger.at(Level.FINE).log("Processing queue for " + serverId + ": " + availableSlots + " slots available");
 
-        for (int i = 0; i < availableSlots && !queue.isEmpty(); i++) {
-            QueueEntry queueEntry = queue.poll();
-            if (queueEntry == null) break;
-
-            UUID playerUuid = queueEntry.getPlayerUuid();
+        List<UUID> dequeued = new ArrayList<>();
+        if (queue == null) {
+            // Every slot's worth of players in one round trip, fenced by the lease so a deposed leader pops nobody
+            for (String member : redisManager.queuePop(queueKey(serverId), availableSlots,
+                    leaderElection.getLeaseKey(), leaderElection.getLeaseValue())) {
+                dequeued.add(UUID.fromString(member));
+            }
+        } else {
+            for (int i = 0; i < availableSlots; i++) {
+                QueueEntry queueEntry = queue.poll();
+                if (queueEntry == null) break;
+                dequeued.add(queueEntry.getPlayerUuid());
+            }
+        }
 
+        for (UUID playerUuid : dequeued) {
             // Check if player is still online
             var playerLoc = trackingManager.findPlayer(playerUuid);
             if (playerLoc == null) {
-                // Player offline, remove from DB
-                dbManager.executeUpdate("DELETE FROM server_queues WHERE player_uuid = ?",
-                    playerUuid.toString());
+                // Player offline, drop them from every queue
+                if (queue == null) {
+                    redisManager.queueRemove(getQueueKeys(), playerUuid.toString());
+                } else {
+                    serverQueues.values().forEach(other -> other.remove(playerUuid));
+                }
+                dbManager.executeUpdate(SqlStatement.QUEUE_DELETE_PLAYER, playerUuid.toString());
                 continue;
             }
 
             // TODO: Get actual Player object and transfer
             // For now just log and remove from DB
-            logger.at(Level.INFO).log("Queue slot ready for " + queueEntry.getPlayerName() + " -> " + server.getServerName());
+            logger.at(Level.INFO).log("Queue slot ready for " + playerLoc.getPlayerName() + " -> " + server.getServerName());
 
-            dbManager.executeUpdate("DELETE FROM server_queues WHERE player_uuid = ? AND server_id = ?",
-                playerUuid.toString(), serverId);
+            dbManager.executeUpdate(SqlStatement.QUEUE_DELETE_ENTRY, playerUuid.toString(), serverId);
         }
     }
 
     public int getQueuePosition(UUID playerUuid, String serverId) {
-        String sql = """
-            SELECT COUNT(*) + 1 as position FROM server_queues
-            WHERE server_id = ? AND (
-                priority > (SELECT priority FROM server_queues WHERE player_uuid = ? AND server_id = ?)
-                OR (priority = (SELECT priority FROM server_queues WHERE player_uuid = ? AND server_id = ?)
-                    AND joined_queue_at < (SELECT joined_queue_at FROM server_queues WHERE player_uuid = ? AND server_id = ?))
-            )
-        """;
-
-        Integer position = dbManager.executeQuery(sql, rs -> {
-            if (rs.next()) {
-                return rs.getInt("position");
-            }
-            return 0;
-        }, serverId, playerUuid.toString(), serverId, playerUuid.toString(), serverId, playerUuid.toString(), serverId);
+        if (isDistributed()) {
+            long[] rank = redisManager.queueRank(queueKey(serverId), playerUuid.toString());
+            return rank != null ? (int) rank[0] : 0;
+        }
 
-        return position != null ? position : 0;
+        RankedQueue queue = serverQueues.get(serverId);
+        return queue != null ? queue.getPosition(playerUuid) : 0;
     }
 
     public int getQueueSize(String serverId) {
-        String sql = "SELECT COUNT(*) as count FROM server_queues WHERE server_id = ?";
-        Integer count = dbManager.executeQuery(sql, rs -> {
-            if (rs.next()) {
-                return rs.getInt("count");
-            }
-            return 0;
-        }, serverId);
-        return count != null ? count : 0;
+        if (isDistributed()) {
+            return (int) redisManager.queueSizes(List.of(queueKey(serverId))).getOrDefault(queueKey(serverId), 0L).longValue();
+        }
+
+        RankedQueue queue = serverQueues.get(serverId);
+        return queue != null ? queue.size() : 0;
     }
 
     public int getTotalQueuedPlayers() {
-        String sql = "SELECT COUNT(*) as count FROM server_queues";
-        Integer count = dbManager.executeQuery(sql, rs -> {
-            if (rs.next()) {
-                return rs.getInt("count");
+        int total = 0;
+        if (isDistributed()) {
+            for (long size : redisManager.queueSizes(getQueueKeys()).values()) {
+                total += (int) size;
+            }
+            return total;
+        }
+
+        for (RankedQueue queue : serverQueues.values()) {
+            total += queue.size();
+        }
+        return total;
+    }
+
+    /**
+     * Every queue a player is in, by server, with their position in each
+     */
+    public Map<String, Integer> getPlayerQueues(UUID playerUuid) {
+        Map<String, Integer> positions = new TreeMap<>();
+        if (isDistributed()) {
+            redisManager.queuePositions(getQueueKeys(), playerUuid.toString())
+                .forEach((key, position) -> positions.put(key.substring(QUEUE_KEY_PREFIX.length()), position.intValue()));
+            return positions;
+        }
+
+        serverQueues.forEach((serverId, queue) -> {
+            int position = queue.getPosition(playerUuid);
+            if (position > 0) {
+                positions.put(serverId, position);
             }
-            return 0;
         });
-        return count != null ? count : 0;
+        return positions;
+    }
+
+    /**
+     * Higher priority first, then earlier join, as one sorted-set score where lower comes first
+     */
+    static long score(int priority, long joinedMillis) {
+        int clamped = Math.max(-MAX_PRIORITY, Math.min(MAX_PRIORITY, priority));
+        return -clamped * PRIORITY_SCALE + joinedMillis;
+    }
+
+    private boolean isDistributed() {
+        return config.getConfig().queue.distributed && redisManager != null && redisManager.isEnabled();
+    }
+
+    private static String queueKey(String serverId) {
+        return QUEUE_KEY_PREFIX + serverId;
+    }
+
+    private List<String> getQueueKeys() {
+        List<String> keys = new ArrayList<>();
+        for (ServerRecord server : registryManager.getAllServers()) {
+            keys.add(queueKey(server.getServerId()));
+        }
+        return keys;
     }
 
     private String getPlayerName(UUID playerUuid) {
         var playerLoc = trackingManager.findPlayer(playerUuid);
         return playerLoc != null ? playerLoc.getPlayerName() : "Unknown";
     }
-
-    private boolean isMySQL() {
-        return dbManager.isMySQL();
-    }
 }
@@ -0,0 +1,246 @@
+package com.hytale.networkhub.managers;
+
+import com.hytale.networkhub.database.models.QueueEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One server's queue, ordered by QueueEntry.compareTo, that answers a player's position in O(log n)
+ * An order-statistic treap: every node knows the size of its subtree, so a player's rank is the sum of the
+ * left subtree sizes on the way down to them; a UUID index finds the node to rank or remove
+ * Entries that compare equal keep the order they were added in
+ * Readers share a lock and writers take it exclusively, so positions can be shown from any thread
+ */
+public class RankedQueue {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Node> byPlayer = new HashMap<>();
+    private Node root;
+    private long nextSequence;
+
+    /**
+     * Add a player's entry, replacing the one they already had
+     * Returns their position, starting at 1
+     */
+    public int add(QueueEntry entry) {
+        lock.writeLock().lock();
+        try {
+            Node existing = byPlayer.remove(entry.getPlayerUuid());
+            if (existing != null) {
+                root = delete(root, existing);
+            }
+
+            Node node = new Node(entry, nextSequence++);
+            byPlayer.put(entry.getPlayerUuid(), node);
+            root = insert(root, node);
+            return rankOf(node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a player's entry, null if they were not queued
+     */
+    public QueueEntry remove(UUID playerUuid) {
+        lock.writeLock().lock();
+        try {
+            Node node = byPlayer.remove(playerUuid);
+            if (node == null) return null;
+
+            root = delete(root, node);
+            return node.entry;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove and return the entry at the front, null if the queue is empty
+     */
+    public QueueEntry poll() {
+        lock.writeLock().lock();
+        try {
+            if (root == null) return null;
+
+            Node first = root;
+            while (first.left != null) {
+                first = first.left;
+            }
+            byPlayer.remove(first.entry.getPlayerUuid());
+            root = delete(root, first);
+            return first.entry;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A player's position starting at 1, or 0 if they are not queued
+     */
+    public int getPosition(UUID playerUuid) {
+        lock.readLock().lock();
+        try {
+            Node node = byPlayer.get(playerUuid);
+            return node != null ? rankOf(node) : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public QueueEntry get(UUID playerUuid) {
+        lock.readLock().lock();
+        try {
+            Node node = byPlayer.get(playerUuid);
+            return node != null ? node.entry : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The first entries in queue order
+     */
+    public List<QueueEntry> head(int limit) {
+        lock.readLock().lock();
+        try {
+            List<QueueEntry> entries = new ArrayList<>(Math.min(limit, size(root)));
+            collect(root, entries, limit);
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private int rankOf(Node node) {
+        int rank = 1;
+        Node current = root;
+        while (current != node) {
+            if (compare(node, current) < 0) {
+                current = current.left;
+            } else {
+                rank += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+        return rank + size(node.left);
+    }
+
+    private static Node insert(Node tree, Node node) {
+        if (tree == null) return node;
+
+        if (node.weight > tree.weight) {
+            Node[] halves = split(tree, node);
+            node.left = halves[0];
+            node.right = halves[1];
+            return node.update();
+        }
+
+        if (compare(node, tree) < 0) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        return tree.update();
+    }
+
+    private static Node delete(Node tree, Node node) {
+        if (tree == node) return merge(tree.left, tree.right);
+
+        if (compare(node, tree) < 0) {
+            tree.left = delete(tree.left, node);
+        } else {
+            tree.right = delete(tree.right, node);
+        }
+        return tree.update();
+    }
+
+    /**
+     * Split a tree into the nodes ordered before the key and the rest
+     */
+    private static Node[] split(Node tree, Node key) {
+        if (tree == null) return new Node[2];
+
+        if (compare(tree, key) < 0) {
+            Node[] halves = split(tree.right, key);
+            tree.right = halves[0];
+            halves[0] = tree.update();
+            return halves;
+        }
+        Node[] halves = split(tree.left, key);
+        tree.left = halves[1];
+        halves[1] = tree.update();
+        return halves;
+    }
+
+    /**
+     * Join two trees where every node of the first is ordered before every node of the second
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) return second;
+        if (second == null) return first;
+
+        if (first.weight > second.weight) {
+            first.right = merge(first.right, second);
+            return first.update();
+        }
+        second.left = merge(first, second.left);
+        return second.update();
+    }
+
+    private static void collect(Node tree, List<QueueEntry> entries, int limit) {
+        if (tree == null || entries.size() >= limit) return;
+
+        collect(tree.left, entries, limit);
+        if (entries.size() < limit) {
+            entries.add(tree.entry);
+            collect(tree.right, entries, limit);
+        }
+    }
+
+    private static int compare(Node a, Node b) {
+        int order = a.entry.compareTo(b.entry);
+        return order != 0 ? order : Long.compare(a.sequence, b.sequence);
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static final class Node {
+        private final QueueEntry entry;
+        private final long sequence;
+        private final int weight = ThreadLocalRandom.current().nextInt();
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        Node(QueueEntry entry, long sequence) {
+            this.entry = entry;
+            this.sequence = sequence;
+        }
+
+        Node update() {
+            size = 1 + RankedQueue.size(left) + RankedQueue.size(right);
+            return this;
+        }
+    }
+}
@@ -1,71 +1,89 @@
 package com.hytale.networkhub.managers;
 
+import com.google.gson.Gson;
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
+import com.hytale.networkhub.database.mappers.ServerRecordMapper;
 import com.hytale.networkhub.database.models.ServerRecord;
+import com.hytale.networkhub.redis.RedisManager;
+import com.hytale.networkhub.redis.ServerDelta;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import com.hypixel.hytale.logger.HytaleLogger;
 
+/**
+ * In-memory registry of the network's servers
+ * With Redis enabled the cache is kept current by versioned deltas on the serverStatus channel,
+ * the database is read in full on startup and after a lost subscription, and per server when a delta was missed
+ * Without Redis, or while the subscription is down, it falls back to reloading from the database every 30 seconds
+ * Readers get the current immutable snapshot, writers build a new one and swap it in under registryLock
+ * Concurrent loads of the same data share one query, and entries near expiry refresh in the background
+ */
 public class ServerRegistryManager {
+    private static final String VERSION_KEY_PREFIX = "hytale:server:version:";
+    private static final String ALL_SERVERS = "*";
+    // An older version within this many of the last is a late duplicate, further back the counter was rolled back
+    private static final long VERSION_ROLLBACK_WINDOW = 16;
+
     private final HytaleLogger logger;
     private final DatabaseManager dbManager;
+    private final RedisManager redisManager;
     private final NetworkConfig config;
-    private final Map<String, ServerRecord> serverCache = new ConcurrentHashMap<>();
-    private long lastCacheUpdate = 0;
+    private final Gson gson;
+    private final Map<String, DeltaState> deltaStates = new HashMap<>();
+    // Epoch for version counters this server has to start over
+    private final long publisherEpoch = System.currentTimeMillis();
+    private final ServerRecordMapper serverMapper = new ServerRecordMapper();
+    private final Object registryLock = new Object();
+    private volatile ServerRegistrySnapshot snapshot = ServerRegistrySnapshot.EMPTY;
+    private final Map<String, Long> serverLoadedAt = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<ServerRecord>> serverLoads = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Boolean>> reconcileLoads = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> offlineListeners = new CopyOnWriteArrayList<>();
     private static final long CACHE_TTL_MS = 30000; // 30 seconds
+    private static final long REFRESH_AHEAD_MS = 24000; // refresh in the background past 80% of the TTL
 
-    public ServerRegistryManager(HytaleLogger logger, DatabaseManager dbManager, NetworkConfig config) {
+    public ServerRegistryManager(HytaleLogger logger, DatabaseManager dbManager, RedisManager redisManager,
+                                 NetworkConfig config, Gson gson) {
         this.logger = logger;
         this.dbManager = dbManager;
+        this.redisManager = redisManager;
         this.config = config;
+        this.gson = gson;
+    }
+
+    /**
+     * Subscribe to server deltas and load the initial registry
+     * Subscribing first means no delta published during the load is lost
+     */
+    public void initialize() {
+        if (isPushEnabled()) {
+            // Deltas published while we were not subscribed are gone, so catch up from the database
+            redisManager.subscribe(getChannel(), this::handleDelta,
+                () -> singleFlight(reconcileLoads, ALL_SERVERS, () -> reconcile(true), true));
+        }
+
+        if (reconcile(false)) {
+            logger.at(Level.INFO).log("Loaded " + snapshot.getTotalServers() + " servers into the registry");
+        }
     }
 
     public void registerServer() {
         NetworkConfig.ServerConfig serverCfg = config.getConfig().server;
 
-        String sql;
-
-        // Use MySQL/MariaDB syntax
-        if (dbManager.isMySQL()) {
-            sql = """
-                INSERT INTO servers (server_id, server_name, host, port, server_type, is_hub, hub_priority, max_players, registered_at, last_updated)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
-                ON DUPLICATE KEY UPDATE
-                    server_name = VALUES(server_name),
-                    host = VALUES(host),
-                    port = VALUES(port),
-                    server_type = VALUES(server_type),
-                    is_hub = VALUES(is_hub),
-                    hub_priority = VALUES(hub_priority),
-                    max_players = VALUES(max_players),
-                    last_updated = CURRENT_TIMESTAMP
-            """;
-        } else {
-            // PostgreSQL syntax
-            sql = """
-                INSERT INTO servers (server_id, server_name, host, port, server_type, is_hub, hub_priority, max_players, registered_at, last_updated)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
-                ON CONFLICT (server_id) DO UPDATE SET
-                    server_name = EXCLUDED.server_name,
-                    host = EXCLUDED.host,
-                    port = EXCLUDED.port,
-                    server_type = EXCLUDED.server_type,
-                    is_hub = EXCLUDED.is_hub,
-                    hub_priority = EXCLUDED.hub_priority,
-                    max_players = EXCLUDED.max_players,
-                    last_updated = CURRENT_TIMESTAMP
-            """;
-        }
-
-        int rows = dbManager.executeUpdate(sql,
+        int rows = dbManager.executeUpdate(SqlStatement.SERVER_REGISTER,
             serverCfg.serverId,
             serverCfg.serverName,
             "localhost", // TODO: Get actual host
@@ -78,111 +96,353 @@ public class ServerRegistryManager {
 
         if (rows > 0) {
             logger.at(Level.INFO).log("Registered server: " + serverCfg.serverName + " (" + serverCfg.serverId + ")");
+            publish(new ServerDelta(serverCfg.serverId)
+                .withIdentity(serverCfg.serverName, "localhost", 25565, serverCfg.serverType, serverCfg.maxPlayers)
+                .withHub(serverCfg.isHub, serverCfg.hubPriority));
         }
     }
 
     public void unregisterServer(String serverId) {
-        String sql = "UPDATE server_health SET status = 'OFFLINE' WHERE server_id = ?";
-        dbManager.executeUpdate(sql, serverId);
+        dbManager.executeUpdate(SqlStatement.HEALTH_MARK_OFFLINE, serverId);
+        publishStatus(serverId, ServerRecord.ServerStatus.OFFLINE, 0);
         logger.at(Level.INFO).log("Unregistered server: " + serverId);
     }
 
-    public ServerRecord getServerById(String serverId) {
-        // Check cache first
-        if (serverCache.containsKey(serverId) &&
-            System.currentTimeMillis() - lastCacheUpdate < CACHE_TTL_MS) {
-            return serverCache.get(serverId);
+    /**
+     * Announce a server's health status and player count to the network
+     */
+    public void publishStatus(String serverId, ServerRecord.ServerStatus status, int currentPlayers) {
+        publish(new ServerDelta(serverId).withStatus(status).withCurrentPlayers(currentPlayers));
+    }
+
+    /**
+     * Announce an online server's player count and tick performance to the network
+     */
+    public void publishHealth(String serverId, int currentPlayers, double tps, double tickP99Millis) {
+        publish(new ServerDelta(serverId)
+            .withStatus(ServerRecord.ServerStatus.ONLINE)
+            .withCurrentPlayers(currentPlayers)
+            .withPerformance(tps, tickP99Millis));
+    }
+
+    /**
+     * Announce a change to a server's hub designation to the network
+     */
+    public void publishHub(String serverId, boolean hub, int hubPriority) {
+        publish(new ServerDelta(serverId).withHub(hub, hubPriority));
+    }
+
+    /**
+     * The current registry; hold on to it to read several views that agree with each other
+     */
+    public ServerRegistrySnapshot getSnapshot() {
+        ServerRegistrySnapshot current = snapshot;
+        // Deltas keep the snapshot current, polling is only needed without them
+        if (isPushActive()) return current;
+
+        long age = System.currentTimeMillis() - current.getLoadedAt();
+        if (age >= CACHE_TTL_MS) {
+            singleFlight(reconcileLoads, ALL_SERVERS, () -> reconcile(false), false).join();
+            current = snapshot;
+        } else if (age >= REFRESH_AHEAD_MS) {
+            singleFlight(reconcileLoads, ALL_SERVERS, () -> reconcile(false), true);
         }
+        return current;
+    }
 
-        String sql = """
-            SELECT s.*, h.status, h.current_players
-            FROM servers s
-            LEFT JOIN server_health h ON s.server_id = h.server_id
-            WHERE s.server_id = ?
-        """;
+    public ServerRecord getServerById(String serverId) {
+        // Check cache first
+        ServerRegistrySnapshot current = snapshot;
+        ServerRecord cached = current.getServer(serverId);
+        if (cached != null) {
+            if (isPushActive()) return cached;
 
-        ServerRecord server = dbManager.executeQuery(sql, rs -> {
-            if (rs.next()) {
-                return mapServerRecord(rs);
+            long age = System.currentTimeMillis() - Math.max(current.getLoadedAt(), serverLoadedAt.getOrDefault(serverId, 0L));
+            if (age < REFRESH_AHEAD_MS) return cached;
+            if (age < CACHE_TTL_MS) {
+                // Still usable, callers keep getting it while the refresh runs
+                singleFlight(serverLoads, serverId, () -> refreshServer(serverId), true);
+                return cached;
             }
-            return null;
-        }, serverId);
-
-        if (server != null) {
-            serverCache.put(serverId, server);
         }
 
-        return server;
+        return singleFlight(serverLoads, serverId, () -> refreshServer(serverId), false).join();
     }
 
+    /** Unmodifiable, ordered by server ID */
     public List<ServerRecord> getAllServers() {
-        // Refresh cache if expired
-        if (System.currentTimeMillis() - lastCacheUpdate > CACHE_TTL_MS) {
-            refreshCache();
-        }
-
-        return new ArrayList<>(serverCache.values());
+        return getSnapshot().getServers();
     }
 
     public List<ServerRecord> getHubServers() {
-        return getAllServers().stream()
-            .filter(ServerRecord::isHub)
-            .toList();
+        return getSnapshot().getHubs();
     }
 
     public List<ServerRecord> getOnlineServers() {
-        return getAllServers().stream()
-            .filter(s -> s.getStatus() == ServerRecord.ServerStatus.ONLINE)
-            .toList();
+        return getSnapshot().getOnlineServers();
+    }
+
+    /**
+     * Be told the ID of every server the registry sees go offline, whether from a delta or a reload
+     * Called outside the registry lock, on the thread that applied the change
+     */
+    public void addOfflineListener(Consumer<String> listener) {
+        offlineListeners.add(listener);
+    }
+
+    /**
+     * Reload from the database, for changes made without publishing a delta
+     * Returns false if the load failed
+     */
+    public boolean reload() {
+        return reconcile(true);
+    }
+
+    private boolean isPushEnabled() {
+        return redisManager != null && redisManager.isEnabled();
+    }
+
+    /**
+     * Whether deltas are arriving right now, while the subscription is down the registry polls instead
+     */
+    private boolean isPushActive() {
+        return isPushEnabled() && redisManager.isSubscribed(getChannel());
+    }
+
+    private String getChannel() {
+        return redisManager.getChannel("serverStatus");
     }
 
-    private void refreshCache() {
-        String sql = """
-            SELECT s.*, h.status, h.current_players
-            FROM servers s
-            LEFT JOIN server_health h ON s.server_id = h.server_id
-        """;
+    private void publish(ServerDelta delta) {
+        if (!isPushEnabled()) return;
+
+        long[] version = redisManager.incrementVersion(VERSION_KEY_PREFIX + delta.getServerId(), publisherEpoch);
+        if (version == null) return;
+
+        delta.setVersion(version[0]);
+        delta.setEpoch(version[1]);
+        // Applied here first, so our own copy arriving back through Redis is dropped as a duplicate
+        applyDelta(delta);
+        redisManager.publish(getChannel(), delta);
+    }
+
+    private void handleDelta(String json) {
+        try {
+            ServerDelta delta = gson.fromJson(json, ServerDelta.class);
+            if (delta != null && delta.getServerId() != null) {
+                applyDelta(delta);
+            }
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Error handling server delta: " + e.getMessage());
+        }
+    }
+
+    private void applyDelta(ServerDelta delta) {
+        String serverId = delta.getServerId();
+        boolean resync = false;
+        boolean offline = false;
+
+        synchronized (registryLock) {
+            DeltaState state = deltaStates.get(serverId);
+            if (state != null && state.rebased) {
+                // First delta since a reload, nothing to compare its version against
+                state = null;
+            }
+            if (state != null && state.epoch == delta.getEpoch() && delta.getVersion() <= state.version
+                    && delta.getVersion() > state.version - VERSION_ROLLBACK_WINDOW) {
+                return;
+            }
+
+            if (state != null && (state.epoch != delta.getEpoch() || delta.getVersion() <= state.version)) {
+                // Redis lost or rolled back the counter, versions start over from this delta
+                logger.at(Level.INFO).log("Delta versions for " + serverId + " were reset (had " + state.epoch + "/" +
+                    state.version + ", got " + delta.getEpoch() + "/" + delta.getVersion() + "), reloading it");
+                resync = true;
+            } else if (state != null && delta.getVersion() > state.version + 1) {
+                // Deltas were lost, the database has the fields they carried
+                logger.at(Level.INFO).log("Missed deltas for " + serverId + " (had version " + state.version + ", got " +
+                    delta.getVersion() + "), reloading it");
+                resync = true;
+            }
+
+            ServerRecord base = snapshot.getServer(serverId);
+            if (base != null) {
+                ServerRecord updated = delta.applyTo(base);
+                snapshot = snapshot.with(updated);
+                offline = wentOffline(base, updated);
+            } else {
+                // A server we have not seen yet, its row is written before its first delta
+                resync = true;
+            }
+            deltaStates.put(serverId, new DeltaState(delta.getEpoch(), delta.getVersion(), delta, false));
+        }
+
+        if (offline) {
+            notifyOffline(serverId);
+        }
+
+        // Never on the subscriber thread or under the lock, deltas keep being applied while it loads
+        if (resync) {
+            singleFlight(serverLoads, serverId, () -> resyncServer(serverId), true);
+        }
+    }
 
-        List<ServerRecord> servers = dbManager.executeQuery(sql, rs -> {
+    /**
+     * Replace the registry with the database's view; returns false if the load failed
+     * While deltas arrive, each server's latest delta is laid over its row as resyncServer does,
+     * since server_health is only written once a minute; servers gone from the database lose their delta
+     * Known delta versions are dropped, the next delta from each server becomes its new baseline
+     */
+    private boolean reconcile(boolean fromPrimary) {
+        DatabaseManager.ResultSetHandler<List<ServerRecord>> handler = rs -> {
             List<ServerRecord> list = new ArrayList<>();
             while (rs.next()) {
-                list.add(mapServerRecord(rs));
+                list.add(serverMapper.map(rs));
             }
             return list;
-        });
-
-        if (servers != null) {
-            serverCache.clear();
-            servers.forEach(s -> serverCache.put(s.getServerId(), s));
-            lastCacheUpdate = System.currentTimeMillis();
-        }
-    }
-
-    private ServerRecord mapServerRecord(ResultSet rs) throws SQLException {
-        ServerRecord server = new ServerRecord();
-        server.setServerId(rs.getString("server_id"));
-        server.setServerName(rs.getString("server_name"));
-        server.setHost(rs.getString("host"));
-        server.setPort(rs.getInt("port"));
-        server.setServerType(rs.getString("server_type"));
-        server.setHub(rs.getBoolean("is_hub"));
-        server.setHubPriority(rs.getInt("hub_priority"));
-        server.setMaxPlayers(rs.getInt("max_players"));
-        server.setMotd(rs.getString("motd"));
-        server.setRegisteredAt(rs.getTimestamp("registered_at"));
-        server.setLastUpdated(rs.getTimestamp("last_updated"));
-
-        // Status and current players from server_health
-        String statusStr = rs.getString("status");
-        if (statusStr != null) {
-            server.setStatus(ServerRecord.ServerStatus.valueOf(statusStr));
-            server.setCurrentPlayers(rs.getInt("current_players"));
+        };
+        List<ServerRecord> servers = fromPrimary
+            ? dbManager.executeQueryOnPrimary(SqlStatement.SERVER_SELECT_ALL, handler)
+            : dbManager.executeQuery(SqlStatement.SERVER_SELECT_ALL, handler);
+
+        if (servers == null) return false;
+
+        boolean overlay = isPushActive();
+        List<String> offline = new ArrayList<>();
+        synchronized (registryLock) {
+            ServerRegistrySnapshot previous = snapshot;
+            Map<String, DeltaState> rebased = new HashMap<>();
+            List<ServerRecord> merged = new ArrayList<>(servers.size());
+            for (ServerRecord row : servers) {
+                DeltaState state = overlay ? deltaStates.get(row.getServerId()) : null;
+                ServerRecord server = state != null ? state.latest.applyTo(row) : row;
+                if (state != null) {
+                    rebased.put(row.getServerId(), new DeltaState(state.epoch, state.version, state.latest, true));
+                }
+                merged.add(server);
+                if (wentOffline(previous.getServer(server.getServerId()), server)) {
+                    offline.add(server.getServerId());
+                }
+            }
+            snapshot = ServerRegistrySnapshot.of(merged, System.currentTimeMillis());
+            deltaStates.clear();
+            deltaStates.putAll(rebased);
+        }
+        offline.forEach(this::notifyOffline);
+        return true;
+    }
+
+    /**
+     * Run loader for key unless a load for it is already in flight, in which case share that one
+     * A synchronous load runs on the calling thread, an asynchronous one on the database executor
+     */
+    private <T> CompletableFuture<T> singleFlight(Map<String, CompletableFuture<T>> inFlight, String key,
+                                                  Supplier<T> loader, boolean async) {
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            return existing;
+        }
+
+        Runnable task = () -> {
+            try {
+                load.complete(loader.get());
+            } catch (Exception e) {
+                logger.at(Level.WARNING).log("Server registry load failed for " + key + ": " + e.getMessage());
+                load.complete(null);
+            } finally {
+                inFlight.remove(key, load);
+            }
+        };
+
+        if (async) {
+            dbManager.getBlockingExecutor().execute(task);
         } else {
-            server.setStatus(ServerRecord.ServerStatus.OFFLINE);
-            server.setCurrentPlayers(0);
+            task.run();
+        }
+        return load;
+    }
+
+    /**
+     * Load one server from the database into the snapshot
+     */
+    private ServerRecord refreshServer(String serverId) {
+        if (isPushActive()) {
+            return resyncServer(serverId);
         }
 
+        ServerRecord server = loadServer(serverId);
+        if (server != null) {
+            synchronized (registryLock) {
+                snapshot = snapshot.with(server);
+            }
+            serverLoadedAt.put(serverId, System.currentTimeMillis());
+        }
         return server;
     }
 
+    /**
+     * Reload one server from the primary after missed deltas, with the latest delta laid over the row
+     * server_health is only written once a minute, so the live fields of the last delta are newer than the row
+     */
+    private ServerRecord resyncServer(String serverId) {
+        ServerRecord row = dbManager.executeQueryOnPrimary(SqlStatement.SERVER_SELECT_BY_ID, this::mapServer, serverId);
+        if (row == null) return null;
+
+        ServerRecord server;
+        boolean offline;
+        synchronized (registryLock) {
+            DeltaState state = deltaStates.get(serverId);
+            ServerRecord previous = snapshot.getServer(serverId);
+            server = state != null ? state.latest.applyTo(row) : row;
+            snapshot = snapshot.with(server);
+            serverLoadedAt.put(serverId, System.currentTimeMillis());
+            offline = wentOffline(previous, server);
+        }
+        if (offline) {
+            notifyOffline(serverId);
+        }
+        return server;
+    }
+
+    private static boolean wentOffline(ServerRecord before, ServerRecord after) {
+        return after.getStatus() == ServerRecord.ServerStatus.OFFLINE &&
+            (before == null || before.getStatus() != ServerRecord.ServerStatus.OFFLINE);
+    }
+
+    private void notifyOffline(String serverId) {
+        for (Consumer<String> listener : offlineListeners) {
+            try {
+                listener.accept(serverId);
+            } catch (Exception e) {
+                logger.at(Level.WARNING).log("Error handling offline server " + serverId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private ServerRecord loadServer(String serverId) {
+        return dbManager.executeQuery(SqlStatement.SERVER_SELECT_BY_ID, this::mapServer, serverId);
+    }
+
+    private ServerRecord mapServer(ResultSet rs) throws SQLException {
+        return rs.next() ? serverMapper.map(rs) : null;
+    }
+
+    /**
+     * The last delta applied for a server, and the epoch and version the next one is checked against
+     */
+    private static final class DeltaState {
+        private final long epoch;
+        private final long version;
+        private final ServerDelta latest;
+        // Kept across a reload only to overlay its row, the next delta is not checked against this version
+        private final boolean rebased;
+
+        DeltaState(long epoch, long version, ServerDelta latest, boolean rebased) {
+            this.epoch = epoch;
+            this.version = version;
+            this.latest = latest;
+            this.rebased = rebased;
+        }
+    }
 }
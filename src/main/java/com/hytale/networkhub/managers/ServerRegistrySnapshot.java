@@ -0,0 +1,130 @@
+package com.hytale.networkhub.managers;
+
+import com.hytale.networkhub.database.models.ServerRecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the server registry with its lookups precomputed
+ * A new snapshot is built and swapped in on every change, so readers never lock or allocate
+ * The records inside are never modified once published, changes replace them with new records
+ */
+public final class ServerRegistrySnapshot {
+    static final ServerRegistrySnapshot EMPTY = new ServerRegistrySnapshot(List.of(), 0);
+
+    /** Highest priority first, then the least loaded */
+    private static final Comparator<ServerRecord> HUB_ORDER = Comparator
+        .comparingInt(ServerRecord::getHubPriority).reversed()
+        .thenComparingInt(ServerRecord::getCurrentPlayers);
+
+    private final Map<String, ServerRecord> byId;
+    private final Map<String, List<ServerRecord>> byType;
+    private final List<ServerRecord> servers;
+    private final List<ServerRecord> hubs;
+    private final List<ServerRecord> onlineServers;
+    private final List<ServerRecord> onlineHubs;
+    private final int onlinePlayers;
+    private final int hubPlayers;
+    private final int onlineCapacity;
+    private final long loadedAt;
+
+    private ServerRegistrySnapshot(Collection<ServerRecord> records, long loadedAt) {
+        List<ServerRecord> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparing(ServerRecord::getServerId));
+
+        Map<String, ServerRecord> ids = new LinkedHashMap<>();
+        Map<String, List<ServerRecord>> types = new HashMap<>();
+        List<ServerRecord> hubList = new ArrayList<>();
+        List<ServerRecord> onlineList = new ArrayList<>();
+        List<ServerRecord> onlineHubList = new ArrayList<>();
+        int players = 0;
+        int hubCount = 0;
+        int capacity = 0;
+
+        for (ServerRecord server : sorted) {
+            ids.put(server.getServerId(), server);
+            if (server.getServerType() != null) {
+                types.computeIfAbsent(server.getServerType(), t -> new ArrayList<>()).add(server);
+            }
+            if (server.isHub()) {
+                hubList.add(server);
+            }
+            if (server.getStatus() == ServerRecord.ServerStatus.ONLINE) {
+                onlineList.add(server);
+                players += server.getCurrentPlayers();
+                capacity += server.getMaxPlayers();
+                if (server.isHub()) {
+                    onlineHubList.add(server);
+                    hubCount += server.getCurrentPlayers();
+                }
+            }
+        }
+        onlineHubList.sort(HUB_ORDER);
+
+        Map<String, List<ServerRecord>> frozenTypes = new HashMap<>();
+        types.forEach((type, list) -> frozenTypes.put(type, List.copyOf(list)));
+
+        this.byId = Collections.unmodifiableMap(ids);
+        this.byType = Map.copyOf(frozenTypes);
+        this.servers = List.copyOf(sorted);
+        this.hubs = List.copyOf(hubList);
+        this.onlineServers = List.copyOf(onlineList);
+        this.onlineHubs = List.copyOf(onlineHubList);
+        this.onlinePlayers = players;
+        this.hubPlayers = hubCount;
+        this.onlineCapacity = capacity;
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * A snapshot of a full load from the database
+     */
+    static ServerRegistrySnapshot of(Collection<ServerRecord> servers, long loadedAt) {
+        return new ServerRegistrySnapshot(servers, loadedAt);
+    }
+
+    /**
+     * A copy of this snapshot with one server added or replaced
+     */
+    ServerRegistrySnapshot with(ServerRecord server) {
+        Map<String, ServerRecord> updated = new HashMap<>(byId);
+        updated.put(server.getServerId(), server);
+        return new ServerRegistrySnapshot(updated.values(), loadedAt);
+    }
+
+    public ServerRecord getServer(String serverId) {
+        return byId.get(serverId);
+    }
+
+    public Map<String, ServerRecord> getServersById() { return byId; }
+
+    /** All servers ordered by ID */
+    public List<ServerRecord> getServers() { return servers; }
+
+    public List<ServerRecord> getServersOfType(String serverType) {
+        return byType.getOrDefault(serverType, List.of());
+    }
+
+    public List<ServerRecord> getHubs() { return hubs; }
+    public List<ServerRecord> getOnlineServers() { return onlineServers; }
+
+    /** Online hubs ordered by priority, then by player count */
+    public List<ServerRecord> getOnlineHubs() { return onlineHubs; }
+
+    public int getTotalServers() { return servers.size(); }
+    public int getOnlineServerCount() { return onlineServers.size(); }
+    public int getOnlinePlayers() { return onlinePlayers; }
+    public int getHubPlayers() { return hubPlayers; }
+    public int getGamePlayers() { return onlinePlayers - hubPlayers; }
+    public int getOnlineCapacity() { return onlineCapacity; }
+
+    /** When the last full database load happened, 0 if never */
+    public long getLoadedAt() { return loadedAt; }
+}
@@ -0,0 +1,299 @@
+package com.hytale.networkhub.managers;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import com.hypixel.hytale.logger.HytaleLogger;
+import java.util.logging.Level;
+
+/**
+ * Samples tick time, process CPU, GC pauses, allocation rate and heap after GC over each heartbeat window
+ * Tick durations come from recordTick, which the server's tick loop calls without allocating
+ * Until ticks are reported, a 50ms probe thread stands in and measures how late it wakes up,
+ * which catches GC pauses and CPU starvation but not slow game logic
+ */
+public class ServerTelemetry {
+    public static final double TARGET_TPS = 20.0;
+    public static final double LAGGING_TPS = 18.0;
+    public static final double LAGGING_TICK_P99_MILLIS = 100.0;
+
+    private static final long TARGET_TICK_NANOS = TimeUnit.SECONDS.toNanos(1) / (long) TARGET_TPS;
+    private static final long BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(250);
+    private static final int BUCKETS = 400; // up to 100ms, longer ticks land in the last bucket
+
+    private final HytaleLogger logger;
+    private final TickWindow serverTicks = new TickWindow();
+    private final TickWindow probeTicks = new TickWindow();
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+    private final Set<String> heapPools = new HashSet<>();
+    private final int processors = Runtime.getRuntime().availableProcessors();
+
+    private final Object gcLock = new Object();
+    private long gcPauseNanos;
+    private long gcMaxPauseNanos;
+    private int gcCount;
+    private long gcFreedBytes;
+    private long heapAfterGcBytes = -1;
+
+    private long windowStartNanos;
+    private long windowStartCpuNanos;
+    private long windowStartHeapUsed;
+    private Thread probe;
+    private volatile boolean running;
+
+    public ServerTelemetry(HytaleLogger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Start the tick probe and GC listeners
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+
+        NotificationListener gcListener = this::onGarbageCollection;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(gcListener, null, null);
+            }
+        }
+
+        windowStartNanos = System.nanoTime();
+        windowStartCpuNanos = processCpuNanos();
+        windowStartHeapUsed = memoryBean.getHeapMemoryUsage().getUsed();
+
+        probe = new Thread(this::runProbe, "NetworkHub-TickProbe");
+        probe.setDaemon(true);
+        probe.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (probe != null) {
+            probe.interrupt();
+            probe = null;
+        }
+    }
+
+    /**
+     * Whether a server's last window is bad enough to route players elsewhere; unknown values never count
+     */
+    public static boolean isLagging(double tps, double tickP99Millis) {
+        return (tps > 0 && tps < LAGGING_TPS) || tickP99Millis > LAGGING_TICK_P99_MILLIS;
+    }
+
+    /**
+     * Record the duration of one server tick; called from the tick loop, does not allocate
+     */
+    public void recordTick(long durationNanos) {
+        serverTicks.record(durationNanos);
+    }
+
+    /**
+     * Close the current window and return its statistics
+     */
+    public synchronized Sample sample() {
+        long now = System.nanoTime();
+        double windowSeconds = Math.max(1, now - windowStartNanos) / 1e9;
+
+        // Prefer real tick reports, fall back to the probe when the server is not reporting them
+        boolean fromServer = serverTicks.count() > 0;
+        TickWindow ticks = fromServer ? serverTicks : probeTicks;
+        Sample sample = new Sample();
+        sample.tickSource = fromServer ? "server" : "probe";
+        ticks.drainInto(sample);
+        (fromServer ? probeTicks : serverTicks).reset();
+
+        long cpuNanos = processCpuNanos();
+        if (cpuNanos >= 0 && windowStartCpuNanos >= 0) {
+            sample.processCpuPercent = Math.min(100.0,
+                (cpuNanos - windowStartCpuNanos) * 100.0 / ((now - windowStartNanos) * (double) processors));
+        }
+        windowStartCpuNanos = cpuNanos;
+
+        long heapUsed = memoryBean.getHeapMemoryUsage().getUsed();
+        synchronized (gcLock) {
+            // Whatever the heap grew by, plus whatever GC freed in between, was allocated
+            long allocated = Math.max(0, heapUsed - windowStartHeapUsed + gcFreedBytes);
+            sample.allocationRateMbPerSec = allocated / 1024.0 / 1024.0 / windowSeconds;
+            sample.gcPauseMillis = gcPauseNanos / 1e6;
+            sample.gcMaxPauseMillis = gcMaxPauseNanos / 1e6;
+            sample.gcCount = gcCount;
+            sample.heapAfterGcMb = heapAfterGcBytes >= 0 ? heapAfterGcBytes / 1024 / 1024 : -1;
+
+            gcPauseNanos = 0;
+            gcMaxPauseNanos = 0;
+            gcCount = 0;
+            gcFreedBytes = 0;
+        }
+
+        windowStartHeapUsed = heapUsed;
+        windowStartNanos = now;
+        return sample;
+    }
+
+    private void runProbe() {
+        long expected = System.nanoTime() + TARGET_TICK_NANOS;
+        while (running && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(expected - System.nanoTime());
+            long now = System.nanoTime();
+            // A probe tick takes the target time plus however late it woke up
+            probeTicks.record(TARGET_TICK_NANOS + Math.max(0, now - expected));
+            expected = Math.max(expected + TARGET_TICK_NANOS, now);
+        }
+    }
+
+    private void onGarbageCollection(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+
+        try {
+            GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long before = heapBytes(info.getGcInfo().getMemoryUsageBeforeGc());
+            long after = heapBytes(info.getGcInfo().getMemoryUsageAfterGc());
+            // Concurrent cycles run alongside the application, only stop-the-world collections are pauses
+            boolean pause = !info.getGcName().contains("Concurrent") && !info.getGcName().contains("Cycles");
+
+            synchronized (gcLock) {
+                if (pause) {
+                    long pauseNanos = TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration());
+                    gcPauseNanos += pauseNanos;
+                    gcMaxPauseNanos = Math.max(gcMaxPauseNanos, pauseNanos);
+                }
+                gcCount++;
+                gcFreedBytes += Math.max(0, before - after);
+                heapAfterGcBytes = after;
+            }
+        } catch (Exception e) {
+            logger.at(Level.FINE).log("Could not read GC notification: " + e.getMessage());
+        }
+    }
+
+    private long heapBytes(Map<String, MemoryUsage> usage) {
+        long total = 0;
+        for (Map.Entry<String, MemoryUsage> pool : usage.entrySet()) {
+            if (heapPools.contains(pool.getKey())) {
+                total += pool.getValue().getUsed();
+            }
+        }
+        return total;
+    }
+
+    private long processCpuNanos() {
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean sunBean) {
+            return sunBean.getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    /**
+     * Tick durations of one window in fixed-width buckets, so percentiles need no per-tick storage
+     */
+    private static class TickWindow {
+        private final long[] buckets = new long[BUCKETS];
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        synchronized void record(long durationNanos) {
+            int bucket = (int) Math.min(BUCKETS - 1, Math.max(0, durationNanos / BUCKET_NANOS));
+            buckets[bucket]++;
+            count++;
+            totalNanos += durationNanos;
+            maxNanos = Math.max(maxNanos, durationNanos);
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized void drainInto(Sample sample) {
+            if (count > 0) {
+                double meanNanos = (double) totalNanos / count;
+                sample.ticks = count;
+                sample.tickMeanMillis = meanNanos / 1e6;
+                sample.tickMaxMillis = maxNanos / 1e6;
+                sample.tickP99Millis = Math.min(percentileNanos(0.99), maxNanos) / 1e6;
+                // A tick faster than its slot still waits for the next one
+                sample.tps = Math.min(TARGET_TPS, 1e9 / Math.max(meanNanos, TARGET_TICK_NANOS));
+            }
+            reset();
+        }
+
+        synchronized void reset() {
+            Arrays.fill(buckets, 0);
+            count = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+        }
+
+        private long percentileNanos(double percentile) {
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    // The last bucket is open-ended, the max is the best bound there
+                    return i == BUCKETS - 1 ? maxNanos : (i + 1) * BUCKET_NANOS;
+                }
+            }
+            return maxNanos;
+        }
+    }
+
+    /**
+     * Statistics for one heartbeat window
+     */
+    public static class Sample {
+        private String tickSource;
+        private long ticks;
+        private double tps = TARGET_TPS;
+        private double tickMeanMillis;
+        private double tickP99Millis;
+        private double tickMaxMillis;
+        private double processCpuPercent;
+        private double gcPauseMillis;
+        private double gcMaxPauseMillis;
+        private int gcCount;
+        private double allocationRateMbPerSec;
+        private long heapAfterGcMb = -1;
+
+        public String getTickSource() { return tickSource; }
+        public long getTicks() { return ticks; }
+        public double getTps() { return tps; }
+        public double getTickMeanMillis() { return tickMeanMillis; }
+        public double getTickP99Millis() { return tickP99Millis; }
+        public double getTickMaxMillis() { return tickMaxMillis; }
+        public double getProcessCpuPercent() { return processCpuPercent; }
+        public double getGcPauseMillis() { return gcPauseMillis; }
+        public double getGcMaxPauseMillis() { return gcMaxPauseMillis; }
+        public int getGcCount() { return gcCount; }
+        public double getAllocationRateMbPerSec() { return allocationRateMbPerSec; }
+        /** -1 until the first collection */
+        public long getHeapAfterGcMb() { return heapAfterGcMb; }
+    }
+}
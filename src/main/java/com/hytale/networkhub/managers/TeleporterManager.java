@@ -2,6 +2,8 @@ package com.hytale.networkhub.managers;
 
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
+import com.hytale.networkhub.database.mappers.TeleporterDataMapper;
 import com.hytale.networkhub.database.models.TeleporterData;
 
 import java.util.*;
@@ -15,6 +17,7 @@ public class TeleporterManager {
     private final NetworkConfig config;
     private final String serverId;
     private final Map<String, TeleporterData> teleporterCache = new ConcurrentHashMap<>();
+    private final TeleporterDataMapper teleporterMapper = new TeleporterDataMapper();
     private final Map<UUID, Map<Integer, Long>> playerCooldowns = new ConcurrentHashMap<>();
 
     public TeleporterManager(HytaleLogger logger, DatabaseManager dbManager, NetworkConfig config) {
@@ -25,28 +28,11 @@ public class TeleporterManager {
     }
 
     public void loadTeleporters() {
-        String sql = "SELECT * FROM teleporters WHERE server_id = ? AND enabled = true";
-
-        List<TeleporterData> teleporters = dbManager.executeQuery(sql, rs -> {
+        // Read from the primary, this also refreshes the cache right after teleporters are created
+        List<TeleporterData> teleporters = dbManager.executeQueryOnPrimary(SqlStatement.TELEPORTER_LOAD, rs -> {
             List<TeleporterData> list = new ArrayList<>();
             while (rs.next()) {
-                TeleporterData tp = new TeleporterData();
-                tp.setTeleporterId(rs.getInt("teleporter_id"));
-                tp.setServerId(rs.getString("server_id"));
-                tp.setWorldName(rs.getString("world_name"));
-                tp.setX(rs.getInt("x"));
-                tp.setY(rs.getInt("y"));
-                tp.setZ(rs.getInt("z"));
-                tp.setDestinationServerId(rs.getString("destination_server_id"));
-                tp.setDestinationWorld(rs.getString("destination_world"));
-                tp.setDestinationX(rs.getDouble("destination_x"));
-                tp.setDestinationY(rs.getDouble("destination_y"));
-                tp.setDestinationZ(rs.getDouble("destination_z"));
-                tp.setDisplayName(rs.getString("display_name"));
-                tp.setPermission(rs.getString("permission"));
-                tp.setCooldownSeconds(rs.getInt("cooldown_seconds"));
-                tp.setEnabled(rs.getBoolean("enabled"));
-                list.add(tp);
+                list.add(teleporterMapper.map(rs));
             }
             return list;
         }, serverId);
@@ -63,13 +49,7 @@ public class TeleporterManager {
 
     public void createTeleporter(String worldName, int x, int y, int z, String destinationServerId,
                                 String displayName, String permission, int cooldownSeconds) {
-        String sql = """
-            INSERT INTO teleporters (server_id, world_name, x, y, z, destination_server_id,
-                                    display_name, permission, cooldown_seconds, enabled, created_at, updated_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, true, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
-        """;
-
-        int rows = dbManager.executeUpdate(sql, serverId, worldName, x, y, z, destinationServerId,
+        int rows = dbManager.executeUpdate(SqlStatement.TELEPORTER_INSERT, serverId, worldName, x, y, z, destinationServerId,
             displayName, permission, cooldownSeconds);
 
         if (rows > 0) {
@@ -79,8 +59,7 @@ public class TeleporterManager {
     }
 
     public void removeTeleporter(String worldName, int x, int y, int z) {
-        String sql = "DELETE FROM teleporters WHERE server_id = ? AND world_name = ? AND x = ? AND y = ? AND z = ?";
-        int rows = dbManager.executeUpdate(sql, serverId, worldName, x, y, z);
+        int rows = dbManager.executeUpdate(SqlStatement.TELEPORTER_DELETE, serverId, worldName, x, y, z);
 
         if (rows > 0) {
             logger.at(Level.INFO).log("Removed teleporter at " + worldName + " (" + x + "," + y + "," + z + ")");
@@ -2,6 +2,7 @@ package com.hytale.networkhub.managers;
 
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.SqlStatement;
 import com.hytale.networkhub.database.models.ServerRecord;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 
@@ -38,12 +39,7 @@ public class TransferManager {
                     playerName, destination.getServerName(), destination.getHost(), destination.getPort()));
 
                 // Update player location in database
-                String updateSql = """
-                    UPDATE player_locations
-                    SET server_id = ?, joined_at = CURRENT_TIMESTAMP
-                    WHERE player_uuid = ?
-                """;
-                dbManager.executeUpdate(updateSql, destination.getServerId(), playerUuid.toString());
+                dbManager.executeUpdate(SqlStatement.PLAYER_SET_SERVER, destination.getServerId(), playerUuid.toString());
 
                 // Execute transfer using Hytale API
                 playerRef.referToServer(destination.getHost(), destination.getPort(), new byte[0]);
@@ -59,19 +55,13 @@ public class TransferManager {
                 e.printStackTrace();
                 return false;
             }
-        });
+        }, dbManager.getBlockingExecutor());
     }
 
     private void logTransferHistory(UUID playerUuid, String playerName, String fromServerId,
                                     String toServerId, TransferType type, UUID initiatedBy,
                                     String reason, boolean success) {
-        String sql = """
-            INSERT INTO transfer_history (player_uuid, player_name, from_server_id, to_server_id,
-                                         transfer_type, initiated_by, reason, success, transferred_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
-        """;
-
-        dbManager.executeUpdateAsync(sql,
+        dbManager.executeUpdateAsync(SqlStatement.TRANSFER_LOG,
             playerUuid.toString(),
             playerName,
             fromServerId,
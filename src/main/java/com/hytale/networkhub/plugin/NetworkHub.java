@@ -7,9 +7,12 @@ import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.config.DatabaseConfig;
 import com.hytale.networkhub.config.RedisConfig;
 import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.PartitionManager;
+import com.hytale.networkhub.database.RetentionEngine;
 import com.hytale.networkhub.database.SchemaInitializer;
 import com.hytale.networkhub.managers.*;
 import com.hytale.networkhub.redis.RedisManager;
+import com.hytale.networkhub.redis.RedisMessageHandler;
 import com.hytale.networkhub.tasks.*;
 
 import javax.annotation.Nonnull;
@@ -38,10 +41,13 @@ public class NetworkHub extends JavaPlugin {
 
     // Configuration
     private NetworkConfig config;
+    private DatabaseConfig dbConfig;
+    private Path configPath;
     private Gson gson;
 
     // Database
     private DatabaseManager databaseManager;
+    private PartitionManager partitionManager;
 
     // Redis
     private RedisManager redisManager;
@@ -50,6 +56,7 @@ public class NetworkHub extends JavaPlugin {
     private ServerRegistryManager serverRegistryManager;
     private HeartbeatManager heartbeatManager;
     private HubManager hubManager;
+    private PlayerDirectory playerDirectory;
     private PlayerTrackingManager playerTrackingManager;
     private TransferManager transferManager;
     private TeleporterManager teleporterManager;
@@ -58,6 +65,9 @@ public class NetworkHub extends JavaPlugin {
     private ChatManager chatManager;
     private AnnouncementManager announcementManager;
     private ModerationManager moderationManager;
+    private ServerTelemetry serverTelemetry;
+    private LeaderElection leaderElection;
+    private HealthHistory healthHistory;
 
     // Scheduler
     private ScheduledExecutorService scheduler;
@@ -76,13 +86,13 @@ public class NetworkHub extends JavaPlugin {
             gson = new Gson();
 
             // Load configurations
-            Path configPath = getFile().getParent().resolve("NetworkHub");
+            configPath = getFile().getParent().resolve("NetworkHub");
             config = new NetworkConfig(getLogger(), configPath);
             config.load();
             getLogger().at(Level.INFO).log("Configuration loaded for server: %s", config.getConfig().server.serverId);
 
             // Load database config
-            DatabaseConfig dbConfig = new DatabaseConfig(getLogger(), configPath);
+            dbConfig = new DatabaseConfig(getLogger(), configPath);
             dbConfig.load();
 
             // Initialize database
@@ -95,6 +105,9 @@ public class NetworkHub extends JavaPlugin {
             schemaInitializer.initialize();
             getLogger().at(Level.INFO).log("Database schema initialized");
 
+            partitionManager = new PartitionManager(getLogger(), databaseManager, dbConfig.getConfig().partitioning);
+            partitionManager.initialize();
+
             // Initialize Redis (if enabled)
             if (config.getConfig().redis.enabled) {
                 RedisConfig redisConfig = new RedisConfig(getLogger(), configPath);
@@ -107,13 +120,21 @@ public class NetworkHub extends JavaPlugin {
             }
 
             // Initialize managers
-            serverRegistryManager = new ServerRegistryManager(getLogger(), databaseManager, config);
-            heartbeatManager = new HeartbeatManager(getLogger(), config, databaseManager);
-            hubManager = new HubManager(getLogger(), databaseManager, serverRegistryManager);
-            playerTrackingManager = new PlayerTrackingManager(getLogger(), databaseManager, config);
+            serverRegistryManager = new ServerRegistryManager(getLogger(), databaseManager, redisManager, config, gson);
+            serverTelemetry = new ServerTelemetry(getLogger());
+            leaderElection = new LeaderElection(getLogger(), config, databaseManager, redisManager);
+            healthHistory = new HealthHistory(getLogger(), databaseManager, config);
+            heartbeatManager = new HeartbeatManager(getLogger(), config, databaseManager, redisManager, serverRegistryManager,
+                serverTelemetry, healthHistory, leaderElection, gson);
+            hubManager = new HubManager(getLogger(), databaseManager, config, serverRegistryManager);
+            playerDirectory = new PlayerDirectory();
+            playerTrackingManager = new PlayerTrackingManager(getLogger(), databaseManager, redisManager, playerDirectory, config);
+            // A crashed server sends no quits, its players leave the directory when it is seen going offline
+            serverRegistryManager.addOfflineListener(playerTrackingManager::handleServerOffline);
             transferManager = new TransferManager(getLogger(), databaseManager, config);
             teleporterManager = new TeleporterManager(getLogger(), databaseManager, config);
-            queueManager = new QueueManager(getLogger(), databaseManager, config, serverRegistryManager, transferManager, playerTrackingManager);
+            queueManager = new QueueManager(getLogger(), databaseManager, redisManager, config, serverRegistryManager,
+                transferManager, playerTrackingManager, leaderElection);
             messagingManager = new MessagingManager(getLogger(), databaseManager, redisManager, playerTrackingManager, config, gson);
             chatManager = new ChatManager(getLogger(), databaseManager, redisManager, config, gson);
             announcementManager = new AnnouncementManager(getLogger(), databaseManager, redisManager, config, gson);
@@ -122,9 +143,13 @@ public class NetworkHub extends JavaPlugin {
             getLogger().at(Level.INFO).log("Managers initialized");
 
             // Register server in database
+            serverRegistryManager.initialize();
+            heartbeatManager.initialize();
             serverRegistryManager.registerServer();
             getLogger().at(Level.INFO).log("Server registered in network");
 
+            queueManager.initialize();
+
             getLogger().at(Level.INFO).log("NetworkHub setup complete");
 
         } catch (Exception e) {
@@ -150,28 +175,48 @@ public class NetworkHub extends JavaPlugin {
             teleporterManager.loadTeleporters();
             getLogger().at(Level.INFO).log("Loaded teleporters");
 
+            // Sample tick time, CPU and GC for the heartbeats
+            serverTelemetry.start();
+
             // Schedule heartbeat task (every 10 seconds)
             // Start after 5 seconds to avoid deadlock with server registration
             scheduler.scheduleAtFixedRate(
-                new HeartbeatTask(getLogger(), config, heartbeatManager),
+                new HeartbeatTask(getLogger(), config, heartbeatManager, playerTrackingManager),
                 5,
                 config.getConfig().heartbeat.intervalSeconds,
                 TimeUnit.SECONDS
             );
 
-            // Schedule health check task (every 15 seconds)
+            // Take or renew the maintenance lease (every 5 seconds), before the tasks that need it
             scheduler.scheduleAtFixedRate(
-                new HealthCheckTask(getLogger(), config, databaseManager),
-                15,
+                new LeaderLeaseTask(getLogger(), leaderElection),
+                0,
+                leaderElection.getRenewIntervalSeconds(),
+                TimeUnit.SECONDS
+            );
+
+            // Schedule health check task (every 2 seconds)
+            scheduler.scheduleAtFixedRate(
+                new HealthCheckTask(getLogger(), heartbeatManager, leaderElection),
                 15,
+                config.getConfig().heartbeat.detectionIntervalSeconds,
                 TimeUnit.SECONDS
             );
 
-            // Schedule player location update task (every 30 seconds)
+            // Persist closed health history buckets (every minute)
+            scheduler.scheduleAtFixedRate(
+                new HealthHistoryTask(getLogger(), healthHistory),
+                60,
+                60,
+                TimeUnit.SECONDS
+            );
+
+            // Schedule player location flush (every 30 seconds by default)
+            int locationFlushInterval = config.getConfig().location.flushIntervalSeconds;
             scheduler.scheduleAtFixedRate(
                 new PlayerLocationUpdateTask(getLogger(), config, playerTrackingManager),
-                30,
-                30,
+                locationFlushInterval,
+                locationFlushInterval,
                 TimeUnit.SECONDS
             );
 
@@ -185,12 +230,46 @@ public class NetworkHub extends JavaPlugin {
 
             // Schedule cleanup task (every 5 minutes)
             scheduler.scheduleAtFixedRate(
-                new CleanupTask(getLogger(), config, databaseManager),
+                new CleanupTask(getLogger(), config, partitionManager,
+                    new RetentionEngine(getLogger(), databaseManager, dbConfig.getConfig().retention), leaderElection),
                 5,
                 5,
                 TimeUnit.MINUTES
             );
 
+            // Schedule database metrics export
+            int metricsInterval = dbConfig.getConfig().metricsExportIntervalSeconds;
+            if (dbConfig.getConfig().metricsEnabled && metricsInterval > 0) {
+                scheduler.scheduleAtFixedRate(
+                    new DatabaseMetricsTask(getLogger(), databaseManager, configPath.resolve("db-metrics.prom")),
+                    metricsInterval,
+                    metricsInterval,
+                    TimeUnit.SECONDS
+                );
+            }
+
+            // Schedule write journal replay
+            if (dbConfig.getConfig().journal.enabled) {
+                long replayInterval = Math.max(100, dbConfig.getConfig().journal.replayIntervalMs);
+                scheduler.scheduleAtFixedRate(
+                    new JournalReplayTask(getLogger(), databaseManager),
+                    replayInterval,
+                    replayInterval,
+                    TimeUnit.MILLISECONDS
+                );
+            }
+
+            // Schedule read replica lag monitoring
+            if (databaseManager.getReplicaRouter() != null) {
+                int lagInterval = Math.max(1, dbConfig.getConfig().readReplica.lagCheckIntervalSeconds);
+                scheduler.scheduleAtFixedRate(
+                    new ReplicaLagTask(getLogger(), databaseManager.getReplicaRouter()),
+                    lagInterval,
+                    lagInterval,
+                    TimeUnit.SECONDS
+                );
+            }
+
             getLogger().at(Level.INFO).log("Scheduled tasks started");
 
             // Register commands
@@ -207,6 +286,10 @@ public class NetworkHub extends JavaPlugin {
                 getLogger().at(Level.INFO).log("Subscribed to Redis channels");
             }
 
+            // Load the player directory only now, so no join or quit falls between the subscription and the load;
+            // those that arrive while it runs take precedence over the rows it reads
+            playerTrackingManager.initialize();
+
             getLogger().at(Level.INFO).log("NetworkHub started successfully!");
 
         } catch (Exception e) {
@@ -233,6 +316,20 @@ public class NetworkHub extends JavaPlugin {
                 }
             }
 
+            if (serverTelemetry != null) {
+                serverTelemetry.stop();
+            }
+
+            // Keep the minutes since the last persist
+            if (healthHistory != null) {
+                healthHistory.persist(true);
+            }
+
+            // Hand maintenance over now rather than when the lease expires
+            if (leaderElection != null) {
+                leaderElection.release();
+            }
+
             // Unregister server
             if (serverRegistryManager != null) {
                 serverRegistryManager.unregisterServer(config.getConfig().server.serverId);
@@ -322,14 +419,12 @@ public class NetworkHub extends JavaPlugin {
         // Subscribe to all Redis channels for cross-server communication
         if (redisManager == null) return;
 
-        // Subscribe to Redis channels
-        redisManager.subscribe("player:join", message -> {
-            // Handle player join notifications from other servers
-        });
-
-        redisManager.subscribe("player:quit", message -> {
-            // Handle player quit notifications from other servers
-        });
+        // Player joins and quits across the network keep the player directory current,
+        // events missed while a subscription was down are caught up on by loading it again
+        RedisMessageHandler messageHandler = new RedisMessageHandler(getLogger(), gson, playerDirectory);
+        Runnable reloadDirectory = () -> databaseManager.getBlockingExecutor().execute(playerTrackingManager::initialize);
+        redisManager.subscribe(redisManager.getChannel("playerJoin"), messageHandler::handlePlayerJoin, reloadDirectory);
+        redisManager.subscribe(redisManager.getChannel("playerQuit"), messageHandler::handlePlayerQuit, reloadDirectory);
 
         redisManager.subscribe("chat:global", message -> {
             // Handle global chat messages
@@ -343,9 +438,7 @@ public class NetworkHub extends JavaPlugin {
             // Handle direct messages
         });
 
-        redisManager.subscribe("server:status", message -> {
-            // Handle server status updates
-        });
+        // Server status deltas are handled by the ServerRegistryManager
 
         redisManager.subscribe("transfer:request", message -> {
             // Handle remote transfer requests
@@ -382,6 +475,18 @@ public class NetworkHub extends JavaPlugin {
         return heartbeatManager;
     }
 
+    public ServerTelemetry getServerTelemetry() {
+        return serverTelemetry;
+    }
+
+    public LeaderElection getLeaderElection() {
+        return leaderElection;
+    }
+
+    public HealthHistory getHealthHistory() {
+        return healthHistory;
+    }
+
     public HubManager getHubManager() {
         return hubManager;
     }
@@ -0,0 +1,61 @@
+package com.hytale.networkhub.redis;
+
+import com.hytale.networkhub.managers.ServerTelemetry;
+
+/**
+ * One server's heartbeat, published on the heartbeat channel every interval
+ * Receivers time its arrival for failure detection and record its values in their health history
+ * Tick and GC values are those of the telemetry window that ended with this heartbeat
+ */
+public class HeartbeatMessage {
+    private String serverId;
+    private int currentPlayers;
+    private double tps;
+    private long memoryUsedMb;
+    private long memoryMaxMb;
+    private double cpuPercent;
+    private double tickMeanMs;
+    private double tickP99Ms;
+    private double tickMaxMs;
+    private double gcPauseMs;
+    private double gcMaxPauseMs;
+    private int gcCount;
+    private double allocationMbPerSec;
+    private long heapAfterGcMb = -1;
+
+    public HeartbeatMessage() {}
+
+    public HeartbeatMessage(String serverId, int currentPlayers, long memoryUsedMb, long memoryMaxMb,
+                            ServerTelemetry.Sample sample) {
+        this.serverId = serverId;
+        this.currentPlayers = currentPlayers;
+        this.tps = sample.getTps();
+        this.memoryUsedMb = memoryUsedMb;
+        this.memoryMaxMb = memoryMaxMb;
+        this.cpuPercent = sample.getProcessCpuPercent();
+        this.tickMeanMs = sample.getTickMeanMillis();
+        this.tickP99Ms = sample.getTickP99Millis();
+        this.tickMaxMs = sample.getTickMaxMillis();
+        this.gcPauseMs = sample.getGcPauseMillis();
+        this.gcMaxPauseMs = sample.getGcMaxPauseMillis();
+        this.gcCount = sample.getGcCount();
+        this.allocationMbPerSec = sample.getAllocationRateMbPerSec();
+        this.heapAfterGcMb = sample.getHeapAfterGcMb();
+    }
+
+    public String getServerId() { return serverId; }
+    public int getCurrentPlayers() { return currentPlayers; }
+    public double getTps() { return tps; }
+    public long getMemoryUsedMb() { return memoryUsedMb; }
+    public long getMemoryMaxMb() { return memoryMaxMb; }
+    public double getCpuPercent() { return cpuPercent; }
+    public double getTickMeanMs() { return tickMeanMs; }
+    public double getTickP99Ms() { return tickP99Ms; }
+    public double getTickMaxMs() { return tickMaxMs; }
+    public double getGcPauseMs() { return gcPauseMs; }
+    public double getGcMaxPauseMs() { return gcMaxPauseMs; }
+    public int getGcCount() { return gcCount; }
+    public double getAllocationMbPerSec() { return allocationMbPerSec; }
+    /** -1 until the sender's first collection, and from senders that predate the field */
+    public long getHeapAfterGcMb() { return heapAfterGcMb; }
+}
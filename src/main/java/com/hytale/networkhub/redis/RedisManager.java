@@ -6,7 +6,14 @@ import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.ZAddParams;
+import redis.clients.jedis.resps.Tuple;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
@@ -14,12 +21,46 @@ import com.hypixel.hytale.logger.HytaleLogger;
 import java.util.logging.Level;
 
 public class RedisManager {
+    // Check and act in one step, so a key that changed hands in between is never touched,
+    // and tokens are handed out in the same order as the lock
+    private static final String ACQUIRE_FENCED_LOCK =
+        "if redis.call('exists', KEYS[1]) == 1 then return -1 end " +
+        "local token = redis.call('incr', KEYS[2]) " +
+        "redis.call('set', KEYS[1], ARGV[1] .. ':' .. token, 'PX', ARGV[2]) " +
+        "return token";
+    private static final String EXPIRE_IF_EQUALS =
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end";
+    private static final String DELETE_IF_EQUALS =
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+    // A member already queued is re-scored even when the queue is full, a new one only if there is room
+    private static final String QUEUE_ADD =
+        "if not redis.call('zscore', KEYS[1], ARGV[1]) and redis.call('zcard', KEYS[1]) >= tonumber(ARGV[3]) then return 0 end " +
+        "redis.call('zadd', KEYS[1], ARGV[2], ARGV[1]) " +
+        "return redis.call('zrank', KEYS[1], ARGV[1]) + 1";
+    // A counter that starts again at 1 was lost with the data set, so it gets a new epoch with it
+    private static final String INCREMENT_VERSION =
+        "local version = redis.call('incr', KEYS[1]) " +
+        "if version == 1 or redis.call('exists', KEYS[2]) == 0 then redis.call('set', KEYS[2], ARGV[1]) end " +
+        "return {version, tonumber(redis.call('get', KEYS[2]))}";
+    // Pops only while the lease key still holds the caller's value, so a deposed leader dispatches nobody
+    private static final String QUEUE_POP_FENCED =
+        "if redis.call('get', KEYS[2]) ~= ARGV[2] then return {} end " +
+        "local popped = redis.call('zpopmin', KEYS[1], ARGV[1]) " +
+        "local members = {} " +
+        "for i = 1, #popped, 2 do members[#members + 1] = popped[i] end " +
+        "return members";
+    private static final String QUEUE_RANK =
+        "local rank = redis.call('zrank', KEYS[1], ARGV[1]) " +
+        "return {rank and rank + 1 or 0, redis.call('zcard', KEYS[1])}";
+    private static final long MIN_RESUBSCRIBE_BACKOFF_MS = 500;
+    private static final long MAX_RESUBSCRIBE_BACKOFF_MS = 30000;
+
     private final HytaleLogger logger;
     private final RedisConfig config;
     private final Gson gson;
     private JedisPool jedisPool;
-    private final Map<String, JedisPubSub> subscribers = new ConcurrentHashMap<>();
-    private final Map<String, Thread> subscriberThreads = new ConcurrentHashMap<>();
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
 
     public RedisManager(HytaleLogger logger, RedisConfig config, Gson gson) {
         this.logger = logger;
@@ -82,55 +123,248 @@ public class RedisManager {
         }
     }
 
-    public void subscribe(String channel, Consumer<String> handler) {
-        if (!isEnabled()) return;
+    /**
+     * Atomically increment a version counter key, returns {version, epoch} or null on failure
+     * The epoch, kept in key:epoch, is set to newEpoch whenever the counter had to start over
+     */
+    public long[] incrementVersion(String key, long newEpoch) {
+        if (!isEnabled()) return null;
 
-        JedisPubSub pubSub = new JedisPubSub() {
-            @Override
-            public void onMessage(String ch, String message) {
-                try {
-                    handler.accept(message);
-                } catch (Exception e) {
-                    logger.at(Level.SEVERE).log("Error handling Redis message on channel " + ch + ": " + e.getMessage());
-                    e.printStackTrace();
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object result = jedis.eval(INCREMENT_VERSION, List.of(key, key + ":epoch"), List.of(String.valueOf(newEpoch)));
+            List<?> values = (List<?>) result;
+            return new long[] {(Long) values.get(0), (Long) values.get(1)};
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to increment Redis key " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read a string key; null if it does not exist or Redis failed
+     */
+    public String get(String key) {
+        if (!isEnabled()) return null;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            return jedis.get(key);
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to read Redis key " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Take a lock key that does not exist yet, stamped with a fencing token from its counter key
+     * The value becomes "owner:token"; returns the token, or -1 if the lock is held or Redis failed
+     */
+    public long acquireFencedLock(String key, String owner, long ttlMillis) {
+        if (!isEnabled()) return -1;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object result = jedis.eval(ACQUIRE_FENCED_LOCK, List.of(key, key + ":token"),
+                List.of(owner, String.valueOf(ttlMillis)));
+            return result instanceof Long token ? token : -1;
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to acquire Redis lock " + key + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Restart a key's expiry only while it still holds the given value; returns false otherwise
+     */
+    public boolean expireIfEquals(String key, String value, long ttlMillis) {
+        if (!isEnabled()) return false;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object result = jedis.eval(EXPIRE_IF_EQUALS, List.of(key), List.of(value, String.valueOf(ttlMillis)));
+            return Long.valueOf(1).equals(result);
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to refresh expiry of Redis key " + key + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Delete a key only while it still holds the given value; returns false otherwise
+     */
+    public boolean deleteIfEquals(String key, String value) {
+        if (!isEnabled()) return false;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object result = jedis.eval(DELETE_IF_EQUALS, List.of(key), List.of(value));
+            return Long.valueOf(1).equals(result);
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to delete Redis key " + key + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Add a member to a sorted-set queue, or move it to a new score, unless the queue already holds maxSize others
+     * Returns its position starting at 1, 0 if the queue is full, or -1 if Redis failed
+     */
+    public long queueAdd(String key, String member, long score, int maxSize) {
+        if (!isEnabled()) return -1;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object result = jedis.eval(QUEUE_ADD, List.of(key), List.of(member, String.valueOf(score), String.valueOf(maxSize)));
+            return result instanceof Long position ? position : -1;
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to add to Redis queue " + key + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * A member's position starting at 1 (0 if absent) and the queue's size, read together; null if Redis failed
+     */
+    public long[] queueRank(String key, String member) {
+        if (!isEnabled()) return null;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object result = jedis.eval(QUEUE_RANK, List.of(key), List.of(member));
+            if (!(result instanceof List<?> values) || values.size() != 2) return null;
+            return new long[] {(Long) values.get(0), (Long) values.get(1)};
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to rank in Redis queue " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Remove and return up to count members with the lowest scores, in one atomic ZPOPMIN
+     * With a lease value, only while leaseKey still holds it; a null lease value pops unconditionally
+     */
+    public List<String> queuePop(String key, int count, String leaseKey, String leaseValue) {
+        List<String> members = new ArrayList<>();
+        if (!isEnabled() || count <= 0) return members;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            if (leaseValue != null) {
+                Object result = jedis.eval(QUEUE_POP_FENCED, List.of(key, leaseKey), List.of(String.valueOf(count), leaseValue));
+                for (Object member : (List<?>) result) {
+                    members.add((String) member);
                 }
+                return members;
+            }
+            for (Tuple tuple : jedis.zpopmin(key, count)) {
+                members.add(tuple.getElement());
             }
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to pop from Redis queue " + key + ": " + e.getMessage());
+        }
+        return members;
+    }
 
-            @Override
-            public void onSubscribe(String channel, int subscribedChannels) {
-                logger.at(Level.INFO).log("Subscribed to Redis channel: " + channel);
+    /**
+     * Remove a member from each of the queues in one round trip
+     */
+    public void queueRemove(List<String> keys, String member) {
+        if (!isEnabled() || keys.isEmpty()) return;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (String key : keys) {
+                pipeline.zrem(key, member);
             }
+            pipeline.sync();
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to remove from Redis queues: " + e.getMessage());
+        }
+    }
 
-            @Override
-            public void onUnsubscribe(String channel, int subscribedChannels) {
-                logger.at(Level.INFO).log("Unsubscribed from Redis channel: " + channel);
+    /**
+     * Sizes of the queues in one round trip; empty if Redis failed
+     */
+    public Map<String, Long> queueSizes(List<String> keys) {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        if (!isEnabled() || keys.isEmpty()) return sizes;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            Map<String, Response<Long>> responses = new LinkedHashMap<>();
+            for (String key : keys) {
+                responses.put(key, pipeline.zcard(key));
             }
-        };
+            pipeline.sync();
+            responses.forEach((key, response) -> sizes.put(key, response.get()));
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to read Redis queue sizes: " + e.getMessage());
+        }
+        return sizes;
+    }
 
-        Thread thread = new Thread(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
-                jedis.subscribe(pubSub, channel);
-            } catch (Exception e) {
-                logger.at(Level.SEVERE).log("Redis subscription error on channel " + channel + ": " + e.getMessage());
+    /**
+     * A member's position starting at 1 in each queue that holds it, in one round trip
+     */
+    public Map<String, Long> queuePositions(List<String> keys, String member) {
+        Map<String, Long> positions = new LinkedHashMap<>();
+        if (!isEnabled() || keys.isEmpty()) return positions;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            Map<String, Response<Long>> responses = new LinkedHashMap<>();
+            for (String key : keys) {
+                responses.put(key, pipeline.zrank(key, member));
             }
-        }, "Redis-Sub-" + channel);
+            pipeline.sync();
+            responses.forEach((key, response) -> {
+                if (response.get() != null) {
+                    positions.put(key, response.get() + 1);
+                }
+            });
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to read Redis queue positions: " + e.getMessage());
+        }
+        return positions;
+    }
+
+    /**
+     * Add members that are not queued yet, leaving the score of those that are
+     */
+    public void queueSeed(String key, Map<String, Double> scores) {
+        if (!isEnabled() || scores.isEmpty()) return;
 
-        thread.setDaemon(true);
-        thread.start();
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.zadd(key, scores, ZAddParams.zAddParams().nx());
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Failed to seed Redis queue " + key + ": " + e.getMessage());
+        }
+    }
 
-        subscribers.put(channel, pubSub);
-        subscriberThreads.put(channel, thread);
+    public void subscribe(String channel, Consumer<String> handler) {
+        subscribe(channel, handler, null);
     }
 
-    public void unsubscribe(String channel) {
-        JedisPubSub pubSub = subscribers.remove(channel);
-        if (pubSub != null && pubSub.isSubscribed()) {
-            pubSub.unsubscribe(channel);
+    /**
+     * Subscribe on a thread of its own, which subscribes again with backoff whenever the connection drops
+     * onResubscribe, if given, runs on that thread after every subscription but the first, for the caller to catch up
+     */
+    public void subscribe(String channel, Consumer<String> handler, Runnable onResubscribe) {
+        if (!isEnabled()) return;
+
+        Subscription subscription = new Subscription(channel, handler, onResubscribe);
+        Subscription previous = subscriptions.put(channel, subscription);
+        if (previous != null) {
+            previous.stop();
         }
+        subscription.thread.start();
+    }
 
-        Thread thread = subscriberThreads.remove(channel);
-        if (thread != null && thread.isAlive()) {
-            thread.interrupt();
+    /**
+     * Whether messages on the channel are being received right now
+     */
+    public boolean isSubscribed(String channel) {
+        Subscription subscription = subscriptions.get(channel);
+        return subscription != null && subscription.subscribed;
+    }
+
+    public void unsubscribe(String channel) {
+        Subscription subscription = subscriptions.remove(channel);
+        if (subscription != null) {
+            subscription.stop();
         }
     }
 
@@ -145,19 +379,111 @@ public class RedisManager {
     public void close() {
         logger.at(Level.INFO).log("Closing Redis connections...");
 
-        // Unsubscribe from all channels
-        subscribers.forEach((channel, pubSub) -> {
-            if (pubSub.isSubscribed()) {
-                pubSub.unsubscribe();
-            }
-        });
-
-        // Interrupt all subscriber threads
-        subscriberThreads.values().forEach(Thread::interrupt);
+        // Unsubscribe from all channels and stop their threads
+        closed = true;
+        subscriptions.values().forEach(Subscription::stop);
+        subscriptions.clear();
 
         if (jedisPool != null && !jedisPool.isClosed()) {
             jedisPool.close();
             logger.at(Level.INFO).log("Redis connection pool closed");
         }
     }
+
+    /**
+     * One channel's subscriber thread, subscribed until stopped and resubscribing after every lost connection
+     */
+    private final class Subscription implements Runnable {
+        private final String channel;
+        private final Consumer<String> handler;
+        private final Runnable onResubscribe;
+        private final Thread thread;
+        private volatile JedisPubSub pubSub;
+        private volatile boolean active = true;
+        private volatile boolean subscribed = false;
+        private volatile long backoffMillis = MIN_RESUBSCRIBE_BACKOFF_MS;
+        private boolean subscribedBefore = false;
+
+        Subscription(String channel, Consumer<String> handler, Runnable onResubscribe) {
+            this.channel = channel;
+            this.handler = handler;
+            this.onResubscribe = onResubscribe;
+            this.thread = new Thread(this, "Redis-Sub-" + channel);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (active && !closed) {
+                JedisPubSub current = newPubSub();
+                pubSub = current;
+                try (Jedis jedis = jedisPool.getResource()) {
+                    jedis.subscribe(current, channel);
+                } catch (Exception e) {
+                    if (active && !closed) {
+                        logger.at(Level.WARNING).log("Redis subscription on channel " + channel + " lost (" + e.getMessage() +
+                            "), resubscribing in " + backoffMillis + "ms");
+                    }
+                } finally {
+                    subscribed = false;
+                }
+
+                if (!active || closed) break;
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_RESUBSCRIBE_BACKOFF_MS);
+            }
+        }
+
+        void stop() {
+            active = false;
+            JedisPubSub current = pubSub;
+            if (current != null && current.isSubscribed()) {
+                try {
+                    current.unsubscribe();
+                } catch (Exception e) {
+                    // The connection is already gone, the thread exits on its own
+                }
+            }
+            thread.interrupt();
+        }
+
+        private JedisPubSub newPubSub() {
+            return new JedisPubSub() {
+                @Override
+                public void onMessage(String ch, String message) {
+                    try {
+                        handler.accept(message);
+                    } catch (Exception e) {
+                        logger.at(Level.SEVERE).log("Error handling Redis message on channel " + ch + ": " + e.getMessage());
+                        e.printStackTrace();
+                    }
+                }
+
+                @Override
+                public void onSubscribe(String ch, int subscribedChannels) {
+                    subscribed = true;
+                    backoffMillis = MIN_RESUBSCRIBE_BACKOFF_MS;
+                    logger.at(Level.INFO).log((subscribedBefore ? "Resubscribed" : "Subscribed") + " to Redis channel: " + ch);
+                    if (subscribedBefore && onResubscribe != null) {
+                        try {
+                            onResubscribe.run();
+                        } catch (Exception e) {
+                            logger.at(Level.WARNING).log("Error catching up on Redis channel " + ch + ": " + e.getMessage());
+                        }
+                    }
+                    subscribedBefore = true;
+                }
+
+                @Override
+                public void onUnsubscribe(String ch, int subscribedChannels) {
+                    subscribed = false;
+                    logger.at(Level.INFO).log("Unsubscribed from Redis channel: " + ch);
+                }
+            };
+        }
+    }
 }
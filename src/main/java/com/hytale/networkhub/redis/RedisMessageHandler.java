@@ -2,18 +2,22 @@ package com.hytale.networkhub.redis;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import com.hytale.networkhub.managers.PlayerDirectory;
 
 import java.util.Map;
+import java.util.UUID;
 import com.hypixel.hytale.logger.HytaleLogger;
 import java.util.logging.Level;
 
 public class RedisMessageHandler {
     private final HytaleLogger logger;
     private final Gson gson;
+    private final PlayerDirectory playerDirectory;
 
-    public RedisMessageHandler(HytaleLogger logger, Gson gson) {
+    public RedisMessageHandler(HytaleLogger logger, Gson gson, PlayerDirectory playerDirectory) {
         this.logger = logger;
         this.gson = gson;
+        this.playerDirectory = playerDirectory;
     }
 
     public void handlePlayerJoin(String json) {
@@ -22,9 +26,10 @@ public class RedisMessageHandler {
             String playerName = (String) message.get("playerName");
             String serverId = (String) message.get("serverId");
 
-            logger.at(Level.FINE).log("Player " + playerName + " joined " + serverId + " (via Redis)");
+            UUID playerUuid = UUID.fromString((String) message.get("playerUuid"));
 
-            // TODO: Update local cache, trigger events, etc.
+            playerDirectory.put(playerUuid, playerName, serverId, timestamp(message, 0));
+            logger.at(Level.FINE).log("Player " + playerName + " joined " + serverId + " (via Redis)");
 
         } catch (Exception e) {
             logger.at(Level.WARNING).log("Error handling player join message: " + e.getMessage());
@@ -37,12 +42,22 @@ public class RedisMessageHandler {
             String playerName = (String) message.get("playerName");
             String serverId = (String) message.get("serverId");
 
-            logger.at(Level.FINE).log("Player " + playerName + " quit " + serverId + " (via Redis)");
+            UUID playerUuid = UUID.fromString((String) message.get("playerUuid"));
 
-            // TODO: Update local cache, trigger events, etc.
+            // Joins and quits come on different channels, the timestamps keep a late quit from undoing a rejoin
+            playerDirectory.remove(playerUuid, serverId, timestamp(message, Long.MAX_VALUE));
+            logger.at(Level.FINE).log("Player " + playerName + " quit " + serverId + " (via Redis)");
 
         } catch (Exception e) {
             logger.at(Level.WARNING).log("Error handling player quit message: " + e.getMessage());
         }
     }
+
+    /**
+     * The publisher's timestamp, Gson reads numbers in an untyped map as doubles
+     */
+    private static long timestamp(Map<String, Object> message, long missing) {
+        Object value = message.get("timestamp");
+        return value instanceof Number ? ((Number) value).longValue() : missing;
+    }
 }
@@ -0,0 +1,110 @@
+package com.hytale.networkhub.redis;
+
+import com.hytale.networkhub.database.models.ServerRecord;
+
+import java.sql.Timestamp;
+
+/**
+ * A change to one server's registry entry, published on the serverStatus channel
+ * Versions increase by one per server across the whole network, so a receiver can spot missed deltas
+ * The epoch changes whenever Redis lost the version counter, so versions are only compared within one epoch
+ * Only the fields that changed are set, null fields keep their current value
+ */
+public class ServerDelta {
+    private String serverId;
+    private long version;
+    private long epoch;
+    private String serverName;
+    private String host;
+    private Integer port;
+    private String serverType;
+    private Boolean hub;
+    private Integer hubPriority;
+    private Integer maxPlayers;
+    private Integer currentPlayers;
+    private Double tps;
+    private Double tickP99Millis;
+    private ServerRecord.ServerStatus status;
+
+    public ServerDelta() {}
+
+    public ServerDelta(String serverId) {
+        this.serverId = serverId;
+    }
+
+    public String getServerId() { return serverId; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public long getEpoch() { return epoch; }
+    public void setEpoch(long epoch) { this.epoch = epoch; }
+
+    public ServerDelta withIdentity(String serverName, String host, int port, String serverType, int maxPlayers) {
+        this.serverName = serverName;
+        this.host = host;
+        this.port = port;
+        this.serverType = serverType;
+        this.maxPlayers = maxPlayers;
+        return this;
+    }
+
+    public ServerDelta withHub(boolean hub, int hubPriority) {
+        this.hub = hub;
+        this.hubPriority = hubPriority;
+        return this;
+    }
+
+    public ServerDelta withStatus(ServerRecord.ServerStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public ServerDelta withCurrentPlayers(int currentPlayers) {
+        this.currentPlayers = currentPlayers;
+        return this;
+    }
+
+    public ServerDelta withPerformance(double tps, double tickP99Millis) {
+        this.tps = tps;
+        this.tickP99Millis = tickP99Millis;
+        return this;
+    }
+
+    /**
+     * A new record with this delta applied, the base record is left untouched for concurrent readers
+     */
+    public ServerRecord applyTo(ServerRecord base) {
+        ServerRecord server = new ServerRecord();
+        server.setServerId(base.getServerId());
+        server.setServerName(serverName != null ? serverName : base.getServerName());
+        server.setHost(host != null ? host : base.getHost());
+        server.setPort(port != null ? port : base.getPort());
+        server.setServerType(serverType != null ? serverType : base.getServerType());
+        server.setHub(hub != null ? hub : base.isHub());
+        server.setHubPriority(hubPriority != null ? hubPriority : base.getHubPriority());
+        server.setMaxPlayers(maxPlayers != null ? maxPlayers : base.getMaxPlayers());
+        server.setTps(tps != null ? tps : base.getTps());
+        server.setTickP99Millis(tickP99Millis != null ? tickP99Millis : base.getTickP99Millis());
+        server.setMotd(base.getMotd());
+        server.setRegisteredAt(base.getRegisteredAt());
+
+        if (status != null) {
+            server.setStatus(status);
+            // An offline server has nobody on it, whatever its last heartbeat said
+            server.setCurrentPlayers(status == ServerRecord.ServerStatus.OFFLINE ? 0 :
+                currentPlayers != null ? currentPlayers : base.getCurrentPlayers());
+        } else {
+            server.setStatus(base.getStatus());
+            server.setCurrentPlayers(currentPlayers != null ? currentPlayers : base.getCurrentPlayers());
+        }
+
+        server.setLastUpdated(new Timestamp(System.currentTimeMillis()));
+        return server;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerDelta{server=" + serverId + ", epoch=" + epoch + ", version=" + version + "}";
+    }
+}
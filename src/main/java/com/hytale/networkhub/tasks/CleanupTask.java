@@ -1,51 +1,103 @@
 package com.hytale.networkhub.tasks;
 
 import com.hytale.networkhub.config.NetworkConfig;
-import com.hytale.networkhub.database.DatabaseManager;
-
+import com.hytale.networkhub.database.Fence;
+import com.hytale.networkhub.database.PartitionManager;
+import com.hytale.networkhub.database.RetentionEngine;
+import com.hytale.networkhub.managers.LeaderElection;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import com.hypixel.hytale.logger.HytaleLogger;
 import java.util.logging.Level;
 
 /**
  * Periodic cleanup task that removes stale data from the database
- * Runs every 5 minutes to keep the database clean
+ * Runs every 5 minutes to keep the database clean; deletes are chunked and time-boxed by RetentionEngine
+ * Only the maintenance leader runs it, the tables are shared by the whole network
+ * Its deletes and drops carry the leader's fence, so they stop if the lease is lost partway through
  */
 public class CleanupTask implements Runnable {
+    private static final int TRANSFER_HISTORY_RETENTION_DAYS = 30;
+
     private final HytaleLogger logger;
     private final NetworkConfig config;
-    private final DatabaseManager dbManager;
+    private final PartitionManager partitionManager;
+    private final RetentionEngine retentionEngine;
+    private final LeaderElection leaderElection;
 
-    public CleanupTask(HytaleLogger logger, NetworkConfig config, DatabaseManager dbManager) {
+    public CleanupTask(HytaleLogger logger, NetworkConfig config, PartitionManager partitionManager,
+                       RetentionEngine retentionEngine, LeaderElection leaderElection) {
         this.logger = logger;
         this.config = config;
-        this.dbManager = dbManager;
+        this.partitionManager = partitionManager;
+        this.retentionEngine = retentionEngine;
+        this.leaderElection = leaderElection;
     }
 
     @Override
     public void run() {
+        Fence fence = leaderElection.getFence();
+        if (fence == null) {
+            logger.at(Level.FINE).log("Skipping database cleanup, another server holds the maintenance lease");
+            return;
+        }
+
         try {
             logger.at(Level.FINE).log("Running database cleanup task...");
 
-            int totalCleaned = 0;
+            // Keep partitions ready ahead of the rows that will land in them
+            partitionManager.createUpcomingPartitions();
+
+            List<RetentionEngine.Policy> policies = new ArrayList<>();
 
-            // Clean up old player locations (players offline for more than 7 days)
-            totalCleaned += cleanupOldPlayerLocations();
+            // Player locations for players who have been offline for more than 7 days
+            policies.add(new RetentionEngine.Policy("player_locations", "player_uuid", "last_seen", Duration.ofDays(7)));
 
-            // Clean up expired queue entries
-            totalCleaned += cleanupExpiredQueueEntries();
+            // Queue entries that have been waiting for more than 1 hour
+            policies.add(new RetentionEngine.Policy("server_queues", "queue_id", "joined_queue_at", Duration.ofHours(1)));
 
-            // Clean up old chat messages (if persistence is enabled)
+            // Old chat messages (if persistence is enabled)
             if (config.getConfig().messaging.persistChatHistory) {
-                totalCleaned += cleanupOldChatMessages();
+                int retentionDays = config.getConfig().messaging.chatHistoryDays;
+                if (partitionManager.isPartitioned(PartitionManager.CHAT_MESSAGES)) {
+                    partitionManager.dropExpiredPartitions(PartitionManager.CHAT_MESSAGES, retentionDays, fence);
+                    addDefaultPartitionPolicy(policies, PartitionManager.CHAT_MESSAGES, "message_id", "sent_at",
+                        Duration.ofDays(retentionDays));
+                } else {
+                    policies.add(new RetentionEngine.Policy(PartitionManager.CHAT_MESSAGES, "message_id", "sent_at",
+                        Duration.ofDays(retentionDays)));
+                }
             }
 
-            // Clean up old announcements (expired for more than 24 hours)
+            // Announcements that expired more than 24 hours ago
             if (config.getConfig().announcements.logToDatabase) {
-                totalCleaned += cleanupOldAnnouncements();
+                policies.add(new RetentionEngine.Policy("announcements", "announcement_id", "expires_at", Duration.ofHours(24)));
+            }
+
+            // Transfer history older than 30 days
+            if (partitionManager.isPartitioned(PartitionManager.TRANSFER_HISTORY)) {
+                partitionManager.dropExpiredPartitions(PartitionManager.TRANSFER_HISTORY, TRANSFER_HISTORY_RETENTION_DAYS, fence);
+                addDefaultPartitionPolicy(policies, PartitionManager.TRANSFER_HISTORY, "transfer_id", "transferred_at",
+                    Duration.ofDays(TRANSFER_HISTORY_RETENTION_DAYS));
+            } else {
+                policies.add(new RetentionEngine.Policy(PartitionManager.TRANSFER_HISTORY, "transfer_id", "transferred_at",
+                    Duration.ofDays(TRANSFER_HISTORY_RETENTION_DAYS)));
+            }
+
+            // Health history, minute buckets are only needed short term, hour buckets are kept for capacity planning
+            if (config.getConfig().history.persist) {
+                policies.add(new RetentionEngine.Policy("server_health_history", "history_id", "bucket_start",
+                    Duration.ofDays(config.getConfig().history.minuteRetentionDays), "resolution_seconds = 60"));
+                policies.add(new RetentionEngine.Policy("server_health_history", "history_id", "bucket_start",
+                    Duration.ofDays(config.getConfig().history.hourRetentionDays), "resolution_seconds = 3600"));
             }
 
-            // Clean up old transfer history (older than 30 days)
-            totalCleaned += cleanupOldTransferHistory();
+            long totalCleaned = 0;
+            for (RetentionEngine.Result result : retentionEngine.run(policies, fence)) {
+                totalCleaned += result.getRowsDeleted();
+            }
 
             if (totalCleaned > 0) {
                 logger.at(Level.INFO).log("Cleanup task completed: removed " + totalCleaned + " stale records");
@@ -60,131 +112,13 @@ public class CleanupTask implements Runnable {
     }
 
     /**
-     * Remove player locations for players who have been offline for more than 7 days
+     * Rows in a PostgreSQL default partition are not covered by partition drops, so they are purged in chunks
      */
-    private int cleanupOldPlayerLocations() {
-        String sql = """
-            DELETE FROM player_locations
-            WHERE last_seen < NOW() - INTERVAL '7 days'
-        """;
-
-        // MySQL/MariaDB syntax
-        if (isMySQL()) {
-            sql = """
-                DELETE FROM player_locations
-                WHERE last_seen < DATE_SUB(NOW(), INTERVAL 7 DAY)
-            """;
+    private void addDefaultPartitionPolicy(List<RetentionEngine.Policy> policies, String table, String keyColumn,
+                                           String timeColumn, Duration maxAge) {
+        String defaultPartition = partitionManager.getDefaultPartition(table);
+        if (defaultPartition != null) {
+            policies.add(new RetentionEngine.Policy(defaultPartition, keyColumn, timeColumn, maxAge));
         }
-
-        int deleted = dbManager.executeUpdate(sql);
-        if (deleted > 0) {
-            logger.at(Level.FINE).log("Cleaned up " + deleted + " old player location records");
-        }
-        return deleted;
-    }
-
-    /**
-     * Remove expired queue entries (queued for more than 1 hour)
-     */
-    private int cleanupExpiredQueueEntries() {
-        String sql = """
-            DELETE FROM server_queues
-            WHERE joined_queue_at < NOW() - INTERVAL '1 hour'
-        """;
-
-        // MySQL/MariaDB syntax
-        if (isMySQL()) {
-            sql = """
-                DELETE FROM server_queues
-                WHERE joined_queue_at < DATE_SUB(NOW(), INTERVAL 1 HOUR)
-            """;
-        }
-
-        int deleted = dbManager.executeUpdate(sql);
-        if (deleted > 0) {
-            logger.at(Level.FINE).log("Cleaned up " + deleted + " expired queue entries");
-        }
-        return deleted;
-    }
-
-    /**
-     * Remove old chat messages based on retention period
-     */
-    private int cleanupOldChatMessages() {
-        int retentionDays = config.getConfig().messaging.chatHistoryDays;
-
-        String sql = """
-            DELETE FROM chat_messages
-            WHERE sent_at < NOW() - INTERVAL '? days'
-        """;
-
-        // MySQL/MariaDB syntax
-        if (isMySQL()) {
-            sql = """
-                DELETE FROM chat_messages
-                WHERE sent_at < DATE_SUB(NOW(), INTERVAL ? DAY)
-            """;
-        }
-
-        int deleted = dbManager.executeUpdate(sql, retentionDays);
-        if (deleted > 0) {
-            logger.at(Level.FINE).log("Cleaned up " + deleted + " old chat messages");
-        }
-        return deleted;
-    }
-
-    /**
-     * Remove old announcements that expired more than 24 hours ago
-     */
-    private int cleanupOldAnnouncements() {
-        String sql = """
-            DELETE FROM announcements
-            WHERE expires_at < NOW() - INTERVAL '24 hours'
-        """;
-
-        // MySQL/MariaDB syntax
-        if (isMySQL()) {
-            sql = """
-                DELETE FROM announcements
-                WHERE expires_at < DATE_SUB(NOW(), INTERVAL 24 HOUR)
-            """;
-        }
-
-        int deleted = dbManager.executeUpdate(sql);
-        if (deleted > 0) {
-            logger.at(Level.FINE).log("Cleaned up " + deleted + " old announcements");
-        }
-        return deleted;
-    }
-
-    /**
-     * Remove old transfer history records (older than 30 days)
-     */
-    private int cleanupOldTransferHistory() {
-        String sql = """
-            DELETE FROM transfer_history
-            WHERE transferred_at < NOW() - INTERVAL '30 days'
-        """;
-
-        // MySQL/MariaDB syntax
-        if (isMySQL()) {
-            sql = """
-                DELETE FROM transfer_history
-                WHERE transferred_at < DATE_SUB(NOW(), INTERVAL 30 DAY)
-            """;
-        }
-
-        int deleted = dbManager.executeUpdate(sql);
-        if (deleted > 0) {
-            logger.at(Level.FINE).log("Cleaned up " + deleted + " old transfer history records");
-        }
-        return deleted;
-    }
-
-    /**
-     * Check if database is MySQL/MariaDB
-     */
-    private boolean isMySQL() {
-        return dbManager.isMySQL();
     }
 }
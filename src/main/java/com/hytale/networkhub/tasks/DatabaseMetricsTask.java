@@ -0,0 +1,49 @@
+package com.hytale.networkhub.tasks;
+
+import com.hytale.networkhub.database.DatabaseManager;
+import com.hytale.networkhub.database.QueryMetrics;
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Periodic task that exports per-statement database metrics
+ * Writes a Prometheus text file (usable with a textfile collector) and logs the heaviest statements
+ */
+public class DatabaseMetricsTask implements Runnable {
+    private static final int TOP_STATEMENTS = 5;
+
+    private final HytaleLogger logger;
+    private final DatabaseManager dbManager;
+    private final Path outputFile;
+
+    public DatabaseMetricsTask(HytaleLogger logger, DatabaseManager dbManager, Path outputFile) {
+        this.logger = logger;
+        this.dbManager = dbManager;
+        this.outputFile = outputFile;
+    }
+
+    @Override
+    public void run() {
+        try {
+            QueryMetrics metrics = dbManager.getQueryMetrics();
+            if (!metrics.isEnabled()) return;
+
+            // Write to a temp file first so scrapers never see a partial export
+            Path tempFile = outputFile.resolveSibling(outputFile.getFileName() + ".tmp");
+            Files.writeString(tempFile, metrics.exportPrometheus());
+            Files.move(tempFile, outputFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            List<QueryMetrics.StatementSnapshot> snapshots = metrics.getSnapshots();
+            for (int i = 0; i < Math.min(TOP_STATEMENTS, snapshots.size()); i++) {
+                logger.at(Level.FINE).log("DB stats #" + (i + 1) + ": " + snapshots.get(i));
+            }
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Error exporting database metrics: %s", e.getMessage());
+        }
+    }
+}
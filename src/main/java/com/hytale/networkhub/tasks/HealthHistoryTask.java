@@ -0,0 +1,29 @@
+package com.hytale.networkhub.tasks;
+
+import com.hytale.networkhub.managers.HealthHistory;
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.util.logging.Level;
+
+/**
+ * Periodic task that persists this server's closed health history buckets
+ * Runs every minute, so each minute bucket is written once, shortly after it closes
+ */
+public class HealthHistoryTask implements Runnable {
+    private final HytaleLogger logger;
+    private final HealthHistory healthHistory;
+
+    public HealthHistoryTask(HytaleLogger logger, HealthHistory healthHistory) {
+        this.logger = logger;
+        this.healthHistory = healthHistory;
+    }
+
+    @Override
+    public void run() {
+        try {
+            healthHistory.persist(false);
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Error persisting health history: %s", e.getMessage());
+        }
+    }
+}
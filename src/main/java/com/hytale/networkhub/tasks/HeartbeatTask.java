@@ -2,6 +2,7 @@ package com.hytale.networkhub.tasks;
 
 import com.hytale.networkhub.config.NetworkConfig;
 import com.hytale.networkhub.managers.HeartbeatManager;
+import com.hytale.networkhub.managers.PlayerTrackingManager;
 import com.hypixel.hytale.logger.HytaleLogger;
 
 import java.util.logging.Level;
@@ -10,19 +11,21 @@ public class HeartbeatTask implements Runnable {
     private final HytaleLogger logger;
     private final NetworkConfig config;
     private final HeartbeatManager heartbeatManager;
+    private final PlayerTrackingManager trackingManager;
 
-    public HeartbeatTask(HytaleLogger logger, NetworkConfig config, HeartbeatManager heartbeatManager) {
+    public HeartbeatTask(HytaleLogger logger, NetworkConfig config, HeartbeatManager heartbeatManager,
+                         PlayerTrackingManager trackingManager) {
         this.logger = logger;
         this.config = config;
         this.heartbeatManager = heartbeatManager;
+        this.trackingManager = trackingManager;
     }
 
     @Override
     public void run() {
         try {
-            // TODO: Get actual player count from server
-            int currentPlayers = 0;
-            heartbeatManager.sendHeartbeat(currentPlayers);
+            // Hub balancing and maxPlayers checks read this count, so it has to be the real one
+            heartbeatManager.sendHeartbeat(trackingManager.getLocalPlayerCount());
         } catch (Exception e) {
             logger.at(Level.WARNING).log("Error sending heartbeat: %s", e.getMessage());
         }
@@ -0,0 +1,42 @@
+package com.hytale.networkhub.tasks;
+
+import com.hytale.networkhub.database.DatabaseManager;
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.util.logging.Level;
+
+/**
+ * Periodic task that replays writes journaled during a database outage
+ * Also flushes the journal to disk so buffered writes survive a host crash
+ */
+public class JournalReplayTask implements Runnable {
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private final HytaleLogger logger;
+    private final DatabaseManager dbManager;
+
+    public JournalReplayTask(HytaleLogger logger, DatabaseManager dbManager) {
+        this.logger = logger;
+        this.dbManager = dbManager;
+    }
+
+    @Override
+    public void run() {
+        try {
+            int total = 0;
+            for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+                int replayed = dbManager.replayJournal();
+                if (replayed == 0) break;
+                total += replayed;
+            }
+
+            if (total > 0) {
+                logger.at(Level.INFO).log("Replayed %d journaled writes (%d remaining)", total, dbManager.getJournalPendingCount());
+            }
+
+            dbManager.syncJournal();
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Error replaying write journal: %s", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.hytale.networkhub.tasks;
+
+import com.hytale.networkhub.managers.LeaderElection;
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.util.logging.Level;
+
+/**
+ * Periodic task that takes or renews the maintenance lease
+ * Runs every third of the lease, so a holder survives two failed renewals before losing it
+ */
+public class LeaderLeaseTask implements Runnable {
+    private final HytaleLogger logger;
+    private final LeaderElection leaderElection;
+
+    public LeaderLeaseTask(HytaleLogger logger, LeaderElection leaderElection) {
+        this.logger = logger;
+        this.leaderElection = leaderElection;
+    }
+
+    @Override
+    public void run() {
+        try {
+            leaderElection.renew();
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Error renewing maintenance lease: %s", e.getMessage());
+        }
+    }
+}
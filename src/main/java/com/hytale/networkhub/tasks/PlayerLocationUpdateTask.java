@@ -7,8 +7,8 @@ import com.hypixel.hytale.logger.HytaleLogger;
 import java.util.logging.Level;
 
 /**
- * Periodic task that updates player locations in the database
- * Runs every 30 seconds to keep location data fresh
+ * Periodic task that writes the positions players moved to since the last run
+ * All of them go out as one multi-row upsert, players who stayed put are not written at all
  */
 public class PlayerLocationUpdateTask implements Runnable {
     private final HytaleLogger logger;
@@ -24,11 +24,10 @@ public class PlayerLocationUpdateTask implements Runnable {
     @Override
     public void run() {
         try {
-            // TODO: Get all online players and update their locations
-            // This would iterate through all online players and call:
-            // trackingManager.updateLocation(playerUuid, worldName, x, y, z);
-
-            logger.at(Level.FINE).log("Player location update task completed");
+            int written = trackingManager.flushLocations();
+            if (written > 0) {
+                logger.at(Level.FINE).log("Flushed %d player locations", written);
+            }
         } catch (Exception e) {
             logger.at(Level.WARNING).log("Error updating player locations: %s", e.getMessage());
         }
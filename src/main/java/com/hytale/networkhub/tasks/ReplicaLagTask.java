@@ -0,0 +1,31 @@
+package com.hytale.networkhub.tasks;
+
+import com.hytale.networkhub.database.ReadReplicaRouter;
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.util.logging.Level;
+
+/**
+ * Periodic task that measures read replica lag
+ * Reads are routed back to the primary while the replica is unreachable or too far behind
+ */
+public class ReplicaLagTask implements Runnable {
+    private final HytaleLogger logger;
+    private final ReadReplicaRouter replicaRouter;
+
+    public ReplicaLagTask(HytaleLogger logger, ReadReplicaRouter replicaRouter) {
+        this.logger = logger;
+        this.replicaRouter = replicaRouter;
+    }
+
+    @Override
+    public void run() {
+        try {
+            replicaRouter.checkLag();
+            logger.at(Level.FINE).log("Replica lag: %dms (replica reads: %d, primary fallbacks: %d)",
+                replicaRouter.getLagMillis(), replicaRouter.getReplicaReads(), replicaRouter.getPrimaryFallbacks());
+        } catch (Exception e) {
+            logger.at(Level.WARNING).log("Error checking replica lag: %s", e.getMessage());
+        }
+    }
+}